@@ -16,7 +16,9 @@
  */
 package org.exoplatform.appcenter.dao;
 
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 import javax.persistence.TypedQuery;
 
@@ -24,14 +26,11 @@ import org.apache.commons.lang.StringUtils;
 
 import org.exoplatform.appcenter.entity.ApplicationEntity;
 import org.exoplatform.commons.persistence.impl.GenericDAOJPAImpl;
-import org.exoplatform.services.log.ExoLogger;
-import org.exoplatform.services.log.Log;
 
 /**
  * @author Ayoub Zayati
  */
 public class ApplicationDAO extends GenericDAOJPAImpl<ApplicationEntity, Long> {
-  private static final Log LOG = ExoLogger.getLogger(ApplicationDAO.class);
 
   public List<ApplicationEntity> getMandatoryActiveApps() {
     return getEntityManager().createNamedQuery("ApplicationEntity.getMandatoryActiveApps", ApplicationEntity.class)
@@ -53,26 +52,54 @@ public class ApplicationDAO extends GenericDAOJPAImpl<ApplicationEntity, Long> {
     return query.getResultList();
   }
 
+  /**
+   * Retrieves a chunk of applications sorted by id. The returned entities are
+   * detached, thus iterating over all applications doesn't accumulate them in
+   * the persistence context.
+   *
+   * @param id id after which to retrieve applications
+   * @param limit maximum number of applications to retrieve
+   * @return {@link List} of detached {@link ApplicationEntity}
+   */
+  public List<ApplicationEntity> getApplicationsAfterId(long id, int limit) {
+    List<ApplicationEntity> applications = getEntityManager().createNamedQuery("ApplicationEntity.getApplicationsAfterId",
+                                                                               ApplicationEntity.class)
+                                                             .setParameter("id", id)
+                                                             .setMaxResults(limit)
+                                                             .getResultList();
+    applications.forEach(getEntityManager()::detach);
+    return applications;
+  }
+
   public List<ApplicationEntity> getSystemApplications() {
     TypedQuery<ApplicationEntity> query = getEntityManager().createNamedQuery("ApplicationEntity.getSystemApplications",
                                                                               ApplicationEntity.class);
     return query.getResultList();
   }
 
+  /**
+   * @return the configuration fingerprint of system applications, indexed by
+   *         application id
+   */
+  public Map<Long, String> getSystemApplicationsFingerprints() {
+    List<Object[]> results = getEntityManager().createNamedQuery("ApplicationEntity.getSystemApplicationsFingerprints",
+                                                                 Object[].class)
+                                               .getResultList();
+    Map<Long, String> fingerprints = new HashMap<>();
+    for (Object[] result : results) {
+      fingerprints.put((Long) result[0], (String) result[1]);
+    }
+    return fingerprints;
+  }
+
   public ApplicationEntity getApplicationByTitle(String title) {
     TypedQuery<ApplicationEntity> query = getEntityManager()
                                                             .createNamedQuery("ApplicationEntity.getAppByTitle",
                                                                               ApplicationEntity.class)
                                                             .setParameter("title", title);
-    List<ApplicationEntity> result = query.getResultList();
-    if (result == null || result.isEmpty()) {
-      return null;
-    } else if (result.size() > 1) {
-      LOG.warn("More than one application was found with Title '{}'", title);
-      return result.get(0);
-    } else {
-      return result.get(0);
-    }
+    // Unicity is guaranteed by UK_AC_APPLICATION_TITLE constraint
+    List<ApplicationEntity> result = query.setMaxResults(1).getResultList();
+    return result == null || result.isEmpty() ? null : result.get(0);
   }
 
 }
@@ -0,0 +1,54 @@
+/*
+ * This file is part of the Meeds project (https://meeds.io/).
+ * Copyright (C) 2020 Meeds Association
+ * contact@meeds.io
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.exoplatform.appcenter.dao;
+
+import java.util.List;
+
+import javax.persistence.TypedQuery;
+
+import org.exoplatform.appcenter.entity.ApplicationImageVariantEntity;
+import org.exoplatform.commons.persistence.impl.GenericDAOJPAImpl;
+
+public class ApplicationImageVariantDAO extends GenericDAOJPAImpl<ApplicationImageVariantEntity, Long> {
+
+  /**
+   * @param imageFileId file id of the original image
+   * @param size maximum width and height in pixels of the variant
+   * @return the variant or null if not generated yet
+   */
+  public ApplicationImageVariantEntity getVariant(long imageFileId, int size) {
+    TypedQuery<ApplicationImageVariantEntity> query =
+                                                    getEntityManager().createNamedQuery("ApplicationImageVariantEntity.getVariant",
+                                                                                        ApplicationImageVariantEntity.class);
+    query.setParameter("imageFileId", imageFileId);
+    query.setParameter("size", size);
+    List<ApplicationImageVariantEntity> variants = query.getResultList();
+    return variants.isEmpty() ? null : variants.get(0);
+  }
+
+  /**
+   * @param imageFileId file id of the original image
+   * @return all generated variants of the image
+   */
+  public List<ApplicationImageVariantEntity> getVariantsOfImage(long imageFileId) {
+    return getEntityManager().createNamedQuery("ApplicationImageVariantEntity.getVariantsOfImage",
+                                               ApplicationImageVariantEntity.class)
+                             .setParameter("imageFileId", imageFileId)
+                             .getResultList();
+  }
+
+}
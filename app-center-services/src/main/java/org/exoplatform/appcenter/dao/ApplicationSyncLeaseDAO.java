@@ -0,0 +1,136 @@
+/*
+ * This file is part of the Meeds project (https://meeds.io/).
+ * Copyright (C) 2020 Meeds Association
+ * contact@meeds.io
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.exoplatform.appcenter.dao;
+
+import java.util.List;
+import java.util.function.Function;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceException;
+
+import org.exoplatform.appcenter.entity.ApplicationSyncLeaseEntity;
+import org.exoplatform.commons.persistence.impl.GenericDAOJPAImpl;
+
+/**
+ * Handles cluster-wide leases using conditional updates, each modification is
+ * executed in its own short transaction on a dedicated entity manager, thus
+ * it's committed immediately to be visible by the other nodes, even when
+ * called inside a transaction.
+ */
+public class ApplicationSyncLeaseDAO extends GenericDAOJPAImpl<ApplicationSyncLeaseEntity, String> {
+
+  /**
+   * Acquires or renews a lease when it's free, expired or already owned by the
+   * same owner.
+   *
+   * @param name lease name
+   * @param owner identifier of the node acquiring the lease
+   * @param now current time in milliseconds
+   * @param expiryDate time in milliseconds until which the lease is held
+   * @return true if the lease is acquired
+   */
+  public boolean acquireLease(String name, String owner, long now, long expiryDate) {
+    try {
+      return executeInNewTransaction(entityManager -> {
+        int updatedCount = entityManager.createNamedQuery("ApplicationSyncLeaseEntity.acquireLease")
+                                        .setParameter("name", name)
+                                        .setParameter("owner", owner)
+                                        .setParameter("now", now)
+                                        .setParameter("expiryDate", expiryDate)
+                                        .executeUpdate();
+        if (updatedCount > 0) {
+          return true;
+        }
+        if (entityManager.find(ApplicationSyncLeaseEntity.class, name) != null) {
+          return false;
+        }
+        // First use of the lease, the node which inserts it first holds it
+        entityManager.persist(new ApplicationSyncLeaseEntity(name, owner, expiryDate));
+        entityManager.flush();
+        return true;
+      });
+    } catch (PersistenceException e) {
+      if (!EntityManagerUtils.isConstraintViolation(e)) {
+        throw e;
+      }
+      // Inserted concurrently by another node
+      return false;
+    }
+  }
+
+  /**
+   * Releases a lease if it's still held by the owner.
+   *
+   * @param name lease name
+   * @param owner identifier of the node holding the lease
+   * @return true if the lease was released
+   */
+  public boolean releaseLease(String name, String owner) {
+    return executeInNewTransaction(entityManager -> entityManager.createNamedQuery("ApplicationSyncLeaseEntity.releaseLease")
+                                                                 .setParameter("name", name)
+                                                                 .setParameter("owner", owner)
+                                                                 .executeUpdate()) > 0;
+  }
+
+  /**
+   * Records a successful synchronization and releases the lease if it's still
+   * held by the owner.
+   *
+   * @param name lease name
+   * @param owner identifier of the node holding the lease
+   * @param completedDate time in milliseconds of the synchronization completion
+   * @param fingerprint fingerprint of the synchronized configuration
+   * @return true if the completion was recorded
+   */
+  public boolean completeLease(String name, String owner, long completedDate, String fingerprint) {
+    return executeInNewTransaction(entityManager -> entityManager.createNamedQuery("ApplicationSyncLeaseEntity.completeLease")
+                                                                 .setParameter("name", name)
+                                                                 .setParameter("owner", owner)
+                                                                 .setParameter("completedDate", completedDate)
+                                                                 .setParameter("fingerprint", fingerprint)
+                                                                 .executeUpdate()) > 0;
+  }
+
+  /**
+   * @param name lease name
+   * @return fingerprint of the configuration applied by the last successful
+   *         synchronization, null if none completed
+   */
+  public String getCompletedFingerprint(String name) {
+    List<String> fingerprints = getEntityManager().createNamedQuery("ApplicationSyncLeaseEntity.getCompletedFingerprint",
+                                                                    String.class)
+                                                  .setParameter("name", name)
+                                                  .getResultList();
+    return fingerprints.isEmpty() ? null : fingerprints.get(0);
+  }
+
+  /**
+   * @param name lease name
+   * @return identifier of the node holding the lease, even if expired, null if
+   *         it's released
+   */
+  public String getLeaseOwner(String name) {
+    List<String> owners = getEntityManager().createNamedQuery("ApplicationSyncLeaseEntity.getLeaseOwner", String.class)
+                                            .setParameter("name", name)
+                                            .getResultList();
+    return owners.isEmpty() ? null : owners.get(0);
+  }
+
+  private <T> T executeInNewTransaction(Function<EntityManager, T> operation) {
+    return EntityManagerUtils.executeInNewTransaction(getEntityManager().getEntityManagerFactory(), operation);
+  }
+}
@@ -0,0 +1,82 @@
+/*
+ * This file is part of the Meeds project (https://meeds.io/).
+ * Copyright (C) 2020 Meeds Association
+ * contact@meeds.io
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.exoplatform.appcenter.dao;
+
+import java.sql.SQLException;
+import java.sql.SQLIntegrityConstraintViolationException;
+import java.util.function.Function;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.EntityTransaction;
+
+import org.apache.commons.lang.StringUtils;
+
+public class EntityManagerUtils {
+
+  private EntityManagerUtils() {
+    // Utility class
+  }
+
+  /**
+   * Executes an operation in its own short transaction on a dedicated entity
+   * manager, thus it's committed immediately whatever the transaction of the
+   * caller and a failure leaves the request entity manager untouched.
+   *
+   * @param entityManagerFactory factory of the dedicated entity manager
+   * @param operation operation to execute
+   * @return result of the operation
+   */
+  public static <T> T executeInNewTransaction(EntityManagerFactory entityManagerFactory, Function<EntityManager, T> operation) {
+    EntityManager entityManager = entityManagerFactory.createEntityManager();
+    try {
+      EntityTransaction transaction = entityManager.getTransaction();
+      transaction.begin();
+      try {
+        T result = operation.apply(entityManager);
+        transaction.commit();
+        return result;
+      } catch (RuntimeException e) {
+        if (transaction.isActive()) {
+          transaction.rollback();
+        }
+        throw e;
+      }
+    } finally {
+      entityManager.close();
+    }
+  }
+
+  /**
+   * @param exception exception thrown by a database operation
+   * @return true if it's caused by an integrity constraint violation, like a
+   *         unique constraint rejecting an inserted row
+   */
+  public static boolean isConstraintViolation(Throwable exception) {
+    for (Throwable cause = exception; cause != null; cause = cause.getCause()) {
+      if (cause instanceof SQLIntegrityConstraintViolationException) {
+        return true;
+      }
+      // SQL state class 23 stands for integrity constraint violations
+      if (cause instanceof SQLException && StringUtils.startsWith(((SQLException) cause).getSQLState(), "23")) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+}
@@ -16,11 +16,15 @@
  */
 package org.exoplatform.appcenter.dao;
 
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 
 import javax.persistence.TypedQuery;
 
 import org.exoplatform.appcenter.entity.FavoriteApplicationEntity;
+import org.exoplatform.commons.api.persistence.ExoTransactional;
 import org.exoplatform.commons.persistence.impl.GenericDAOJPAImpl;
 import org.exoplatform.services.log.ExoLogger;
 import org.exoplatform.services.log.Log;
@@ -31,6 +35,12 @@ import org.exoplatform.services.log.Log;
 public class FavoriteApplicationDAO extends GenericDAOJPAImpl<FavoriteApplicationEntity, Long> {
   private static final Log LOG = ExoLogger.getLogger(FavoriteApplicationDAO.class);
 
+  /**
+   * @param userName login of user
+   * @return favorite applications of the user sorted by order, with their
+   *         associated {@link org.exoplatform.appcenter.entity.ApplicationEntity}
+   *         fetched in the same query
+   */
   public List<FavoriteApplicationEntity> getFavoriteAppsByUser(String userName) {
     return getEntityManager().createNamedQuery("FavoriteApplicationEntity.getFavoriteAppsByUser", FavoriteApplicationEntity.class)
                              .setParameter("userName", userName)
@@ -43,15 +53,51 @@ public class FavoriteApplicationDAO extends GenericDAOJPAImpl<FavoriteApplicatio
                                                                                     FavoriteApplicationEntity.class)
                                                                   .setParameter("applicationId", applicationId)
                                                                   .setParameter("userName", userName);
-    List<FavoriteApplicationEntity> result = query.getResultList();
-    if (result == null || result.isEmpty()) {
-      return null;
-    } else if (result.size() > 1) {
-      LOG.warn("More than one application was found with applicationId '{}' and userName '{}'", applicationId, userName);
-      return result.get(0);
-    } else {
-      return result.get(0);
+    // Unicity is guaranteed by UK_AC_FAV_APP_USER_APP constraint
+    List<FavoriteApplicationEntity> result = query.setMaxResults(1).getResultList();
+    return result == null || result.isEmpty() ? null : result.get(0);
+  }
+
+  /**
+   * @param userName login of user
+   * @return sorted ids of favorite applications of the user, retrieved in a
+   *         single query
+   */
+  public long[] getFavoriteAppIdsByUser(String userName) {
+    List<Long> applicationIds = getEntityManager().createNamedQuery("FavoriteApplicationEntity.getFavoriteAppIdsByUser", Long.class)
+                                                  .setParameter("userName", userName)
+                                                  .getResultList();
+    return applicationIds.stream().mapToLong(Long::longValue).toArray();
+  }
+
+  /**
+   * Updates the order of favorite applications of a user using a single
+   * transaction: the favorites are read with one query and only the modified
+   * ones are updated together when flushing, thus allowing JDBC batching.
+   * Mandatory applications orders aren't modified.
+   *
+   * @param userName login of user
+   * @param ordersByApplicationId new order by application id
+   * @return count of updated favorites
+   */
+  @ExoTransactional
+  public int updateFavoriteAppsOrder(String userName, Map<Long, Long> ordersByApplicationId) {
+    List<FavoriteApplicationEntity> modifiedFavorites = new ArrayList<>();
+    for (FavoriteApplicationEntity favoriteApplication : getFavoriteAppsByUser(userName)) {
+      Long applicationId = favoriteApplication.getApplication().getId();
+      if (favoriteApplication.getApplication().isMandatory() || !ordersByApplicationId.containsKey(applicationId)) {
+        continue;
+      }
+      Long order = ordersByApplicationId.get(applicationId);
+      if (!Objects.equals(order, favoriteApplication.getOrder())) {
+        favoriteApplication.setOrder(order);
+        modifiedFavorites.add(favoriteApplication);
+      }
+    }
+    if (!modifiedFavorites.isEmpty()) {
+      updateAll(modifiedFavorites);
     }
+    return modifiedFavorites.size();
   }
 
   public long countFavoritesForUser(String username) {
@@ -60,11 +106,44 @@ public class FavoriteApplicationDAO extends GenericDAOJPAImpl<FavoriteApplicatio
     return query.getSingleResult();
   }
 
-  public void removeAllFavoritesOfApplication(Long applicationId) {
-    getEntityManager().getTransaction().begin();
-    getEntityManager().createQuery("DELETE FROM FavoriteApplicationEntity favoriteApp WHERE favoriteApp.application.id = :applicationId ")
-                      .setParameter("applicationId", applicationId)
-                      .executeUpdate();
-    getEntityManager().getTransaction().commit();
+  /**
+   * Deletes a bounded chunk of favorites of an application, to not lock all
+   * its favorites in a single long transaction.
+   *
+   * @param applicationId technical id of application
+   * @param limit maximum number of favorites to delete
+   * @return count of deleted favorites, 0 when no favorite remains
+   */
+  @ExoTransactional
+  public int deleteFavoritesOfApplication(long applicationId, int limit) {
+    List<Long> favoriteIds = getEntityManager().createNamedQuery("FavoriteApplicationEntity.getFavoriteIdsByAppId", Long.class)
+                                               .setParameter("applicationId", applicationId)
+                                               .setMaxResults(limit)
+                                               .getResultList();
+    return deleteFavoritesByIds(favoriteIds);
+  }
+
+  /**
+   * Deletes a bounded chunk of favorites referencing an application that
+   * doesn't exist anymore.
+   *
+   * @param limit maximum number of favorites to delete
+   * @return count of deleted favorites, 0 when no orphan favorite remains
+   */
+  @ExoTransactional
+  public int deleteOrphanFavorites(int limit) {
+    List<Long> favoriteIds = getEntityManager().createNamedQuery("FavoriteApplicationEntity.getOrphanFavoriteIds", Long.class)
+                                               .setMaxResults(limit)
+                                               .getResultList();
+    return deleteFavoritesByIds(favoriteIds);
+  }
+
+  private int deleteFavoritesByIds(List<Long> favoriteIds) {
+    if (favoriteIds.isEmpty()) {
+      return 0;
+    }
+    return getEntityManager().createNamedQuery("FavoriteApplicationEntity.deleteFavoritesByIds")
+                             .setParameter("ids", favoriteIds)
+                             .executeUpdate();
   }
 }
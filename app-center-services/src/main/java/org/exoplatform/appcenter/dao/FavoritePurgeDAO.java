@@ -0,0 +1,33 @@
+/*
+ * This file is part of the Meeds project (https://meeds.io/).
+ * Copyright (C) 2020 Meeds Association
+ * contact@meeds.io
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.exoplatform.appcenter.dao;
+
+import java.util.List;
+
+import org.exoplatform.appcenter.entity.FavoritePurgeEntity;
+import org.exoplatform.commons.persistence.impl.GenericDAOJPAImpl;
+
+public class FavoritePurgeDAO extends GenericDAOJPAImpl<FavoritePurgeEntity, Long> {
+
+  /**
+   * @return ids of pending favorites purges, sorted by creation order
+   */
+  public List<Long> getPurgeIds() {
+    return getEntityManager().createNamedQuery("FavoritePurgeEntity.getPurgeIds", Long.class).getResultList();
+  }
+
+}
@@ -0,0 +1,86 @@
+/*
+ * This file is part of the Meeds project (https://meeds.io/).
+ * Copyright (C) 2020 Meeds Association
+ * contact@meeds.io
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.exoplatform.appcenter.dto;
+
+import java.io.Serializable;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+import org.apache.commons.lang.StringUtils;
+
+/**
+ * Position in the applications list sorted by lowercase title then id. It is
+ * exchanged with clients as an opaque token to retrieve the next page of
+ * applications without rescanning the previous ones.
+ */
+public class ApplicationCursor implements Serializable {
+
+  private static final long serialVersionUID = -6270826372549302115L;
+
+  private static final char SEPARATOR        = ':';
+
+  /** Lowercase title of the last returned application */
+  private final String      title;
+
+  /** Id of the last returned application */
+  private final long        id;
+
+  public ApplicationCursor(String title, long id) {
+    this.title = StringUtils.lowerCase(title);
+    this.id = id;
+  }
+
+  public String getTitle() {
+    return title;
+  }
+
+  public long getId() {
+    return id;
+  }
+
+  /**
+   * @return an URL safe token representing this cursor
+   */
+  public String encode() {
+    String value = String.valueOf(id) + SEPARATOR + StringUtils.defaultString(title);
+    return Base64.getUrlEncoder().withoutPadding().encodeToString(value.getBytes(StandardCharsets.UTF_8));
+  }
+
+  /**
+   * @param token a token generated using {@link #encode()}
+   * @return decoded {@link ApplicationCursor}
+   * @throws IllegalArgumentException if the token is malformed
+   */
+  public static ApplicationCursor decode(String token) {
+    String value;
+    try {
+      value = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+    } catch (IllegalArgumentException e) {
+      throw new IllegalArgumentException("Malformed applications cursor: " + token, e);
+    }
+    int separatorIndex = value.indexOf(SEPARATOR);
+    if (separatorIndex <= 0) {
+      throw new IllegalArgumentException("Malformed applications cursor: " + token);
+    }
+    try {
+      return new ApplicationCursor(value.substring(separatorIndex + 1), Long.parseLong(value.substring(0, separatorIndex)));
+    } catch (NumberFormatException e) {
+      throw new IllegalArgumentException("Malformed applications cursor: " + token, e);
+    }
+  }
+
+}
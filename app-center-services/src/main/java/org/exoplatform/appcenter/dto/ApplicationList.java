@@ -31,6 +31,10 @@ public class ApplicationList implements Serializable {
 
   private long              size;
 
+  private long              totalSize;
+
+  private String            nextCursor;
+
   private boolean           canAddFavorite;
 
   public List<Application> getApplications() {
@@ -73,4 +77,28 @@ public class ApplicationList implements Serializable {
     this.size = size;
   }
 
+  /**
+   * @return total number of applications matching the query, regardless of
+   *         offset and limit
+   */
+  public long getTotalSize() {
+    return totalSize;
+  }
+
+  public void setTotalSize(long totalSize) {
+    this.totalSize = totalSize;
+  }
+
+  /**
+   * @return opaque token to use to retrieve the next page of applications,
+   *         null when the last page is reached
+   */
+  public String getNextCursor() {
+    return nextCursor;
+  }
+
+  public void setNextCursor(String nextCursor) {
+    this.nextCursor = nextCursor;
+  }
+
 }
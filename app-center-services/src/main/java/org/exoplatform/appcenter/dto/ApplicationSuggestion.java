@@ -0,0 +1,67 @@
+/*
+ * This file is part of the Meeds project (https://meeds.io/).
+ * Copyright (C) 2020 Meeds Association
+ * contact@meeds.io
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.exoplatform.appcenter.dto;
+
+import java.io.Serializable;
+
+/**
+ * Minimal application data returned by the typeahead suggestions
+ */
+public class ApplicationSuggestion implements Serializable {
+
+  private static final long serialVersionUID = 6094312756129832251L;
+
+  private long              id;
+
+  private String            title;
+
+  private Long              imageLastModified;
+
+  public ApplicationSuggestion() {
+  }
+
+  public ApplicationSuggestion(long id, String title, Long imageLastModified) {
+    this.id = id;
+    this.title = title;
+    this.imageLastModified = imageLastModified;
+  }
+
+  public long getId() {
+    return id;
+  }
+
+  public void setId(long id) {
+    this.id = id;
+  }
+
+  public String getTitle() {
+    return title;
+  }
+
+  public void setTitle(String title) {
+    this.title = title;
+  }
+
+  public Long getImageLastModified() {
+    return imageLastModified;
+  }
+
+  public void setImageLastModified(Long imageLastModified) {
+    this.imageLastModified = imageLastModified;
+  }
+
+}
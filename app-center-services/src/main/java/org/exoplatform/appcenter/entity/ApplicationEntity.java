@@ -17,6 +17,7 @@
 package org.exoplatform.appcenter.entity;
 
 import java.util.Collection;
+import java.util.Date;
 
 import javax.persistence.*;
 
@@ -36,11 +37,15 @@ import org.exoplatform.commons.api.persistence.ExoEntity;
     @NamedQuery(name = "ApplicationEntity.getApplications", query = "SELECT app FROM ApplicationEntity app ORDER BY LOWER(app.title)"),
     @NamedQuery(name = "ApplicationEntity.getSystemApplications", query = "SELECT app FROM ApplicationEntity app WHERE app.system = TRUE"),
     @NamedQuery(name = "ApplicationEntity.getMandatoryActiveApps", query = "SELECT app FROM ApplicationEntity app "
-        + " WHERE app.active = TRUE AND app.isMandatory = TRUE"), })
+        + " WHERE app.active = TRUE AND app.isMandatory = TRUE"),
+    @NamedQuery(name = "ApplicationEntity.getApplicationsAfterId", query = "SELECT app FROM ApplicationEntity app "
+        + " WHERE app.id > :id ORDER BY app.id"),
+    @NamedQuery(name = "ApplicationEntity.getSystemApplicationsFingerprints", query = "SELECT app.id, app.systemFingerprint"
+        + " FROM ApplicationEntity app WHERE app.system = TRUE"), })
 public class ApplicationEntity {
 
   @Id
-  @SequenceGenerator(name = "SEQ_APPLICATION_ID", sequenceName = "SEQ_APPLICATION_ID", allocationSize = 1)
+  @SequenceGenerator(name = "SEQ_APPLICATION_ID", sequenceName = "SEQ_APPLICATION_ID", allocationSize = 50)
   @GeneratedValue(strategy = GenerationType.AUTO, generator = "SEQ_APPLICATION_ID")
   @Column(name = "ID")
   private Long                                  id;
@@ -57,6 +62,23 @@ public class ApplicationEntity {
   @Column(name = "IMAGE_FILE_ID")
   private Long                                  imageFileId;
 
+  @Column(name = "IMAGE_NAME")
+  private String                                imageFileName;
+
+  @Column(name = "IMAGE_CONTENT_TYPE")
+  private String                                imageContentType;
+
+  @Column(name = "IMAGE_SIZE")
+  private Long                                  imageSize;
+
+  @Temporal(TemporalType.TIMESTAMP)
+  @Column(name = "IMAGE_UPDATED_DATE")
+  private Date                                  imageUpdatedDate;
+
+  /** SHA-256 of the image content, to detect unchanged images */
+  @Column(name = "IMAGE_HASH")
+  private String                                imageHash;
+
   @Column(name = "DESCRIPTION")
   private String                                description;
 
@@ -78,7 +100,12 @@ public class ApplicationEntity {
   @Column(name = "IS_CHANGED_MANUALLY")
   private Boolean                               isChangedManually;
 
-  @OneToMany(fetch = FetchType.LAZY, mappedBy = "application", cascade = CascadeType.REMOVE)
+  /** Hash of the configuration which injected the system application */
+  @Column(name = "SYSTEM_FINGERPRINT")
+  private String                                systemFingerprint;
+
+  // Favorites are purged asynchronously by chunks, see FavoritePurgeEntity
+  @OneToMany(fetch = FetchType.LAZY, mappedBy = "application")
   private Collection<FavoriteApplicationEntity> favorites;
 
   public ApplicationEntity() {
@@ -174,6 +201,92 @@ public class ApplicationEntity {
     this.imageFileId = imageFileId;
   }
 
+  /**
+   * @return the imageFileName
+   */
+  public String getImageFileName() {
+    return imageFileName;
+  }
+
+  /**
+   * @param imageFileName the imageFileName to set
+   */
+  public void setImageFileName(String imageFileName) {
+    this.imageFileName = imageFileName;
+  }
+
+  /**
+   * @return the imageContentType
+   */
+  public String getImageContentType() {
+    return imageContentType;
+  }
+
+  /**
+   * @param imageContentType the imageContentType to set
+   */
+  public void setImageContentType(String imageContentType) {
+    this.imageContentType = imageContentType;
+  }
+
+  /**
+   * @return the imageSize
+   */
+  public Long getImageSize() {
+    return imageSize;
+  }
+
+  /**
+   * @param imageSize the imageSize to set
+   */
+  public void setImageSize(Long imageSize) {
+    this.imageSize = imageSize;
+  }
+
+  /**
+   * @return the imageUpdatedDate
+   */
+  public Date getImageUpdatedDate() {
+    return imageUpdatedDate;
+  }
+
+  /**
+   * @param imageUpdatedDate the imageUpdatedDate to set
+   */
+  public void setImageUpdatedDate(Date imageUpdatedDate) {
+    this.imageUpdatedDate = imageUpdatedDate;
+  }
+
+  /**
+   * @return the SHA-256 hexadecimal hash of the image content
+   */
+  public String getImageHash() {
+    return imageHash;
+  }
+
+  /**
+   * @param imageHash the SHA-256 hexadecimal hash of the image content
+   */
+  public void setImageHash(String imageHash) {
+    this.imageHash = imageHash;
+  }
+
+  /**
+   * @return the hash of the configuration which injected the system
+   *         application
+   */
+  public String getSystemFingerprint() {
+    return systemFingerprint;
+  }
+
+  /**
+   * @param systemFingerprint the hash of the configuration which injected the
+   *          system application
+   */
+  public void setSystemFingerprint(String systemFingerprint) {
+    this.systemFingerprint = systemFingerprint;
+  }
+
   /**
    * @return the description
    */
@@ -0,0 +1,138 @@
+/*
+ * This file is part of the Meeds project (https://meeds.io/).
+ * Copyright (C) 2020 Meeds Association
+ * contact@meeds.io
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.exoplatform.appcenter.entity;
+
+import javax.persistence.*;
+
+import org.exoplatform.commons.api.persistence.ExoEntity;
+
+/**
+ * A downscaled variant of an application image, stored in the appCenter file
+ * namespace alongside the original image.
+ */
+@Entity(name = "ApplicationImageVariantEntity")
+@ExoEntity
+@Table(name = "AC_IMAGE_VARIANT", uniqueConstraints = @UniqueConstraint(columnNames = { "IMAGE_FILE_ID", "IMAGE_SIZE" }))
+@NamedQueries({
+    @NamedQuery(name = "ApplicationImageVariantEntity.getVariant", query = "SELECT variant FROM ApplicationImageVariantEntity variant"
+        + " WHERE variant.imageFileId = :imageFileId AND variant.size = :size"),
+    @NamedQuery(name = "ApplicationImageVariantEntity.getVariantsOfImage", query = "SELECT variant FROM ApplicationImageVariantEntity variant"
+        + " WHERE variant.imageFileId = :imageFileId"),
+})
+public class ApplicationImageVariantEntity {
+
+  @Id
+  @SequenceGenerator(name = "SEQ_AC_IMAGE_VARIANT_ID", sequenceName = "SEQ_AC_IMAGE_VARIANT_ID", allocationSize = 1)
+  @GeneratedValue(strategy = GenerationType.AUTO, generator = "SEQ_AC_IMAGE_VARIANT_ID")
+  @Column(name = "ID")
+  private Long id;
+
+  @Column(name = "IMAGE_FILE_ID", nullable = false)
+  private Long imageFileId;
+
+  @Column(name = "IMAGE_SIZE", nullable = false)
+  private int  size;
+
+  @Column(name = "IMAGE_LAST_UPDATED", nullable = false)
+  private long imageLastUpdated;
+
+  @Column(name = "VARIANT_FILE_ID")
+  private Long variantFileId;
+
+  public ApplicationImageVariantEntity() {
+  }
+
+  public ApplicationImageVariantEntity(Long imageFileId, int size, long imageLastUpdated, Long variantFileId) {
+    this.imageFileId = imageFileId;
+    this.size = size;
+    this.imageLastUpdated = imageLastUpdated;
+    this.variantFileId = variantFileId;
+  }
+
+  /**
+   * @return the id
+   */
+  public Long getId() {
+    return id;
+  }
+
+  /**
+   * @param id the id to set
+   */
+  public void setId(Long id) {
+    this.id = id;
+  }
+
+  /**
+   * @return the file id of the original image
+   */
+  public Long getImageFileId() {
+    return imageFileId;
+  }
+
+  /**
+   * @param imageFileId the file id of the original image
+   */
+  public void setImageFileId(Long imageFileId) {
+    this.imageFileId = imageFileId;
+  }
+
+  /**
+   * @return the maximum width and height in pixels of the variant
+   */
+  public int getSize() {
+    return size;
+  }
+
+  /**
+   * @param size the maximum width and height in pixels of the variant
+   */
+  public void setSize(int size) {
+    this.size = size;
+  }
+
+  /**
+   * @return the last modified timestamp of the original image when the
+   *         variant was generated
+   */
+  public long getImageLastUpdated() {
+    return imageLastUpdated;
+  }
+
+  /**
+   * @param imageLastUpdated the last modified timestamp of the original image
+   *          when the variant was generated
+   */
+  public void setImageLastUpdated(long imageLastUpdated) {
+    this.imageLastUpdated = imageLastUpdated;
+  }
+
+  /**
+   * @return the file id of the variant, null when the original image is
+   *         already small enough or can't be resized
+   */
+  public Long getVariantFileId() {
+    return variantFileId;
+  }
+
+  /**
+   * @param variantFileId the file id of the variant
+   */
+  public void setVariantFileId(Long variantFileId) {
+    this.variantFileId = variantFileId;
+  }
+}
@@ -0,0 +1,150 @@
+/*
+ * This file is part of the Meeds project (https://meeds.io/).
+ * Copyright (C) 2020 Meeds Association
+ * contact@meeds.io
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.exoplatform.appcenter.entity;
+
+import javax.persistence.*;
+
+import org.exoplatform.commons.api.persistence.ExoEntity;
+
+/**
+ * A lease granting to one cluster node the exclusive right to run a
+ * synchronization. The lease is free when it has no owner or when its expiry
+ * date is reached. The lease also records the date and the fingerprint of the
+ * last successful synchronization, thus a failed synchronization isn't
+ * mistaken for a completed one.
+ */
+@Entity(name = "ApplicationSyncLeaseEntity")
+@ExoEntity
+@Table(name = "AC_SYNC_LEASE")
+@NamedQueries({
+    @NamedQuery(name = "ApplicationSyncLeaseEntity.acquireLease", query = "UPDATE ApplicationSyncLeaseEntity lease"
+        + " SET lease.owner = :owner, lease.expiryDate = :expiryDate"
+        + " WHERE lease.name = :name AND (lease.owner IS NULL OR lease.owner = :owner OR lease.expiryDate < :now)"),
+    @NamedQuery(name = "ApplicationSyncLeaseEntity.releaseLease", query = "UPDATE ApplicationSyncLeaseEntity lease"
+        + " SET lease.owner = NULL, lease.expiryDate = 0"
+        + " WHERE lease.name = :name AND lease.owner = :owner"),
+    @NamedQuery(name = "ApplicationSyncLeaseEntity.completeLease", query = "UPDATE ApplicationSyncLeaseEntity lease"
+        + " SET lease.owner = NULL, lease.expiryDate = 0, lease.completedDate = :completedDate, lease.fingerprint = :fingerprint"
+        + " WHERE lease.name = :name AND lease.owner = :owner"),
+    @NamedQuery(name = "ApplicationSyncLeaseEntity.getCompletedFingerprint", query = "SELECT lease.fingerprint FROM ApplicationSyncLeaseEntity lease"
+        + " WHERE lease.name = :name AND lease.completedDate > 0"),
+    @NamedQuery(name = "ApplicationSyncLeaseEntity.getLeaseOwner", query = "SELECT lease.owner FROM ApplicationSyncLeaseEntity lease"
+        + " WHERE lease.name = :name"),
+})
+public class ApplicationSyncLeaseEntity {
+
+  @Id
+  @Column(name = "NAME")
+  private String name;
+
+  @Column(name = "OWNER")
+  private String owner;
+
+  @Column(name = "EXPIRY_DATE", nullable = false)
+  private long   expiryDate;
+
+  @Column(name = "COMPLETED_DATE", nullable = false)
+  private long   completedDate;
+
+  @Column(name = "FINGERPRINT")
+  private String fingerprint;
+
+  public ApplicationSyncLeaseEntity() {
+  }
+
+  public ApplicationSyncLeaseEntity(String name, String owner, long expiryDate) {
+    this.name = name;
+    this.owner = owner;
+    this.expiryDate = expiryDate;
+  }
+
+  /**
+   * @return the lease name
+   */
+  public String getName() {
+    return name;
+  }
+
+  /**
+   * @param name the lease name to set
+   */
+  public void setName(String name) {
+    this.name = name;
+  }
+
+  /**
+   * @return the identifier of the node holding the lease, null if free
+   */
+  public String getOwner() {
+    return owner;
+  }
+
+  /**
+   * @param owner the identifier of the node holding the lease
+   */
+  public void setOwner(String owner) {
+    this.owner = owner;
+  }
+
+  /**
+   * @return the time in milliseconds after which the lease can be taken by
+   *         another node
+   */
+  public long getExpiryDate() {
+    return expiryDate;
+  }
+
+  /**
+   * @param expiryDate the time in milliseconds after which the lease can be
+   *          taken by another node
+   */
+  public void setExpiryDate(long expiryDate) {
+    this.expiryDate = expiryDate;
+  }
+
+  /**
+   * @return the time in milliseconds of the last successful synchronization, 0
+   *         if none completed
+   */
+  public long getCompletedDate() {
+    return completedDate;
+  }
+
+  /**
+   * @param completedDate the time in milliseconds of the last successful
+   *          synchronization
+   */
+  public void setCompletedDate(long completedDate) {
+    this.completedDate = completedDate;
+  }
+
+  /**
+   * @return the fingerprint of the configuration applied by the last
+   *         successful synchronization
+   */
+  public String getFingerprint() {
+    return fingerprint;
+  }
+
+  /**
+   * @param fingerprint the fingerprint of the configuration applied by the last
+   *          successful synchronization
+   */
+  public void setFingerprint(String fingerprint) {
+    this.fingerprint = fingerprint;
+  }
+}
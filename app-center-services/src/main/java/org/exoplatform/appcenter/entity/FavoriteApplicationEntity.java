@@ -32,9 +32,20 @@ import org.exoplatform.commons.api.persistence.ExoEntity;
     @NamedQuery(name = "FavoriteApplicationEntity.getFavoriteAppsByAppId", query = "SELECT distinct(favoriteApp) FROM FavoriteApplicationEntity favoriteApp "
         + " WHERE favoriteApp.application.id = :applicationId"),
     @NamedQuery(name = "FavoriteApplicationEntity.countFavoritesByUser", query = "SELECT count(*) FROM FavoriteApplicationEntity favoriteApp "
+        + " JOIN favoriteApp.application app"
         + " WHERE favoriteApp.userName = :userName"),
     @NamedQuery(name = "FavoriteApplicationEntity.getFavoriteAppsByUser", query = "SELECT favoriteApp FROM FavoriteApplicationEntity favoriteApp"
+        + " JOIN FETCH favoriteApp.application"
         + " WHERE favoriteApp.userName = :userName ORDER BY favoriteApp.order NULLS LAST"),
+    @NamedQuery(name = "FavoriteApplicationEntity.getFavoriteAppIdsByUser", query = "SELECT app.id FROM FavoriteApplicationEntity favoriteApp"
+        + " JOIN favoriteApp.application app"
+        + " WHERE favoriteApp.userName = :userName ORDER BY app.id"),
+    @NamedQuery(name = "FavoriteApplicationEntity.getFavoriteIdsByAppId", query = "SELECT favoriteApp.id FROM FavoriteApplicationEntity favoriteApp"
+        + " WHERE favoriteApp.application.id = :applicationId"),
+    @NamedQuery(name = "FavoriteApplicationEntity.getOrphanFavoriteIds", query = "SELECT favoriteApp.id FROM FavoriteApplicationEntity favoriteApp"
+        + " WHERE NOT EXISTS (SELECT app.id FROM ApplicationEntity app WHERE app.id = favoriteApp.application.id)"),
+    @NamedQuery(name = "FavoriteApplicationEntity.deleteFavoritesByIds", query = "DELETE FROM FavoriteApplicationEntity favoriteApp"
+        + " WHERE favoriteApp.id IN (:ids)"),
 
 })
 public class FavoriteApplicationEntity {
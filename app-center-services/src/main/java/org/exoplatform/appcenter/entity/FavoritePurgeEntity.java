@@ -0,0 +1,143 @@
+/*
+ * This file is part of the Meeds project (https://meeds.io/).
+ * Copyright (C) 2020 Meeds Association
+ * contact@meeds.io
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.exoplatform.appcenter.entity;
+
+import java.util.Date;
+
+import javax.persistence.*;
+
+import org.exoplatform.commons.api.persistence.ExoEntity;
+
+/**
+ * A pending purge of the favorites of an application, persisted to be resumed
+ * after a server restart.
+ */
+@Entity(name = "FavoritePurgeEntity")
+@ExoEntity
+@Table(name = "AC_FAVORITE_PURGE")
+@NamedQueries({
+    @NamedQuery(name = "FavoritePurgeEntity.getPurgeIds", query = "SELECT favoritePurge.id FROM FavoritePurgeEntity favoritePurge"
+        + " ORDER BY favoritePurge.id"),
+})
+public class FavoritePurgeEntity {
+
+  public enum Reason {
+    /** The application was deleted */
+    DELETED,
+    /** The application became mandatory */
+    MANDATORY
+  }
+
+  @Id
+  @SequenceGenerator(name = "SEQ_AC_FAVORITE_PURGE_ID", sequenceName = "SEQ_AC_FAVORITE_PURGE_ID", allocationSize = 1)
+  @GeneratedValue(strategy = GenerationType.AUTO, generator = "SEQ_AC_FAVORITE_PURGE_ID")
+  @Column(name = "ID")
+  private Long   id;
+
+  @Column(name = "APPLICATION_ID", nullable = false)
+  private Long   applicationId;
+
+  @Enumerated(EnumType.STRING)
+  @Column(name = "REASON", nullable = false)
+  private Reason reason;
+
+  @Column(name = "PURGED_COUNT", nullable = false)
+  private long   purgedCount;
+
+  @Column(name = "CREATED_DATE")
+  @Temporal(TemporalType.TIMESTAMP)
+  private Date   createdDate;
+
+  public FavoritePurgeEntity() {
+  }
+
+  public FavoritePurgeEntity(Long applicationId, Reason reason) {
+    this.applicationId = applicationId;
+    this.reason = reason;
+    this.createdDate = new Date();
+  }
+
+  /**
+   * @return the id
+   */
+  public Long getId() {
+    return id;
+  }
+
+  /**
+   * @param id the id to set
+   */
+  public void setId(Long id) {
+    this.id = id;
+  }
+
+  /**
+   * @return the id of the application which favorites are purged
+   */
+  public Long getApplicationId() {
+    return applicationId;
+  }
+
+  /**
+   * @param applicationId the id of the application which favorites are purged
+   */
+  public void setApplicationId(Long applicationId) {
+    this.applicationId = applicationId;
+  }
+
+  /**
+   * @return the reason of the purge
+   */
+  public Reason getReason() {
+    return reason;
+  }
+
+  /**
+   * @param reason the reason of the purge
+   */
+  public void setReason(Reason reason) {
+    this.reason = reason;
+  }
+
+  /**
+   * @return the count of favorites already purged
+   */
+  public long getPurgedCount() {
+    return purgedCount;
+  }
+
+  /**
+   * @param purgedCount the count of favorites already purged
+   */
+  public void setPurgedCount(long purgedCount) {
+    this.purgedCount = purgedCount;
+  }
+
+  /**
+   * @return the date of the purge request
+   */
+  public Date getCreatedDate() {
+    return createdDate;
+  }
+
+  /**
+   * @param createdDate the date of the purge request
+   */
+  public void setCreatedDate(Date createdDate) {
+    this.createdDate = createdDate;
+  }
+}
@@ -16,18 +16,25 @@
  */
 package org.exoplatform.appcenter.rest;
 
+import java.io.IOException;
 import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
 import java.util.*;
 
+import javax.annotation.security.PermitAll;
 import javax.annotation.security.RolesAllowed;
 import javax.ws.rs.*;
 import javax.ws.rs.core.*;
 import javax.ws.rs.core.Response.Status;
 
+import org.apache.commons.lang.StringUtils;
+
 import org.exoplatform.appcenter.dto.*;
 import org.exoplatform.appcenter.dto.Application;
 import org.exoplatform.appcenter.service.*;
+import org.exoplatform.appcenter.storage.ApplicationCenterStorage;
 import org.exoplatform.common.http.HTTPStatus;
+import org.exoplatform.commons.file.model.FileInfo;
 import org.exoplatform.container.PortalContainer;
 import org.exoplatform.services.log.ExoLogger;
 import org.exoplatform.services.log.Log;
@@ -45,18 +52,36 @@ public class ApplicationCenterREST implements ResourceContainer {
 
   private static final String       APPLICATIONS_ENDPOINT               = "applications";
 
+  private static final String       IMPORT_APPLICATIONS_ENDPOINT        = "applications/import";
+
+  private static final String       EXPORT_APPLICATIONS_ENDPOINT        = "applications/export";
+
+  private static final String       NDJSON_MEDIA_TYPE                   = "application/x-ndjson";
+
   private static final String       SETTINGS_ENDPOINT                   = "settings";
 
   private static final String       FAVORITES_APPLICATIONS_ENDPOINT     = "applications/favorites";
 
   private static final String       AUTHORIZED_APPLICATIONS_ENDPOINT    = "applications/authorized";
 
+  private static final String       SUGGEST_APPLICATIONS_ENDPOINT       = "applications/suggest";
+
   private static final String       LOG_OPEN_DRAWER_ENDPOINT            = "applications/logOpenDrawer";
 
   private static final String       LOG_CLICK_ALL_APPLICATIONS_ENDPOINT = "applications/logClickAllApplications";
 
   private static final String       LOG_CLICK_ONE_APPLICATION_ENDPOINT  = "applications/logClickApplication";
 
+  private static final String       STATUS_ENDPOINT                     = "status";
+
+  private static final String       RANGE_HEADER                        = "Range";
+
+  private static final String       IF_RANGE_HEADER                     = "If-Range";
+
+  private static final String       CONTENT_RANGE_HEADER                = "Content-Range";
+
+  private static final String       ACCEPT_RANGES_HEADER                = "Accept-Ranges";
+
   private static final String       ADMINISTRATORS_GROUP                = "/platform/administrators";
 
   private static final int          CACHE_DURATION_SECONDS              = 31536000;
@@ -134,23 +159,52 @@ public class ApplicationCenterREST implements ResourceContainer {
   @RolesAllowed("users")
   @ApiOperation(value = "Retrieves all authorized applications for currently authenticated user", httpMethod = "GET", response = Response.class, produces = "application/json", notes = "Return list of applications in json format")
   @ApiResponses(value = { @ApiResponse(code = HTTPStatus.OK, message = "Request fulfilled"),
+      @ApiResponse(code = HTTPStatus.BAD_REQUEST, message = "Invalid query input"),
       @ApiResponse(code = 500, message = "Internal server error") })
   public Response getAuthorizedApplicationsList(@ApiParam(value = "Query Offset", required = true) @QueryParam("offset") int offset,
                                                 @ApiParam(value = "Query results limit", required = true) @QueryParam("limit") int limit,
-                                                @ApiParam(value = "Keyword to search in applications title and url", required = true) @QueryParam("keyword") String keyword) {
+                                                @ApiParam(value = "Keyword to search in applications title and url", required = true) @QueryParam("keyword") String keyword,
+                                                @ApiParam(value = "Cursor returned by previous page as 'nextCursor'. When set, even empty, offset is ignored and applications are retrieved after the cursor position", required = false) @QueryParam("cursor") String cursor) {
 
     try {
-      ApplicationList applicationList = appCenterService.getAuthorizedApplicationsList(offset,
-                                                                                       limit,
-                                                                                       keyword,
-                                                                                       getCurrentUserName());
+      ApplicationList applicationList;
+      if (cursor == null) {
+        applicationList = appCenterService.getAuthorizedApplicationsList(offset, limit, keyword, getCurrentUserName());
+      } else {
+        applicationList = appCenterService.getAuthorizedApplicationsList(cursor, limit, keyword, getCurrentUserName());
+      }
       return Response.ok(applicationList).build();
+    } catch (IllegalArgumentException e) {
+      LOG.warn("Bad request to retrieve authorized applications: {}", e.getMessage());
+      return Response.status(HTTPStatus.BAD_REQUEST).build();
     } catch (Exception e) {
       LOG.error("Unknown error occurred while updating application", e);
       return Response.serverError().build();
     }
   }
 
+  @GET
+  @Path(SUGGEST_APPLICATIONS_ENDPOINT)
+  @Produces(MediaType.APPLICATION_JSON)
+  @RolesAllowed("users")
+  @ApiOperation(value = "Retrieves authorized active applications which title starts with a prefix for currently authenticated user", httpMethod = "GET", response = Response.class, produces = "application/json", notes = "Return list of applications id, title and image version in json format")
+  @ApiResponses(value = { @ApiResponse(code = HTTPStatus.OK, message = "Request fulfilled"),
+      @ApiResponse(code = HTTPStatus.BAD_REQUEST, message = "Invalid query input"),
+      @ApiResponse(code = 500, message = "Internal server error") })
+  public Response getApplicationSuggestions(@ApiParam(value = "Prefix of applications title", required = true) @QueryParam("prefix") String prefix,
+                                            @ApiParam(value = "Query results limit", required = false) @QueryParam("limit") int limit) {
+    try {
+      List<ApplicationSuggestion> suggestions = appCenterService.getApplicationSuggestions(prefix, limit, getCurrentUserName());
+      return Response.ok(suggestions).build();
+    } catch (IllegalArgumentException e) {
+      LOG.warn("Bad request to retrieve applications suggestions: {}", e.getMessage());
+      return Response.status(HTTPStatus.BAD_REQUEST).build();
+    } catch (Exception e) {
+      LOG.error("Unknown error occurred while retrieving applications suggestions", e);
+      return Response.serverError().build();
+    }
+  }
+
   @GET
   @Path(FAVORITES_APPLICATIONS_ENDPOINT)
   @Produces(MediaType.APPLICATION_JSON)
@@ -254,17 +308,46 @@ public class ApplicationCenterREST implements ResourceContainer {
     }
   }
 
+  @GET
+  @Path(STATUS_ENDPOINT)
+  @Produces(MediaType.APPLICATION_JSON)
+  @PermitAll
+  @ApiOperation(value = "Retrieves the state of the system applications injection on this node, to be used as readiness check. "
+      + "The node isn't ready while the injection is pending, including between retries. Once no retry remains after a "
+      + "failure or a timeout, the node is reported as ready to serve the applications already stored and the failure "
+      + "is reported in the 'systemApplicationsSyncState' field, to be monitored", httpMethod = "GET", response = Response.class, produces = "application/json")
+  @ApiResponses(value = { @ApiResponse(code = HTTPStatus.OK, message = "System applications are synchronized, or their synchronization failed definitively"),
+      @ApiResponse(code = HTTPStatus.SERVICE_UNAVAILABLE, message = "System applications synchronization is pending"),
+      @ApiResponse(code = 500, message = "Internal server error") })
+  public Response getStatus() {
+    try {
+      ApplicationCenterService.SystemApplicationsSyncState syncState = appCenterService.getSystemApplicationsSyncState();
+      Map<String, Object> status = new HashMap<>();
+      status.put("systemApplicationsSynchronized", syncState == ApplicationCenterService.SystemApplicationsSyncState.SYNCHRONIZED);
+      status.put("systemApplicationsSyncState", syncState.name());
+      return Response.status(syncState == ApplicationCenterService.SystemApplicationsSyncState.PENDING ? HTTPStatus.SERVICE_UNAVAILABLE
+                                                                                                       : HTTPStatus.OK)
+                     .entity(status)
+                     .build();
+    } catch (Exception e) {
+      LOG.error("Unknown error occurred while retrieving application center status", e);
+      return Response.serverError().build();
+    }
+  }
+
   @POST
   @Path(APPLICATIONS_ENDPOINT)
   @Consumes(MediaType.APPLICATION_JSON)
   @RolesAllowed("administrators")
-  @ApiOperation(value = "Creates a new application in application center", httpMethod = "GET", response = Response.class, notes = "empty response")
-  @ApiResponses(value = { @ApiResponse(code = HTTPStatus.NO_CONTENT, message = "Request fulfilled"),
+  @Produces(MediaType.APPLICATION_JSON)
+  @ApiOperation(value = "Creates a new application in application center", httpMethod = "GET", response = Response.class, notes = "returns created application")
+  @ApiResponses(value = { @ApiResponse(code = HTTPStatus.OK, message = "Request fulfilled"),
       @ApiResponse(code = HTTPStatus.UNAUTHORIZED, message = "Unauthorized operation"),
       @ApiResponse(code = 500, message = "Internal server error") })
   public Response createApplication(@ApiParam(value = "Application to save", required = true) Application application) {
     try {
-      appCenterService.createApplication(application);
+      Application createdApplication = appCenterService.createApplication(application);
+      return Response.ok(createdApplication).build();
     } catch (ApplicationAlreadyExistsException e) {
       LOG.warn(e);
       return Response.serverError().build();
@@ -272,7 +355,46 @@ public class ApplicationCenterREST implements ResourceContainer {
       LOG.error("Unknown error occurred while creating application", e);
       return Response.serverError().build();
     }
-    return Response.noContent().build();
+  }
+
+  @POST
+  @Path(IMPORT_APPLICATIONS_ENDPOINT)
+  @Consumes(NDJSON_MEDIA_TYPE)
+  @Produces(MediaType.APPLICATION_JSON)
+  @RolesAllowed("administrators")
+  @ApiOperation(value = "Imports applications, sent in JSON format with one application per line, in application center", httpMethod = "POST", response = Response.class, produces = "application/json", notes = "Return import report in json format")
+  @ApiResponses(value = { @ApiResponse(code = HTTPStatus.OK, message = "Request fulfilled"),
+      @ApiResponse(code = HTTPStatus.UNAUTHORIZED, message = "Unauthorized operation"),
+      @ApiResponse(code = 500, message = "Internal server error") })
+  public Response importApplications(@ApiParam(value = "Applications to import", required = true) InputStream inputStream) {
+    try {
+      ApplicationImportReport importReport = appCenterService.importApplications(inputStream);
+      return Response.ok(importReport).build();
+    } catch (Exception e) {
+      LOG.error("Unknown error occurred while importing applications", e);
+      return Response.serverError().build();
+    }
+  }
+
+  @GET
+  @Path(EXPORT_APPLICATIONS_ENDPOINT)
+  @Produces(NDJSON_MEDIA_TYPE)
+  @RolesAllowed("administrators")
+  @ApiOperation(value = "Exports all applications in JSON format with one application per line", httpMethod = "GET", response = Response.class, produces = NDJSON_MEDIA_TYPE)
+  @ApiResponses(value = { @ApiResponse(code = HTTPStatus.OK, message = "Request fulfilled"),
+      @ApiResponse(code = HTTPStatus.UNAUTHORIZED, message = "Unauthorized operation"),
+      @ApiResponse(code = 500, message = "Internal server error") })
+  public Response exportApplications(@ApiParam(value = "Whether to include applications images content", required = false) @QueryParam("images") boolean withImages) {
+    StreamingOutput streamingOutput = outputStream -> {
+      try {
+        appCenterService.exportApplications(outputStream, withImages);
+      } catch (IOException e) {
+        throw e;
+      } catch (Exception e) {
+        throw new WebApplicationException(e);
+      }
+    };
+    return Response.ok(streamingOutput, NDJSON_MEDIA_TYPE).build();
   }
 
   @PUT
@@ -365,9 +487,7 @@ public class ApplicationCenterREST implements ResourceContainer {
   public Response updateApplicationsOrder(@ApiParam(value = "Application to update", required = true) List<ApplicationOrder> applicationOrders) {
     try {
       long startTime = System.currentTimeMillis();
-      for (ApplicationOrder applicationOrder : applicationOrders) {
-        appCenterService.updateFavoriteApplicationOrder(applicationOrder, getCurrentUserName());
-      }
+      appCenterService.updateFavoriteApplicationsOrder(applicationOrders, getCurrentUserName());
       long endTime = System.currentTimeMillis();
       long totalTime = endTime - startTime;
       LOG.info("service={} operation={} parameters=\"user:{}\" status=ok " + "duration_ms={}",
@@ -445,35 +565,128 @@ public class ApplicationCenterREST implements ResourceContainer {
     }
   }
 
+  @PUT
+  @Path(SETTINGS_ENDPOINT + "/image/content")
+  @Consumes({ "image/*", MediaType.APPLICATION_OCTET_STREAM })
+  @RolesAllowed("administrators")
+  @ApiOperation(value = "Uploads default application image as raw binary content", httpMethod = "PUT", response = Response.class, notes = "empty response")
+  @ApiResponses(value = { @ApiResponse(code = HTTPStatus.NO_CONTENT, message = "Request fulfilled"),
+      @ApiResponse(code = HTTPStatus.BAD_REQUEST, message = "Invalid query input"),
+      @ApiResponse(code = HTTPStatus.REQUEST_TOO_LONG, message = "Image exceeds the maximum allowed size"),
+      @ApiResponse(code = 500, message = "Internal server error") })
+  public Response uploadDefaultAppImage(@ApiParam(value = "Image file name", required = true) @QueryParam("fileName") String fileName,
+                                        @ApiParam(value = "Image content", required = true) InputStream imageStream) {
+    try {
+      appCenterService.setDefaultAppImage(fileName, imageStream);
+      return Response.noContent().build();
+    } catch (ApplicationImageTooLargeException e) {
+      LOG.warn(e.getMessage());
+      return Response.status(HTTPStatus.REQUEST_TOO_LONG).build();
+    } catch (IllegalArgumentException e) {
+      LOG.warn(e.getMessage());
+      return Response.status(HTTPStatus.BAD_REQUEST).build();
+    } catch (Exception e) {
+      LOG.error("Unknown error occurred while uploading default application image", e);
+      return Response.serverError().build();
+    }
+  }
+
+  @PUT
+  @Path(APPLICATIONS_ENDPOINT + "/illustration/{applicationId}")
+  @Consumes({ "image/*", MediaType.APPLICATION_OCTET_STREAM })
+  @RolesAllowed("administrators")
+  @ApiOperation(value = "Uploads application illustration as raw binary content", httpMethod = "PUT", response = Response.class, notes = "empty response")
+  @ApiResponses(value = { @ApiResponse(code = HTTPStatus.NO_CONTENT, message = "Request fulfilled"),
+      @ApiResponse(code = HTTPStatus.BAD_REQUEST, message = "Invalid query input"),
+      @ApiResponse(code = HTTPStatus.UNAUTHORIZED, message = "Unauthorized operation"),
+      @ApiResponse(code = HTTPStatus.NOT_FOUND, message = "Application not found"),
+      @ApiResponse(code = HTTPStatus.REQUEST_TOO_LONG, message = "Image exceeds the maximum allowed size"),
+      @ApiResponse(code = 500, message = "Internal server error") })
+  public Response uploadApplicationIllustration(@ApiParam(value = "Application technical id", required = true) @PathParam("applicationId") Long applicationId,
+                                                @ApiParam(value = "Image file name", required = true) @QueryParam("fileName") String fileName,
+                                                @ApiParam(value = "Image content", required = true) InputStream imageStream) {
+    if (applicationId == null || applicationId <= 0) {
+      return Response.status(HTTPStatus.BAD_REQUEST).build();
+    }
+    try {
+      appCenterService.updateApplicationImage(applicationId, fileName, imageStream, getCurrentUserName());
+      return Response.noContent().build();
+    } catch (ApplicationImageTooLargeException e) {
+      LOG.warn(e.getMessage());
+      return Response.status(HTTPStatus.REQUEST_TOO_LONG).build();
+    } catch (IllegalArgumentException e) {
+      LOG.warn(e.getMessage());
+      return Response.status(HTTPStatus.BAD_REQUEST).build();
+    } catch (IllegalAccessException e) {
+      LOG.warn(e);
+      return Response.status(HTTPStatus.UNAUTHORIZED).build();
+    } catch (ApplicationNotFoundException e) {
+      LOG.warn(e);
+      return Response.status(HTTPStatus.NOT_FOUND).build();
+    } catch (Exception e) {
+      LOG.error("Unknown error occurred while uploading application illustration", e);
+      return Response.serverError().build();
+    }
+  }
+
   @GET
   @Path(APPLICATIONS_ENDPOINT + "/illustration/{applicationId}")
   @RolesAllowed("users")
   @ApiOperation(value = "Gets an application illustration by application id", httpMethod = "GET", response = Response.class, notes = "This can only be done by the logged in user.")
   @ApiResponses(value = { @ApiResponse(code = 200, message = "Request fulfilled"),
       @ApiResponse(code = 500, message = "Internal server error"), @ApiResponse(code = 400, message = "Invalid query input"),
-      @ApiResponse(code = 404, message = "Resource not found") })
+      @ApiResponse(code = 404, message = "Resource not found"),
+      @ApiResponse(code = HTTPStatus.PARTIAL_CONTENT, message = "Requested range of illustration"),
+      @ApiResponse(code = HTTPStatus.REQUESTED_RANGE_NOT_SATISFIABLE, message = "Requested range not satisfiable") })
   public Response getApplicationIllustration(@Context Request request,
                                              @ApiParam(value = "Application id", required = true) @PathParam("applicationId") long applicationId,
-                                             @ApiParam(value = "Optional last modified parameter", required = false) @QueryParam("v") long lastModified) {
+                                             @ApiParam(value = "Optional last modified parameter", required = false) @QueryParam("v") long lastModified,
+                                             @ApiParam(value = "Optional maximum width and height in pixels", required = false) @QueryParam("size") int size,
+                                             @ApiParam(value = "Optional single byte range", required = false) @HeaderParam(RANGE_HEADER) String range,
+                                             @ApiParam(value = "Optional range condition", required = false) @HeaderParam(IF_RANGE_HEADER) String ifRange) {
     try {
-      Long lastUpdated = appCenterService.getApplicationImageLastUpdated(applicationId, getCurrentUserName());
-      if (lastUpdated == null) {
+      // Only the metadata is read to evaluate preconditions
+      FileInfo imageFileInfo = appCenterService.getApplicationImageFileInfo(applicationId, getCurrentUserName(), size);
+      if (imageFileInfo == null || imageFileInfo.getUpdatedDate() == null) {
         return Response.status(404).build();
       }
-      EntityTag eTag = new EntityTag(String.valueOf(lastUpdated), true);
+      long lastUpdated = imageFileInfo.getUpdatedDate().getTime();
+      // A strong tag since the content of a stored file version never changes,
+      // thus it can be used to validate ranges
+      EntityTag eTag = new EntityTag(String.valueOf(lastUpdated));
       Response.ResponseBuilder builder = request.evaluatePreconditions(eTag);
       if (builder == null) {
-        InputStream stream = appCenterService.getApplicationImageInputStream(applicationId, getCurrentUserName());
+        long fileSize = imageFileInfo.getSize();
+        // The range applies only if the illustration didn't change
+        long[] byteRange = null;
+        if (isRangeConditionFulfilled(ifRange, eTag)) {
+          byteRange = IllustrationStreamingOutput.parseRange(range, fileSize);
+        }
+        if (byteRange == IllustrationStreamingOutput.UNSATISFIABLE_RANGE) {
+          return Response.status(HTTPStatus.REQUESTED_RANGE_NOT_SATISFIABLE)
+                         .header(CONTENT_RANGE_HEADER, "bytes */" + fileSize)
+                         .build();
+        }
+        InputStream stream = appCenterService.getApplicationImageInputStream(imageFileInfo);
         if (stream == null) {
           return Response.status(404).build();
         }
+        long offset = byteRange == null ? 0 : byteRange[0];
+        long length = byteRange == null ? fileSize : byteRange[1] - byteRange[0] + 1;
         /*
          * As recommended in the the RFC1341
-         * (https://www.w3.org/Protocols/rfc1341/4_Content-Type.html), we set the avatar
-         * content-type to "image/png". So, its data would be recognized as "image" by
-         * the user-agent.
+         * (https://www.w3.org/Protocols/rfc1341/4_Content-Type.html), we set the
+         * content-type of the stored image, or "image/png" when unknown. So, its
+         * data would be recognized as "image" by the user-agent.
          */
-        builder = Response.ok(stream, "image/png");
+        String contentType = StringUtils.isBlank(imageFileInfo.getMimetype()) ? "image/png" : imageFileInfo.getMimetype();
+        builder = Response.ok(new IllustrationStreamingOutput(stream, offset, length), contentType);
+        builder.header(HttpHeaders.CONTENT_LENGTH, length);
+        builder.header(ACCEPT_RANGES_HEADER, "bytes");
+        if (byteRange != null) {
+          builder.status(HTTPStatus.PARTIAL_CONTENT);
+          builder.header(CONTENT_RANGE_HEADER, "bytes " + byteRange[0] + "-" + byteRange[1] + "/" + fileSize);
+        }
         builder.tag(eTag);
         if (lastModified > 0) {
           builder.lastModified(new Date(lastUpdated));
@@ -493,6 +706,76 @@ public class ApplicationCenterREST implements ResourceContainer {
     }
   }
 
+  @GET
+  @Path(APPLICATIONS_ENDPOINT + "/illustrations")
+  @RolesAllowed("users")
+  @ApiOperation(value = "Gets several applications illustrations at once in a multipart/form-data body, one part named by application id per illustration", httpMethod = "GET", response = Response.class, notes = "Applications not found or not accessible by the logged in user are ignored.")
+  @ApiResponses(value = { @ApiResponse(code = HTTPStatus.OK, message = "Request fulfilled"),
+      @ApiResponse(code = HTTPStatus.NOT_MODIFIED, message = "Illustrations not modified"),
+      @ApiResponse(code = HTTPStatus.BAD_REQUEST, message = "Invalid query input"),
+      @ApiResponse(code = 500, message = "Internal server error") })
+  public Response getApplicationsIllustrations(@Context Request request,
+                                               @ApiParam(value = "Applications ids", required = true) @QueryParam("id") List<Long> applicationIds,
+                                               @ApiParam(value = "Optional last modified parameters of the illustrations", required = false) @QueryParam("v") List<Long> lastModified,
+                                               @ApiParam(value = "Optional maximum width and height in pixels", required = false) @QueryParam("size") int size) {
+    try {
+      Map<Long, FileInfo> illustrations = appCenterService.getApplicationsImageFileInfos(applicationIds, getCurrentUserName(), size);
+      // A single tag combining the versions of all returned illustrations
+      StringBuilder illustrationsVersions = new StringBuilder();
+      for (Map.Entry<Long, FileInfo> illustration : illustrations.entrySet()) {
+        Date updatedDate = illustration.getValue().getUpdatedDate();
+        illustrationsVersions.append(illustration.getKey())
+                             .append(':')
+                             .append(illustration.getValue().getId())
+                             .append(':')
+                             .append(updatedDate == null ? 0 : updatedDate.getTime())
+                             .append(';');
+      }
+      byte[] illustrationsVersionsBytes = illustrationsVersions.toString().getBytes(StandardCharsets.UTF_8);
+      EntityTag eTag = new EntityTag(ApplicationCenterStorage.computeHash(illustrationsVersionsBytes), true);
+      Response.ResponseBuilder builder = request.evaluatePreconditions(eTag);
+      if (builder == null) {
+        IllustrationsMultipartOutput output = new IllustrationsMultipartOutput(appCenterService, illustrations);
+        builder = Response.ok(output, output.getMediaType());
+        builder.tag(eTag);
+        if (lastModified != null && !lastModified.isEmpty()) {
+          builder.expires(new Date(System.currentTimeMillis() + CACHE_DURATION_MILLISECONDS));
+          builder.cacheControl(ILLUSTRATION_CACHE_CONTROL);
+        }
+      }
+      return builder.build();
+    } catch (IllegalArgumentException e) {
+      LOG.warn("Bad request to retrieve applications illustrations: {}", e.getMessage());
+      return Response.status(HTTPStatus.BAD_REQUEST).build();
+    } catch (Exception e) {
+      LOG.error("An error occurred while getting applications illustrations", e);
+      return Response.serverError().build();
+    }
+  }
+
+  /**
+   * Evaluates an If-Range condition as required by RFC 7233: the range applies
+   * only if the condition is an entity tag strongly equal to the current one.
+   * Weak entity tags and dates are never considered as matching.
+   *
+   * @param ifRange If-Range header value, null if absent
+   * @param eTag current entity tag of the resource
+   * @return true if the requested range can be served
+   */
+  static boolean isRangeConditionFulfilled(String ifRange, EntityTag eTag) {
+    if (ifRange == null) {
+      return true;
+    }
+    if (eTag.isWeak()) {
+      return false;
+    }
+    String condition = ifRange.trim();
+    if (condition.length() < 2 || !condition.startsWith("\"") || !condition.endsWith("\"")) {
+      return false;
+    }
+    return condition.substring(1, condition.length() - 1).equals(eTag.getValue());
+  }
+
   private String getCurrentUserName() {
     ConversationState state = ConversationState.getCurrent();
     return state == null || state.getIdentity() == null ? null : state.getIdentity().getUserId();
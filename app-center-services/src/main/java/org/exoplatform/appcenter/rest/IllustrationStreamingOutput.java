@@ -0,0 +1,129 @@
+/*
+ * This file is part of the Meeds project (https://meeds.io/).
+ * Copyright (C) 2020 Meeds Association
+ * contact@meeds.io
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.exoplatform.appcenter.rest;
+
+import java.io.*;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+
+import javax.ws.rs.core.StreamingOutput;
+
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.lang.StringUtils;
+
+/**
+ * Streams a range of an illustration binary to the response without loading
+ * it in memory. When the file storage provides a {@link FileInputStream}
+ * (filesystem binary provider), the content is transferred using
+ * {@link FileChannel#transferTo(long, long, WritableByteChannel)}.
+ */
+final class IllustrationStreamingOutput implements StreamingOutput {
+
+  /** Returned by {@link #parseRange(String, long)} when no byte is in range */
+  static final long[]       UNSATISFIABLE_RANGE = new long[0];
+
+  private static final String BYTES_UNIT        = "bytes=";
+
+  private final InputStream inputStream;
+
+  private final long        offset;
+
+  private final long        length;
+
+  IllustrationStreamingOutput(InputStream inputStream, long offset, long length) {
+    this.inputStream = inputStream;
+    this.offset = offset;
+    this.length = length;
+  }
+
+  @Override
+  public void write(OutputStream outputStream) throws IOException {
+    try (InputStream stream = inputStream) {
+      if (stream instanceof FileInputStream) {
+        FileChannel fileChannel = ((FileInputStream) stream).getChannel();
+        WritableByteChannel outputChannel = Channels.newChannel(outputStream);
+        long position = offset;
+        long remaining = length;
+        while (remaining > 0) {
+          long transferred = fileChannel.transferTo(position, remaining, outputChannel);
+          if (transferred <= 0) {
+            // End of file reached before the expected length
+            break;
+          }
+          position += transferred;
+          remaining -= transferred;
+        }
+      } else {
+        IOUtils.copyLarge(stream, outputStream, offset, length);
+      }
+    }
+  }
+
+  /**
+   * Parses a single byte range 'Range' header value as defined in RFC 7233.
+   * Multiple ranges aren't supported, in which case the whole content is
+   * returned, as allowed by the specification.
+   *
+   * @param range 'Range' header value
+   * @param size content size
+   * @return an array of two elements with the first and last (inclusive) byte
+   *         positions, null to return the whole content or
+   *         {@link #UNSATISFIABLE_RANGE} if the range doesn't overlap the
+   *         content
+   */
+  static long[] parseRange(String range, long size) {
+    if (StringUtils.isBlank(range) || !range.startsWith(BYTES_UNIT) || range.indexOf(',') >= 0) {
+      return null; // NOSONAR
+    }
+    String byteRange = range.substring(BYTES_UNIT.length()).trim();
+    int separatorIndex = byteRange.indexOf('-');
+    if (separatorIndex < 0) {
+      return null; // NOSONAR
+    }
+    String firstBytePos = byteRange.substring(0, separatorIndex).trim();
+    String lastBytePos = byteRange.substring(separatorIndex + 1).trim();
+    try {
+      long start;
+      long end;
+      if (firstBytePos.isEmpty()) {
+        // Suffix range: last N bytes
+        long suffixLength = Long.parseLong(lastBytePos);
+        if (suffixLength <= 0) {
+          return UNSATISFIABLE_RANGE;
+        }
+        start = Math.max(size - suffixLength, 0);
+        end = size - 1;
+      } else {
+        start = Long.parseLong(firstBytePos);
+        if (!lastBytePos.isEmpty() && Long.parseLong(lastBytePos) < start) {
+          // Syntactically invalid range is ignored
+          return null; // NOSONAR
+        }
+        end = lastBytePos.isEmpty() ? size - 1 : Math.min(Long.parseLong(lastBytePos), size - 1);
+      }
+      if (start >= size) {
+        return UNSATISFIABLE_RANGE;
+      }
+      return new long[] { start, end };
+    } catch (NumberFormatException e) {
+      // Syntactically invalid range is ignored
+      return null; // NOSONAR
+    }
+  }
+
+}
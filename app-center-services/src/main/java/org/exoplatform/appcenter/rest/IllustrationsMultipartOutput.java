@@ -0,0 +1,97 @@
+/*
+ * This file is part of the Meeds project (https://meeds.io/).
+ * Copyright (C) 2020 Meeds Association
+ * contact@meeds.io
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.exoplatform.appcenter.rest;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.UUID;
+
+import javax.ws.rs.core.StreamingOutput;
+
+import org.apache.commons.lang.StringUtils;
+
+import org.exoplatform.appcenter.service.ApplicationCenterService;
+import org.exoplatform.commons.file.model.FileInfo;
+import org.exoplatform.services.log.ExoLogger;
+import org.exoplatform.services.log.Log;
+
+/**
+ * Streams several illustrations in a single 'multipart/form-data' body, one
+ * part named by application id per illustration, which can be parsed by
+ * browsers using 'Response.formData()'. Each illustration is read only when
+ * its part is written.
+ */
+final class IllustrationsMultipartOutput implements StreamingOutput {
+
+  private static final Log               LOG      = ExoLogger.getLogger(IllustrationsMultipartOutput.class);
+
+  private static final String            CRLF     = "\r\n";
+
+  private final ApplicationCenterService appCenterService;
+
+  private final Map<Long, FileInfo>      illustrations;
+
+  private final String                   boundary = "appcenter-" + UUID.randomUUID().toString().replace("-", "");
+
+  IllustrationsMultipartOutput(ApplicationCenterService appCenterService, Map<Long, FileInfo> illustrations) {
+    this.appCenterService = appCenterService;
+    this.illustrations = illustrations;
+  }
+
+  /**
+   * @return the media type of the body, including its boundary
+   */
+  String getMediaType() {
+    return "multipart/form-data; boundary=" + boundary;
+  }
+
+  @Override
+  public void write(OutputStream outputStream) throws IOException {
+    for (Map.Entry<Long, FileInfo> illustration : illustrations.entrySet()) {
+      Long applicationId = illustration.getKey();
+      FileInfo imageFileInfo = illustration.getValue();
+      InputStream inputStream;
+      try {
+        inputStream = appCenterService.getApplicationImageInputStream(imageFileInfo);
+      } catch (Exception e) {
+        LOG.warn("Error reading illustration of application {}, it's ignored", applicationId, e);
+        continue;
+      }
+      if (inputStream == null) {
+        continue;
+      }
+      String contentType = StringUtils.isBlank(imageFileInfo.getMimetype()) ? "image/png" : imageFileInfo.getMimetype();
+      writeAscii(outputStream,
+                 "--" + boundary + CRLF
+                     + "Content-Disposition: form-data; name=\"" + applicationId + "\"; filename=\"" + applicationId + "\"" + CRLF
+                     + "Content-Type: " + contentType + CRLF
+                     + "Content-Length: " + imageFileInfo.getSize() + CRLF
+                     + CRLF);
+      new IllustrationStreamingOutput(inputStream, 0, imageFileInfo.getSize()).write(outputStream);
+      writeAscii(outputStream, CRLF);
+    }
+    writeAscii(outputStream, "--" + boundary + "--" + CRLF);
+  }
+
+  private static void writeAscii(OutputStream outputStream, String value) throws IOException {
+    outputStream.write(value.getBytes(StandardCharsets.US_ASCII));
+  }
+
+}
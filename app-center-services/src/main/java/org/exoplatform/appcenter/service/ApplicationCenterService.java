@@ -16,12 +16,29 @@
  */
 package org.exoplatform.appcenter.service;
 
-import java.io.IOException;
-import java.io.InputStream;
+import java.io.*;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Predicate;
 import java.util.stream.Collectors;
 
 import org.apache.commons.io.IOUtils;
@@ -32,10 +49,13 @@ import org.picocontainer.Startable;
 import org.exoplatform.appcenter.dto.*;
 import org.exoplatform.appcenter.plugin.ApplicationPlugin;
 import org.exoplatform.appcenter.storage.ApplicationCenterStorage;
+import org.exoplatform.appcenter.storage.ApplicationImageUpload;
+import org.exoplatform.appcenter.storage.ApplicationPermissionIndex;
 import org.exoplatform.commons.api.settings.SettingService;
 import org.exoplatform.commons.api.settings.SettingValue;
 import org.exoplatform.commons.api.settings.data.Context;
 import org.exoplatform.commons.api.settings.data.Scope;
+import org.exoplatform.commons.file.model.FileInfo;
 import org.exoplatform.commons.file.services.FileStorageException;
 import org.exoplatform.commons.utils.CommonsUtils;
 import org.exoplatform.container.ExoContainerContext;
@@ -45,12 +65,15 @@ import org.exoplatform.container.configuration.ConfigurationManager;
 import org.exoplatform.container.xml.ComponentPlugin;
 import org.exoplatform.container.xml.InitParams;
 import org.exoplatform.portal.config.UserACL;
+import org.exoplatform.services.cache.CacheService;
+import org.exoplatform.services.cache.ExoCache;
 import org.exoplatform.services.log.ExoLogger;
 import org.exoplatform.services.log.Log;
 import org.exoplatform.services.security.Authenticator;
 import org.exoplatform.services.security.Identity;
 import org.exoplatform.services.security.IdentityRegistry;
-import org.exoplatform.services.security.MembershipEntry;
+import org.exoplatform.ws.frameworks.json.impl.*;
+import org.exoplatform.ws.frameworks.json.value.JsonValue;
 
 /**
  * A Service to access and store applications
@@ -83,6 +106,32 @@ public class ApplicationCenterService implements Startable {
 
   private static final Scope             APP_CENTER_SCOPE                  = Scope.APPLICATION.id("APP_CENTER");
 
+  public static final String             SETTINGS_CACHE_NAME               = "appcenter.GeneralSettingsCache";
+
+  public static final String             IDENTITY_CACHE_NAME               = "appcenter.IdentityCache";
+
+  private static final Long              NO_DEFAULT_IMAGE_ID               = 0L;
+
+  private static final int               IMPORT_CHUNK_SIZE                 = 100;
+
+  private static final int               EXPORT_CHUNK_SIZE                 = 100;
+
+  private static final int               IMAGE_LOADER_THREADS              = 4;
+
+  public static final int                MAX_ILLUSTRATIONS_BATCH_SIZE      = 100;
+
+  private static final String            SYSTEM_APPLICATIONS_SYNC_LEASE    = "SYSTEM_APPLICATIONS_SYNC";
+
+  private static final long              SYNC_LEASE_POLL_INTERVAL          = 2000;
+
+  public static final long               DEFAULT_MAX_IMAGE_SIZE            = 2L * 1024 * 1024;
+
+  /**
+   * Sizes of generated illustrations variants, a requested size is rounded up
+   * to limit the count of stored variants
+   */
+  private static final int[]             ILLUSTRATION_SIZES                = { 16, 24, 32, 40, 48, 64, 80, 96, 128, 192, 256 };
+
   private PortalContainer                container;
 
   private ConfigurationManager           configurationManager;
@@ -95,14 +144,39 @@ public class ApplicationCenterService implements Startable {
 
   private ApplicationCenterStorage       appCenterStorage;
 
-  private String                         defaultAdministratorPermission    = null;
+  private FavoritePurgeService           favoritePurgeService;
+
+  private ExoCache<String, Long>         settingsCache;
 
-  private long                           maxFavoriteApps                   = -1;
+  private ExoCache<String, Identity>     identityCache;
+
+  private UserACL                        userACL;
+
+  private String                         defaultAdministratorPermission    = null;
 
   private long                           defaultMaxFavoriteApps            = 0;
 
   private Map<String, ApplicationPlugin> defaultApplications               = new LinkedHashMap<>();
 
+  private boolean                        asyncSystemApplicationsSync;
+
+  private volatile SystemApplicationsSyncState systemApplicationsSyncState = SystemApplicationsSyncState.PENDING;
+
+  private ScheduledExecutorService       systemApplicationsSyncExecutor;
+
+  private long                           syncLeaseDuration                 = 600000;
+
+  private long                           syncLeaseWaitTimeout              = 120000;
+
+  private int                            syncRetries                       = 5;
+
+  private long                           syncRetryDelay                    = 30000;
+
+  private long                           maxImageSize                      = DEFAULT_MAX_IMAGE_SIZE;
+
+  private final String                   nodeId                            = ManagementFactory.getRuntimeMXBean().getName()
+      + "-" + UUID.randomUUID();
+
   public static String                   LOG_SERVICE_NAME                  = "application-center";
 
   public static String                   LOG_OPEN_FAVORITE_DRAWER          = "open-favorite-drawer";
@@ -117,11 +191,38 @@ public class ApplicationCenterService implements Startable {
   public static final String LOG_REMOVE_FAVORITE = "remove-favorite";
   public static final String MERGE_MODE = "merge";
 
+  private enum SystemApplicationSyncStatus {
+    CREATED, UPDATED, UNCHANGED, IGNORED, FAILED
+  }
+
+  /**
+   * State of the system applications synchronization made at startup on this
+   * node
+   */
+  public enum SystemApplicationsSyncState {
+    /**
+     * The synchronization is running, waiting for another node or scheduled to
+     * be retried
+     */
+    PENDING,
+    /** The configured system applications are stored */
+    SYNCHRONIZED,
+    /**
+     * Another node was still holding the lease at the end of the last wait, no
+     * retry remains
+     */
+    TIMED_OUT,
+    /** The last synchronization made by this node failed, no retry remains */
+    FAILED
+  }
+
   public ApplicationCenterService(ConfigurationManager configurationManager,
                                   ApplicationCenterStorage appCenterStorage,
+                                  FavoritePurgeService favoritePurgeService,
                                   SettingService settingService,
                                   IdentityRegistry identityRegistry,
                                   Authenticator authenticator,
+                                  CacheService cacheService,
                                   PortalContainer container,
                                   InitParams params) {
     this.container = container;
@@ -130,6 +231,9 @@ public class ApplicationCenterService implements Startable {
     this.authenticator = authenticator;
     this.identityRegistry = identityRegistry;
     this.appCenterStorage = appCenterStorage;
+    this.favoritePurgeService = favoritePurgeService;
+    this.settingsCache = cacheService.getCacheInstance(SETTINGS_CACHE_NAME);
+    this.identityCache = cacheService.getCacheInstance(IDENTITY_CACHE_NAME);
 
     if (params != null && params.containsKey("default.administrators.expression")) {
       this.defaultAdministratorPermission = params.getValueParam("default.administrators.expression").getValue();
@@ -137,6 +241,24 @@ public class ApplicationCenterService implements Startable {
     if (params != null && params.containsKey("default.favorites")) {
       this.defaultMaxFavoriteApps = Long.parseLong(params.getValueParam("default.favorites").getValue());
     }
+    if (params != null && params.containsKey("system.applications.async")) {
+      this.asyncSystemApplicationsSync = Boolean.parseBoolean(params.getValueParam("system.applications.async").getValue());
+    }
+    if (params != null && params.containsKey("system.applications.sync.lease.duration")) {
+      this.syncLeaseDuration = Long.parseLong(params.getValueParam("system.applications.sync.lease.duration").getValue()) * 1000;
+    }
+    if (params != null && params.containsKey("system.applications.sync.wait.timeout")) {
+      this.syncLeaseWaitTimeout = Long.parseLong(params.getValueParam("system.applications.sync.wait.timeout").getValue()) * 1000;
+    }
+    if (params != null && params.containsKey("system.applications.sync.retries")) {
+      this.syncRetries = Integer.parseInt(params.getValueParam("system.applications.sync.retries").getValue());
+    }
+    if (params != null && params.containsKey("system.applications.sync.retry.delay")) {
+      this.syncRetryDelay = Long.parseLong(params.getValueParam("system.applications.sync.retry.delay").getValue()) * 1000;
+    }
+    if (params != null && params.containsKey("image.max.size")) {
+      this.maxImageSize = Long.parseLong(params.getValueParam("image.max.size").getValue());
+    }
     if (StringUtils.isBlank(this.defaultAdministratorPermission)) {
       this.defaultAdministratorPermission = DEFAULT_ADMINISTRATORS_PERMISSION;
     }
@@ -145,108 +267,46 @@ public class ApplicationCenterService implements Startable {
   /**
    * A method that will be invoked when the server starts (
    * {@link PortalContainer} starts ) to inject default application and to delete
-   * injected default applications
+   * injected default applications. When the asynchronous mode is enabled, the
+   * injection is made in background and the applications already stored are
+   * served meanwhile. A failed or timed out injection is retried in background
+   * a bounded count of times, with a delay doubled on each retry.
    */
   @Override
   public void start() {
-    ExoContainerContext.setCurrentContainer(container);
-    RequestLifeCycle.begin(this.container);
-    try {
-      List<Application> systemApplications = appCenterStorage.getSystemApplications();
-      systemApplications.forEach(application -> {
-        if (!isDefaultSystemApplication(application)) {
-          try {
-            LOG.info("Delete application '{}' that was previously injected as system application and that doesn't exist in configuration anymore",
-                     application.getTitle());
-            appCenterStorage.deleteApplication(application.getId());
-          } catch (Exception e) {
-            LOG.warn("An unknown error occurs while deleting not found system application '{}' in store",
-                     application.getTitle(),
-                     e);
-          }
-        }
-      });
-
-      this.defaultApplications.values().forEach(applicationPlugin -> {
-        Application application = applicationPlugin.getApplication();
-        String pluginName = applicationPlugin.getName();
-        if (application == null) {
-          LOG.warn("An application plugin '{}' holds an empty application", pluginName);
-          return;
-        }
-
-        String title = application.getTitle();
-        if (StringUtils.isBlank(title)) {
-          LOG.warn("Plugin '{}' has an application with empty title, it will not be injected", pluginName);
-          return;
-        }
-
-        String url = application.getUrl();
-        if (StringUtils.isBlank(url)) {
-          LOG.warn("Plugin '{}' has an application with empty url, it will not be injected", pluginName);
-          return;
-        }
-
-        Application storedApplication = appCenterStorage.getApplicationByTitle(title);
-        if (storedApplication != null && !applicationPlugin.isOverride() && storedApplication.isChangedManually() && ( MERGE_MODE.equals(applicationPlugin.getOverrideMode()) || applicationPlugin.getOverrideMode() == null) ) {
-          LOG.info("Ignore updating system application '{}', override flag is turned off", application.getTitle());
-          return;
-        }
-
-        List<String> permissions = application.getPermissions();
-        if (permissions == null || permissions.isEmpty()) {
-          // Set default permission if empty
-          application.setPermissions(DEFAULT_USERS_PERMISSION);
-        }
-
-        String imagePath = applicationPlugin.getImagePath();
-        if (StringUtils.isNotBlank(imagePath)) {
-          try {
-            InputStream inputStream = configurationManager.getInputStream(imagePath);
-            String fileBody = new String(Base64.encode(IOUtils.toByteArray(inputStream)));
-            application.setImageFileBody(fileBody);
-          } catch (Exception e) {
-            LOG.warn("Error reading image from file {}. Application will be injected without image", imagePath, e);
-          }
-        }
-
-        if (StringUtils.isBlank(application.getImageFileName())) {
-          application.setImageFileName(application.getTitle() + ".png");
-        }
-
-        if (storedApplication == null) {
-          try {
-            LOG.info("Create system application '{}'", application.getTitle());
-            application.setSystem(true);
-            application.setChangedManually(false);
-            application.setImageFileId(null);
-            this.createApplication(application);
-          } catch (Exception e) {
-            LOG.error("Error creating application {}", application, e);
-          }
-        } else {
-          try {
-            LOG.info("Update system application '{}'", application.getTitle());
-            application.setSystem(true);
-            application.setChangedManually(false);
-            application.setId(storedApplication.getId());
-            application.setImageFileId(storedApplication.getImageFileId());
-            appCenterStorage.updateApplication(application);
-          } catch (Exception e) {
-            LOG.error("Error updating application {}", application, e);
-          }
-        }
-      });
-    } catch (Exception e) {
-      LOG.warn("An unknown error occurs while retrieving system applications images", e);
-    } finally {
-      RequestLifeCycle.end();
+    systemApplicationsSyncExecutor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+      Thread thread = new Thread(runnable, "AppCenter-SystemApplicationsSync");
+      thread.setDaemon(true);
+      return thread;
+    });
+    if (asyncSystemApplicationsSync) {
+      systemApplicationsSyncExecutor.execute(() -> injectSystemApplications(0));
+    } else {
+      injectSystemApplications(0);
     }
   }
 
   @Override
   public void stop() {
-    // Nothing to do
+    if (systemApplicationsSyncExecutor != null) {
+      systemApplicationsSyncExecutor.shutdownNow();
+    }
+  }
+
+  /**
+   * @return true if the system applications injection made at startup has
+   *         completed on this node
+   */
+  public boolean isSystemApplicationsSynchronized() {
+    return systemApplicationsSyncState == SystemApplicationsSyncState.SYNCHRONIZED;
+  }
+
+  /**
+   * @return the state of the system applications synchronization made at
+   *         startup on this node
+   */
+  public SystemApplicationsSyncState getSystemApplicationsSyncState() {
+    return systemApplicationsSyncState;
   }
 
   /**
@@ -275,6 +335,98 @@ public class ApplicationCenterService implements Startable {
     return appCenterStorage.createApplication(application);
   }
 
+  /**
+   * Imports applications from a stream of applications in JSON format, one
+   * application per line. The applications are stored by chunks, each one
+   * using a single transaction. The applications having the same title as an
+   * existing application are skipped.
+   *
+   * @param inputStream NDJSON content to import
+   * @return {@link ApplicationImportReport} with imported, skipped and failed
+   *         applications count
+   * @throws IOException when an error occurs while reading the stream
+   */
+  public ApplicationImportReport importApplications(InputStream inputStream) throws IOException {
+    if (inputStream == null) {
+      throw new IllegalArgumentException("inputStream is mandatory");
+    }
+    ApplicationImportReport report = new ApplicationImportReport();
+    Set<String> importedTitles = new HashSet<>();
+    List<Application> applications = new ArrayList<>(IMPORT_CHUNK_SIZE);
+    BufferedReader reader = new BufferedReader(new InputStreamReader(inputStream, StandardCharsets.UTF_8));
+    String line;
+    while ((line = reader.readLine()) != null) {
+      if (StringUtils.isBlank(line)) {
+        continue;
+      }
+      Application application;
+      try {
+        application = parseApplication(line);
+      } catch (JsonException e) {
+        LOG.warn("Can't parse imported application line, it will be ignored", e);
+        report.setFailed(report.getFailed() + 1);
+        continue;
+      }
+      if (StringUtils.isBlank(application.getTitle()) || StringUtils.isBlank(application.getUrl())) {
+        report.setFailed(report.getFailed() + 1);
+        continue;
+      }
+      if (appCenterStorage.getApplicationByTitle(application.getTitle()) != null
+          || !importedTitles.add(application.getTitle())) {
+        report.setSkipped(report.getSkipped() + 1);
+        continue;
+      }
+      if (application.getPermissions() == null || application.getPermissions().isEmpty()) {
+        application.setPermissions(DEFAULT_USERS_PERMISSION);
+      }
+      application.setId(null);
+      application.setImageFileId(null);
+      application.setImageLastModified(null);
+      applications.add(application);
+      if (applications.size() >= IMPORT_CHUNK_SIZE) {
+        importApplicationsChunk(applications, report);
+        applications.clear();
+      }
+    }
+    if (!applications.isEmpty()) {
+      importApplicationsChunk(applications, report);
+    }
+    return report;
+  }
+
+  /**
+   * Exports all applications in JSON format, one application per line. The
+   * applications are read from database by chunks and written to the stream
+   * progressively, thus the whole catalog isn't loaded in memory.
+   *
+   * @param outputStream stream where to write applications
+   * @param withImages whether to include applications images content
+   * @throws IOException when an error occurs while writing in stream
+   * @throws FileStorageException when an error occurs while reading an image
+   * @throws JsonException when an error occurs while serializing an
+   *           application
+   */
+  public void exportApplications(OutputStream outputStream, boolean withImages) throws IOException,
+                                                                                 FileStorageException,
+                                                                                 JsonException {
+    if (outputStream == null) {
+      throw new IllegalArgumentException("outputStream is mandatory");
+    }
+    Writer writer = new BufferedWriter(new OutputStreamWriter(outputStream, StandardCharsets.UTF_8));
+    JsonGeneratorImpl jsonGenerator = new JsonGeneratorImpl();
+    long lastApplicationId = 0;
+    List<Application> applications;
+    do {
+      applications = appCenterStorage.getApplicationsAfterId(lastApplicationId, EXPORT_CHUNK_SIZE, withImages);
+      for (Application application : applications) {
+        writer.write(jsonGenerator.createJsonObject(application).toString());
+        writer.write('\n');
+        lastApplicationId = application.getId();
+      }
+      writer.flush();
+    } while (applications.size() == EXPORT_CHUNK_SIZE);
+  }
+
   /**
    * Get an application by id
    *
@@ -325,12 +477,65 @@ public class ApplicationCenterService implements Startable {
       application.setPermissions(DEFAULT_USERS_PERMISSION);
     }
 
-    return appCenterStorage.updateApplication(application);
+    Application updatedApplication = appCenterStorage.updateApplication(application);
+    if (updatedApplication.isMandatory() && !storedApplication.isMandatory()) {
+      favoritePurgeService.schedulePurge();
+    }
+    return updatedApplication;
+  }
+
+  /**
+   * Replaces the image of an application by the content read from a stream.
+   * The stream is spooled to a temporary file while being checked, thus the
+   * image isn't held in memory.
+   *
+   * @param applicationId technical id of application
+   * @param fileName image file name
+   * @param imageStream image content
+   * @param username user currently modifying application
+   * @return updated {@link Application}
+   * @throws ApplicationNotFoundException if application wasn't found
+   * @throws IllegalAccessException if user is not allowed to modify application
+   * @throws ApplicationImageTooLargeException if image exceeds the maximum
+   *           allowed size
+   * @throws Exception if an error occurs while storing the image
+   */
+  public Application updateApplicationImage(long applicationId,
+                                            String fileName,
+                                            InputStream imageStream,
+                                            String username) throws Exception { // NOSONAR
+    if (StringUtils.isBlank(fileName)) {
+      throw new IllegalArgumentException("fileName is mandatory");
+    }
+    if (imageStream == null) {
+      throw new IllegalArgumentException("image content is mandatory");
+    }
+    if (StringUtils.isBlank(username)) {
+      throw new IllegalArgumentException("username is mandatory");
+    }
+    Application storedApplication = appCenterStorage.getApplicationById(applicationId);
+    if (storedApplication == null) {
+      throw new ApplicationNotFoundException("Application with id " + applicationId + " wasn't found");
+    }
+    if (!isAdmin()) {
+      throw new IllegalAccessException("User " + username + " is not allowed to modify application : "
+          + storedApplication.getTitle());
+    }
+    try (ApplicationImageUpload imageUpload = ApplicationImageUpload.read(imageStream, maxImageSize)) {
+      return appCenterStorage.updateApplicationImage(applicationId, fileName, imageUpload);
+    }
   }
 
   private boolean isAdmin() {
-    UserACL userACL = CommonsUtils.getService(UserACL.class);
-    return userACL.isSuperUser() || userACL.isUserInGroup(userACL.getAdminGroups());
+    UserACL acl = getUserACL();
+    return acl.isSuperUser() || acl.isUserInGroup(acl.getAdminGroups());
+  }
+
+  private UserACL getUserACL() {
+    if (userACL == null) {
+      userACL = CommonsUtils.getService(UserACL.class);
+    }
+    return userACL;
   }
 
   /**
@@ -367,6 +572,7 @@ public class ApplicationCenterService implements Startable {
     }
 
     appCenterStorage.deleteApplication(applicationId);
+    favoritePurgeService.schedulePurge();
   }
 
   /**
@@ -391,7 +597,7 @@ public class ApplicationCenterService implements Startable {
     if (application == null) {
       throw new ApplicationNotFoundException("Application with id " + applicationId + " wasn't found in store");
     }
-    if (!hasPermission(username, application)) {
+    if (!getAuthorizationContext(username).hasPermission(application)) {
       throw new IllegalAccessException("User " + username + " doesn't have enough permissions to delete application "
           + application.getTitle());
     }
@@ -423,26 +629,28 @@ public class ApplicationCenterService implements Startable {
   public void setMaxFavoriteApps(long maxFavoriteApplications) {
     if (maxFavoriteApplications >= 0) {
       settingService.set(APP_CENTER_CONTEXT, APP_CENTER_SCOPE, MAX_FAVORITE_APPS, SettingValue.create(maxFavoriteApplications));
-      this.maxFavoriteApps = maxFavoriteApplications;
     } else {
       settingService.remove(APP_CENTER_CONTEXT, APP_CENTER_SCOPE, MAX_FAVORITE_APPS);
-      this.maxFavoriteApps = -1;
     }
+    // Invalidate the value on all cluster nodes
+    settingsCache.remove(MAX_FAVORITE_APPS);
   }
 
   /**
    * @return the maximum favorite applications that a user can have as favorite
    */
   public long getMaxFavoriteApps() {
-    if (this.maxFavoriteApps < 0) {
+    Long maxFavoriteApps = settingsCache.get(MAX_FAVORITE_APPS);
+    if (maxFavoriteApps == null) {
       SettingValue<?> maxFavoriteAppsValue = settingService.get(APP_CENTER_CONTEXT, APP_CENTER_SCOPE, MAX_FAVORITE_APPS);
       if (maxFavoriteAppsValue != null && maxFavoriteAppsValue.getValue() != null) {
-        this.maxFavoriteApps = Long.parseLong(maxFavoriteAppsValue.getValue().toString());
+        maxFavoriteApps = Long.parseLong(maxFavoriteAppsValue.getValue().toString());
       } else {
-        this.maxFavoriteApps = this.defaultMaxFavoriteApps;
+        maxFavoriteApps = this.defaultMaxFavoriteApps;
       }
+      settingsCache.putLocal(MAX_FAVORITE_APPS, maxFavoriteApps);
     }
-    return this.maxFavoriteApps;
+    return maxFavoriteApps;
   }
 
   /**
@@ -456,6 +664,7 @@ public class ApplicationCenterService implements Startable {
     if (defaultAppImage == null
         || (StringUtils.isBlank(defaultAppImage.getFileName()) && StringUtils.isBlank(defaultAppImage.getFileBody()))) {
       settingService.remove(APP_CENTER_CONTEXT, APP_CENTER_SCOPE, DEFAULT_APP_IMAGE_ID);
+      settingsCache.remove(DEFAULT_APP_IMAGE_ID);
     } else {
       ApplicationImage applicationImage = appCenterStorage.saveAppImageFileItem(defaultAppImage);
       if (applicationImage != null && applicationImage.getId() != null && applicationImage.getId() > 0) {
@@ -463,12 +672,46 @@ public class ApplicationCenterService implements Startable {
                            APP_CENTER_SCOPE,
                            DEFAULT_APP_IMAGE_ID,
                            SettingValue.create(String.valueOf(applicationImage.getId())));
+        settingsCache.remove(DEFAULT_APP_IMAGE_ID);
         return applicationImage;
       }
     }
     return null;
   }
 
+  /**
+   * Stores default image for applications not having an attached illustration
+   * from the content read from a stream.
+   *
+   * @param fileName image file name
+   * @param imageStream image content
+   * @return stored image, without its content
+   * @throws ApplicationImageTooLargeException if image exceeds the maximum
+   *           allowed size
+   * @throws Exception if an exception occurs while storing image into database
+   */
+  public ApplicationImage setDefaultAppImage(String fileName, InputStream imageStream) throws Exception { // NOSONAR
+    if (StringUtils.isBlank(fileName)) {
+      throw new IllegalArgumentException("fileName is mandatory");
+    }
+    if (imageStream == null) {
+      throw new IllegalArgumentException("image content is mandatory");
+    }
+    ApplicationImage applicationImage;
+    try (ApplicationImageUpload imageUpload = ApplicationImageUpload.read(imageStream, maxImageSize)) {
+      applicationImage = appCenterStorage.saveAppImageFileItem(getDefaultImageId(), fileName, imageUpload);
+    }
+    if (applicationImage != null && applicationImage.getId() != null && applicationImage.getId() > 0) {
+      settingService.set(APP_CENTER_CONTEXT,
+                         APP_CENTER_SCOPE,
+                         DEFAULT_APP_IMAGE_ID,
+                         SettingValue.create(String.valueOf(applicationImage.getId())));
+      settingsCache.remove(DEFAULT_APP_IMAGE_ID);
+      return applicationImage;
+    }
+    return null;
+  }
+
   /**
    * @return {@link GeneralSettings} of application including default image and
    *         maximum favorite applications count
@@ -498,17 +741,7 @@ public class ApplicationCenterService implements Startable {
    * @return {@link ApplicationList} that contains the list of applications
    */
   public ApplicationList getApplicationsList(int offset, int limit, String keyword) throws FileStorageException {
-    ApplicationList applicationList = new ApplicationList();
-    List<Application> applications = appCenterStorage.getApplications(keyword);
-    if (limit <= 0) {
-      limit = applications.size();
-    }
-    applications = applications.stream().skip(offset).limit(limit).collect(Collectors.toList());
-    applicationList.setApplications(applications);
-    applicationList.setSize(applications.size());
-    applicationList.setOffset(offset);
-    applicationList.setLimit(limit);
-    return applicationList;
+    return appCenterStorage.getApplicationsList(keyword, offset, limit);
   }
 
   /**
@@ -532,22 +765,92 @@ public class ApplicationCenterService implements Startable {
       throw new IllegalArgumentException("username is mandatory");
     }
     ApplicationList resultApplicationsList = new ApplicationList();
-    List<Application> userApplicationsList = getApplications(offset, limit, keyword, username).stream()
-                                                                                              .collect(Collectors.toList());
-    userApplicationsList = userApplicationsList.stream().map(app -> {
-      UserApplication applicationFavorite = new UserApplication(app);
-      applicationFavorite.setFavorite(appCenterStorage.isFavoriteApplication(applicationFavorite.getId(), username));
-      return applicationFavorite;
-    }).collect(Collectors.toList());
+    long[] favoriteApplicationIds = appCenterStorage.getFavoriteApplicationIds(username);
+    List<Application> userApplicationsList = toUserApplications(getApplications(offset, limit, keyword, username),
+                                                                favoriteApplicationIds);
     resultApplicationsList.setApplications(userApplicationsList);
-    long countFavorites = appCenterStorage.countFavorites(username);
-    resultApplicationsList.setCanAddFavorite(countFavorites < getMaxFavoriteApps());
+    resultApplicationsList.setCanAddFavorite(favoriteApplicationIds.length < getMaxFavoriteApps());
     resultApplicationsList.setOffset(offset);
     resultApplicationsList.setLimit(limit);
     resultApplicationsList.setSize(userApplicationsList.size());
     return resultApplicationsList;
   }
 
+  /**
+   * Retrieves a page of authorized and active applications positioned after a
+   * cursor. Applications are scanned in title order and the scan stops as soon
+   * as the page is filled, thus retrieving next pages doesn't require to
+   * evaluate permissions of previous ones.
+   *
+   * @param cursor opaque token returned in {@link ApplicationList#getNextCursor()}
+   *          of the previous page, null or empty to retrieve the first page
+   * @param limit maximum number of applications to retrieve, must be positive
+   * @param keyword used to search in title and url
+   * @param username login of user to use to filter on authorized applications
+   * @return {@link ApplicationList} that contains the {@link List} of authorized
+   *         {@link UserApplication} and the cursor of the next page if any
+   * @throws IllegalArgumentException if the cursor is malformed
+   */
+  public ApplicationList getAuthorizedApplicationsList(String cursor,
+                                                       int limit,
+                                                       String keyword,
+                                                       String username) {
+    if (StringUtils.isBlank(username)) {
+      throw new IllegalArgumentException("username is mandatory");
+    }
+    if (limit <= 0) {
+      throw new IllegalArgumentException("limit must be positive");
+    }
+    ApplicationCursor applicationCursor = StringUtils.isBlank(cursor) ? null : ApplicationCursor.decode(cursor);
+    // Retrieve one more application to know whether a next page exists
+    List<Application> applications = appCenterStorage.getApplications(keyword,
+                                                                       applicationCursor,
+                                                                       authorizedApplicationsFilter(getAuthorizationContext(username)),
+                                                                       limit + 1);
+    ApplicationList resultApplicationsList = new ApplicationList();
+    if (applications.size() > limit) {
+      applications = applications.subList(0, limit);
+      Application lastApplication = applications.get(limit - 1);
+      resultApplicationsList.setNextCursor(new ApplicationCursor(lastApplication.getTitle(),
+                                                                 lastApplication.getId()).encode());
+    }
+    long[] favoriteApplicationIds = appCenterStorage.getFavoriteApplicationIds(username);
+    List<Application> userApplicationsList = toUserApplications(applications, favoriteApplicationIds);
+    resultApplicationsList.setApplications(userApplicationsList);
+    resultApplicationsList.setCanAddFavorite(favoriteApplicationIds.length < getMaxFavoriteApps());
+    resultApplicationsList.setLimit(limit);
+    resultApplicationsList.setSize(userApplicationsList.size());
+    return resultApplicationsList;
+  }
+
+  /**
+   * Retrieves suggestions of active applications authorized to a user which
+   * title starts with a prefix. This is a lightweight alternative to
+   * {@link #getAuthorizedApplicationsList(int, int, String, String)} for
+   * typeahead: no favorite data is computed and only applications id, title
+   * and image version are returned.
+   *
+   * @param prefix title prefix, case and accents are ignored
+   * @param limit maximum number of suggestions to retrieve, if less or equal
+   *          to 0, {@link #DEFAULT_LIMIT} is used
+   * @param username login of user to use to filter on authorized applications
+   * @return {@link List} of {@link ApplicationSuggestion}
+   */
+  public List<ApplicationSuggestion> getApplicationSuggestions(String prefix, int limit, String username) {
+    if (StringUtils.isBlank(username)) {
+      throw new IllegalArgumentException("username is mandatory");
+    }
+    if (StringUtils.isBlank(prefix)) {
+      return Collections.emptyList();
+    }
+    if (limit <= 0) {
+      limit = DEFAULT_LIMIT;
+    }
+    return appCenterStorage.getApplicationSuggestions(prefix.trim(),
+                                                      authorizedApplicationsFilter(getAuthorizationContext(username)),
+                                                      limit);
+  }
+
   /**
    * Retrieves all the list of applications for a user
    *
@@ -557,15 +860,21 @@ public class ApplicationCenterService implements Startable {
    */
   public ApplicationList getMandatoryAndFavoriteApplicationsList(String username) {
     List<UserApplication> mandatoryAndFavoriteApplications = appCenterStorage.getMandatoryApplications();
-    mandatoryAndFavoriteApplications.addAll(appCenterStorage.getFavoriteApplicationsByUser(username));
+    // Mandatory applications are read from catalog and favorites, with their
+    // applications, are retrieved using a single query also used to count them
+    List<UserApplication> favoriteApplications = appCenterStorage.getAllFavoriteApplicationsByUser(username);
+    favoriteApplications.stream()
+                        .filter(userApplication -> userApplication.isActive() && !userApplication.isMandatory())
+                        .forEach(mandatoryAndFavoriteApplications::add);
+    BitSet authorizedApplicationIds = getAuthorizedApplicationIds(getAuthorizationContext(username));
     List<Application> applications = mandatoryAndFavoriteApplications.stream()
-                                                                     .filter(app -> hasPermission(username, app))
+                                                                     .filter(app -> ApplicationPermissionIndex.isAuthorized(authorizedApplicationIds,
+                                                                                                                            app.getId()))
                                                                      .collect(Collectors.toList());
 
     ApplicationList applicationList = new ApplicationList();
     applicationList.setApplications(applications);
-    long countFavorites = appCenterStorage.countFavorites(username);
-    applicationList.setCanAddFavorite(countFavorites < getMaxFavoriteApps());
+    applicationList.setCanAddFavorite(favoriteApplications.size() < getMaxFavoriteApps());
     applicationList.setLimit(mandatoryAndFavoriteApplications.size());
     applicationList.setSize(mandatoryAndFavoriteApplications.size());
     applicationList.setOffset(0);
@@ -580,18 +889,38 @@ public class ApplicationCenterService implements Startable {
    */
   public void updateFavoriteApplicationOrder(ApplicationOrder applicationOrder,
                                              String userName) throws ApplicationNotFoundException, FileStorageException {
+    updateFavoriteApplicationsOrder(Collections.singletonList(applicationOrder), userName);
+  }
+
+  /**
+   * Update the order of several favorite applications of a user at once, using
+   * a single transaction with one read and one batched write.
+   *
+   * @param applicationOrders new orders of favorite applications
+   * @param userName login of user
+   * @throws ApplicationNotFoundException if one of the applications wasn't
+   *           found
+   */
+  public void updateFavoriteApplicationsOrder(List<ApplicationOrder> applicationOrders,
+                                              String userName) throws ApplicationNotFoundException {
     if (StringUtils.isBlank(userName)) {
       throw new IllegalArgumentException("userName is mandatory");
     }
-    if (applicationOrder.getId() <= 0) {
-      throw new IllegalArgumentException("applicationId must be a positive integer");
+    if (applicationOrders == null) {
+      throw new IllegalArgumentException("applicationOrders is mandatory");
     }
-    Application application = appCenterStorage.getApplicationById(applicationOrder.getId());
-    if (application == null) {
-      throw new ApplicationNotFoundException("Application with id " + applicationOrder.getId().toString()
-          + " wasn't found in store");
+    Map<Long, Long> ordersByApplicationId = new LinkedHashMap<>();
+    for (ApplicationOrder applicationOrder : applicationOrders) {
+      if (applicationOrder.getId() == null || applicationOrder.getId() <= 0) {
+        throw new IllegalArgumentException("applicationId must be a positive integer");
+      }
+      if (appCenterStorage.getCatalog().getApplicationById(applicationOrder.getId()) == null) {
+        throw new ApplicationNotFoundException("Application with id " + applicationOrder.getId().toString()
+            + " wasn't found in store");
+      }
+      ordersByApplicationId.put(applicationOrder.getId(), applicationOrder.getOrder());
     }
-    appCenterStorage.updateFavoriteApplicationOrder(applicationOrder.getId(), userName, applicationOrder.getOrder());
+    appCenterStorage.updateFavoriteApplicationsOrder(userName, ordersByApplicationId);
   }
 
   /**
@@ -610,28 +939,149 @@ public class ApplicationCenterService implements Startable {
   public Long getApplicationImageLastUpdated(long applicationId, String username) throws ApplicationNotFoundException,
                                                                                   IllegalAccessException,
                                                                                   FileStorageException {
-    if (StringUtils.isBlank(username)) {
-      throw new IllegalArgumentException("username is mandatory");
-    }
-    Application application = appCenterStorage.getApplicationById(applicationId);
-    if (application == null) {
-      throw new ApplicationNotFoundException("Application with id " + applicationId + " wasn't found");
-    }
-    // if user is admin then no need to check for permissions
-    if (!isAdmin()) {
-      if (!hasPermission(username, application)) {
-        throw new IllegalAccessException("User " + username + " isn't allowed to access application with id " + applicationId);
-      }
+    FileInfo imageFileInfo = getApplicationImageFileInfo(applicationId, username);
+    if (imageFileInfo == null || imageFileInfo.getUpdatedDate() == null) {
+      return null;
     }
+    return imageFileInfo.getUpdatedDate().getTime();
+  }
+
+  /**
+   * Return the {@link Application} illustration metadata, if not found, the
+   * default image metadata will be retrieved. The binary content of the
+   * illustration isn't read.
+   *
+   * @param applicationId technical id of application
+   * @param username login of user accessing application
+   * @return {@link FileInfo} of the illustration or null if the application
+   *         has no illustration and no default image is configured
+   * @throws ApplicationNotFoundException if application wasn't found
+   * @throws IllegalAccessException if user doesn't have access permission to
+   *           application
+   */
+  public FileInfo getApplicationImageFileInfo(long applicationId, String username) throws ApplicationNotFoundException,
+                                                                                   IllegalAccessException {
+    Application application = getAccessibleApplication(applicationId, username);
+    FileInfo imageFileInfo = null;
     if (application.getImageFileId() != null && application.getImageFileId() > 0) {
-      return appCenterStorage.getApplicationImageLastUpdated(application.getImageFileId());
-    } else {
+      imageFileInfo = appCenterStorage.getApplicationImageFileInfo(application.getImageFileId());
+    }
+    if (imageFileInfo == null) {
       Long defaultImageId = getDefaultImageId();
       if (defaultImageId != null && defaultImageId > 0) {
-        return appCenterStorage.getApplicationImageLastUpdated(defaultImageId);
+        imageFileInfo = appCenterStorage.getApplicationImageFileInfo(defaultImageId);
       }
     }
-    return null;
+    return imageFileInfo;
+  }
+
+  /**
+   * Return the metadata of the {@link Application} illustration downscaled to
+   * fit in a square of the given size. The requested size is rounded up to the
+   * nearest supported variant size. The variant is generated on first request.
+   *
+   * @param applicationId technical id of application
+   * @param username login of user accessing application
+   * @param size maximum width and height in pixels, the original illustration
+   *          is retrieved when less or equal to 0 or greater than the biggest
+   *          variant size
+   * @return {@link FileInfo} of the illustration variant or null if the
+   *         application has no illustration and no default image is configured
+   * @throws ApplicationNotFoundException if application wasn't found
+   * @throws IllegalAccessException if user doesn't have access permission to
+   *           application
+   * @throws Exception if an error occurs while generating the variant
+   */
+  public FileInfo getApplicationImageFileInfo(long applicationId, String username, int size) throws Exception { // NOSONAR
+    FileInfo imageFileInfo = getApplicationImageFileInfo(applicationId, username);
+    int variantSize = getIllustrationVariantSize(size);
+    if (imageFileInfo == null || variantSize <= 0) {
+      return imageFileInfo;
+    }
+    return appCenterStorage.getApplicationImageVariantFileInfo(imageFileInfo, variantSize);
+  }
+
+  /**
+   * Return the metadata of the illustrations of several applications at once,
+   * downscaled to fit in a square of the given size. The user permissions and
+   * the default image are resolved once for all applications. The
+   * applications which aren't found, aren't accessible by the user or don't
+   * have any illustration are ignored. When the variant of an illustration
+   * can't be retrieved, the original illustration is used, thus a single
+   * failing illustration doesn't fail the whole batch.
+   *
+   * @param applicationIds technical ids of applications
+   * @param username login of user accessing applications
+   * @param size maximum width and height in pixels, see
+   *          {@link #getApplicationImageFileInfo(long, String, int)}
+   * @return {@link Map} of illustrations metadata by application id, in the
+   *         same order than requested ids
+   */
+  public Map<Long, FileInfo> getApplicationsImageFileInfos(List<Long> applicationIds, String username, int size) {
+    if (applicationIds == null || applicationIds.isEmpty()) {
+      throw new IllegalArgumentException("applicationIds is mandatory");
+    }
+    if (applicationIds.size() > MAX_ILLUSTRATIONS_BATCH_SIZE) {
+      throw new IllegalArgumentException("Can't retrieve more than " + MAX_ILLUSTRATIONS_BATCH_SIZE + " illustrations at once");
+    }
+    if (StringUtils.isBlank(username)) {
+      throw new IllegalArgumentException("username is mandatory");
+    }
+    AuthorizationContext authorizationContext = getAuthorizationContext(username);
+    int variantSize = getIllustrationVariantSize(size);
+    // Illustrations by image file id, the default image is shared
+    Map<Long, FileInfo> imageFileInfos = new HashMap<>();
+    FileInfo defaultImageFileInfo = null;
+    boolean defaultImageResolved = false;
+
+    Map<Long, FileInfo> result = new LinkedHashMap<>();
+    for (Long applicationId : applicationIds) {
+      Application application = applicationId == null ? null : appCenterStorage.getApplicationById(applicationId);
+      if (application == null || result.containsKey(applicationId)
+          || !(authorizationContext.isAdmin() || authorizationContext.hasPermission(application))) {
+        continue;
+      }
+      FileInfo imageFileInfo = null;
+      Long imageFileId = application.getImageFileId();
+      if (imageFileId != null && imageFileId > 0) {
+        imageFileInfo = imageFileInfos.containsKey(imageFileId) ? imageFileInfos.get(imageFileId)
+                                                                : getImageVariantOrOriginalFileInfo(imageFileId, variantSize);
+        imageFileInfos.put(imageFileId, imageFileInfo);
+      }
+      if (imageFileInfo == null) {
+        if (!defaultImageResolved) {
+          Long defaultImageId = getDefaultImageId();
+          if (defaultImageId != null && defaultImageId > 0) {
+            defaultImageFileInfo = getImageVariantOrOriginalFileInfo(defaultImageId, variantSize);
+          }
+          defaultImageResolved = true;
+        }
+        imageFileInfo = defaultImageFileInfo;
+      }
+      if (imageFileInfo != null) {
+        result.put(applicationId, imageFileInfo);
+      }
+    }
+    return result;
+  }
+
+  /**
+   * Opens the illustration binary stream designated by the metadata retrieved
+   * using {@link #getApplicationImageFileInfo(long, String)}, thus the
+   * streamed content always matches the size and last modified date of the
+   * metadata.
+   *
+   * @param imageFileInfo illustration metadata
+   * @return {@link InputStream} of the illustration, to close by the caller
+   * @throws FileStorageException if an error occurs while accessing file from
+   *           store
+   * @throws IOException if an error occurs while opening the stream
+   */
+  public InputStream getApplicationImageInputStream(FileInfo imageFileInfo) throws FileStorageException, IOException {
+    if (imageFileInfo == null || imageFileInfo.getId() == null) {
+      throw new IllegalArgumentException("imageFileInfo is mandatory");
+    }
+    return appCenterStorage.getApplicationImageInputStream(imageFileInfo.getId());
   }
 
   /**
@@ -652,19 +1102,7 @@ public class ApplicationCenterService implements Startable {
                                                                                          IllegalAccessException,
                                                                                          FileStorageException,
                                                                                          IOException {
-    if (StringUtils.isBlank(username)) {
-      throw new IllegalArgumentException("username is mandatory");
-    }
-    Application application = appCenterStorage.getApplicationById(applicationId);
-    if (application == null) {
-      throw new ApplicationNotFoundException("Application with id " + applicationId + " wasn't found");
-    }
-    // if user is admin then no need to check for permissions
-    if (!isAdmin()) {
-      if (!hasPermission(username, application)) {
-        throw new IllegalAccessException("User " + username + " isn't allowed to access application with id " + applicationId);
-      }
-    }
+    Application application = getAccessibleApplication(applicationId, username);
     InputStream applicationImageInputStream=null;
     if (application.getImageFileId() != null && application.getImageFileId() > 0) {
       applicationImageInputStream = appCenterStorage.getApplicationImageInputStream(application.getImageFileId());
@@ -728,69 +1166,509 @@ public class ApplicationCenterService implements Startable {
                                        && StringUtils.equals(app.getApplication().getUrl(), application.getUrl()));
   }
 
-  private boolean hasPermission(String username, Application application) {
-    return hasPermission(username, application.getPermissions());
+  private void injectSystemApplications(int retry) {
+    ExoContainerContext.setCurrentContainer(container);
+    systemApplicationsSyncState = SystemApplicationsSyncState.PENDING;
+    SystemApplicationsSyncState state = synchronizeSystemApplicationsOnce();
+    if (state == SystemApplicationsSyncState.SYNCHRONIZED) {
+      systemApplicationsSyncState = state;
+    } else if (retry < syncRetries && !Thread.currentThread().isInterrupted() && !systemApplicationsSyncExecutor.isShutdown()) {
+      long delay = syncRetryDelay << Math.min(retry, 20);
+      LOG.warn("System applications synchronization state is {}, retry {}/{} in {} ms", state, retry + 1, syncRetries, delay);
+      systemApplicationsSyncExecutor.schedule(() -> injectSystemApplications(retry + 1), delay, TimeUnit.MILLISECONDS);
+    } else {
+      LOG.error("System applications synchronization state is {} after {} retries, the applications already stored are served",
+                state,
+                retry);
+      systemApplicationsSyncState = state;
+    }
   }
 
-  private boolean hasPermission(String username, List<String> storedPermissions) {
-    if (storedPermissions == null) {
-      return true;
+  /**
+   * @return the state of the system applications once synchronized by this
+   *         node or by another one
+   */
+  private SystemApplicationsSyncState synchronizeSystemApplicationsOnce() {
+    List<ApplicationPlugin> applicationPlugins = getValidApplicationPlugins();
+    String configurationFingerprint = computeSystemApplicationsFingerprint(applicationPlugins);
+    SystemApplicationsSyncState leaseState = acquireSystemApplicationsSyncLease(applicationPlugins, configurationFingerprint);
+    if (leaseState != SystemApplicationsSyncState.PENDING) {
+      return leaseState;
     }
-    for (String storedPermission : storedPermissions) {
-      if (hasPermission(username, storedPermission)) {
-        return true;
-      }
+    boolean synchronizedApplications = false;
+    RequestLifeCycle.begin(this.container);
+    try {
+      synchronizedApplications = synchronizeSystemApplications(applicationPlugins);
+    } catch (Exception e) {
+      LOG.warn("An unknown error occurs while synchronizing system applications", e);
+    } finally {
+      RequestLifeCycle.end();
+    }
+    // Purge favorites of deleted or updated system applications
+    favoritePurgeService.schedulePurge();
+    if (synchronizedApplications) {
+      // Recorded once the changes are committed
+      completeSystemApplicationsSyncLease(configurationFingerprint);
+      return SystemApplicationsSyncState.SYNCHRONIZED;
+    } else {
+      // The lease isn't released, thus the other nodes don't take the failed
+      // synchronization for a completed one and take it over once it expires
+      LOG.warn("System applications synchronization failed, the lease is kept until it expires after {} ms",
+               syncLeaseDuration);
+      return SystemApplicationsSyncState.FAILED;
     }
-    return false;
   }
 
-  private boolean hasPermission(String username, String permissionExpression) {
-    if (StringUtils.isBlank(permissionExpression)) {
-      return true;
+  /**
+   * Elects the cluster node which synchronizes system applications using a
+   * lease stored in database. The other nodes wait, for a bounded time, until
+   * the lease holder records a successful synchronization of the same
+   * configuration, or take the lease over once it expires.
+   *
+   * @param applicationPlugins configured system applications
+   * @param configurationFingerprint fingerprint of the configured system
+   *          applications
+   * @return {@link SystemApplicationsSyncState#PENDING} if this node has to
+   *         synchronize the system applications,
+   *         {@link SystemApplicationsSyncState#SYNCHRONIZED} if they were
+   *         already synchronized or {@link SystemApplicationsSyncState#TIMED_OUT}
+   *         if the wait timed out
+   */
+  private SystemApplicationsSyncState acquireSystemApplicationsSyncLease(List<ApplicationPlugin> applicationPlugins,
+                                                                         String configurationFingerprint) {
+    long deadline = System.currentTimeMillis() + syncLeaseWaitTimeout;
+    boolean waiting = false;
+    while (true) { // NOSONAR
+      String leaseOwner;
+      RequestLifeCycle.begin(this.container);
+      try {
+        boolean acquired = appCenterStorage.acquireSyncLease(SYSTEM_APPLICATIONS_SYNC_LEASE, nodeId, syncLeaseDuration);
+        // Checked after acquiring the lease to not miss a completion made meanwhile
+        if (isSystemApplicationsSyncCompleted(applicationPlugins, configurationFingerprint)) {
+          if (acquired) {
+            appCenterStorage.releaseSyncLease(SYSTEM_APPLICATIONS_SYNC_LEASE, nodeId);
+          }
+          LOG.info("System applications configuration is already synchronized");
+          return SystemApplicationsSyncState.SYNCHRONIZED;
+        }
+        if (acquired) {
+          return SystemApplicationsSyncState.PENDING;
+        }
+        leaseOwner = appCenterStorage.getSyncLeaseOwner(SYSTEM_APPLICATIONS_SYNC_LEASE);
+      } catch (Exception e) {
+        LOG.warn("Error while acquiring system applications synchronization lease, synchronize without it", e);
+        return SystemApplicationsSyncState.PENDING;
+      } finally {
+        RequestLifeCycle.end();
+      }
+      if (System.currentTimeMillis() >= deadline) {
+        LOG.warn("System applications synchronization timed out, node '{}' is still holding the lease after {} ms",
+                 leaseOwner,
+                 syncLeaseWaitTimeout);
+        return SystemApplicationsSyncState.TIMED_OUT;
+      }
+      if (!waiting) {
+        LOG.info("Wait for node '{}' to synchronize system applications", leaseOwner);
+        waiting = true;
+      }
+      try {
+        Thread.sleep(SYNC_LEASE_POLL_INTERVAL);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        return SystemApplicationsSyncState.TIMED_OUT;
+      }
     }
+  }
 
-    if (StringUtils.isBlank(username)) {
+  /**
+   * @return true if the last successful synchronization applied the same
+   *         configuration, and if the configured applications are still stored
+   *         without manual changes
+   */
+  private boolean isSystemApplicationsSyncCompleted(List<ApplicationPlugin> applicationPlugins,
+                                                    String configurationFingerprint) {
+    if (!configurationFingerprint.equals(appCenterStorage.getSyncLeaseCompletedFingerprint(SYSTEM_APPLICATIONS_SYNC_LEASE))) {
       return false;
     }
+    List<Application> systemApplications = appCenterStorage.getSystemApplications();
+    if (systemApplications.stream().anyMatch(Application::isChangedManually)) {
+      return false;
+    }
+    Set<String> storedTitles = systemApplications.stream().map(Application::getTitle).collect(Collectors.toSet());
+    return applicationPlugins.stream().allMatch(plugin -> storedTitles.contains(plugin.getApplication().getTitle()));
+  }
+
+  private void completeSystemApplicationsSyncLease(String configurationFingerprint) {
+    RequestLifeCycle.begin(this.container);
+    try {
+      appCenterStorage.completeSyncLease(SYSTEM_APPLICATIONS_SYNC_LEASE, nodeId, configurationFingerprint);
+    } catch (Exception e) {
+      LOG.warn("Error while recording system applications synchronization, the lease will expire after {} ms",
+               syncLeaseDuration,
+               e);
+    } finally {
+      RequestLifeCycle.end();
+    }
+  }
 
+  /**
+   * Injects the applications defined by {@link ApplicationPlugin}s and deletes
+   * the system applications which aren't configured anymore. The plugins
+   * images are read in parallel, then the applications which configuration
+   * fingerprint didn't change since the last synchronization are skipped.
+   *
+   * @param applicationPlugins configured system applications
+   * @return true if all the system applications were synchronized
+   */
+  private boolean synchronizeSystemApplications(List<ApplicationPlugin> applicationPlugins) {
+    long startTime = System.currentTimeMillis();
+
+    // Read images while cleaning up obsolete applications
+    ExecutorService imageLoader = applicationPlugins.isEmpty() ? null : newImageLoader(applicationPlugins.size());
+    Map<String, Future<byte[]>> images = new HashMap<>();
+    try {
+      applicationPlugins.forEach(applicationPlugin -> images.put(applicationPlugin.getName(),
+                                                                 imageLoader.submit(() -> readSystemApplicationImage(applicationPlugin))));
+      boolean obsoleteApplicationsDeleted = deleteObsoleteSystemApplications();
+      long cleanupTime = System.currentTimeMillis();
+
+      Map<String, byte[]> imagesContent = new HashMap<>();
+      for (Map.Entry<String, Future<byte[]>> image : images.entrySet()) {
+        try {
+          imagesContent.put(image.getKey(), image.getValue().get());
+        } catch (ExecutionException e) {
+          LOG.warn("Error reading image of application plugin '{}'", image.getKey(), e.getCause());
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+          throw new IllegalStateException("Interrupted while reading system applications images", e);
+        }
+      }
+      long imagesTime = System.currentTimeMillis();
+
+      Map<Long, String> storedFingerprints = appCenterStorage.getSystemApplicationsFingerprints();
+      Map<SystemApplicationSyncStatus, Integer> statusCounts = new EnumMap<>(SystemApplicationSyncStatus.class);
+      for (ApplicationPlugin applicationPlugin : applicationPlugins) {
+        SystemApplicationSyncStatus status = synchronizeSystemApplication(applicationPlugin,
+                                                                          imagesContent.get(applicationPlugin.getName()),
+                                                                          storedFingerprints);
+        statusCounts.merge(status, 1, Integer::sum);
+      }
+      long endTime = System.currentTimeMillis();
+      LOG.info("System applications synchronized in {} ms (cleanup: {} ms, images reading: {} ms, storage: {} ms): {}",
+               endTime - startTime,
+               cleanupTime - startTime,
+               imagesTime - cleanupTime,
+               endTime - imagesTime,
+               statusCounts);
+      return obsoleteApplicationsDeleted && !statusCounts.containsKey(SystemApplicationSyncStatus.FAILED);
+    } finally {
+      if (imageLoader != null) {
+        imageLoader.shutdownNow();
+      }
+    }
+  }
+
+  private List<ApplicationPlugin> getValidApplicationPlugins() {
+    List<ApplicationPlugin> applicationPlugins = new ArrayList<>();
+    this.defaultApplications.values().forEach(applicationPlugin -> {
+      Application application = applicationPlugin.getApplication();
+      String pluginName = applicationPlugin.getName();
+      if (application == null) {
+        LOG.warn("An application plugin '{}' holds an empty application", pluginName);
+        return;
+      }
+
+      String title = application.getTitle();
+      if (StringUtils.isBlank(title)) {
+        LOG.warn("Plugin '{}' has an application with empty title, it will not be injected", pluginName);
+        return;
+      }
+
+      String url = application.getUrl();
+      if (StringUtils.isBlank(url)) {
+        LOG.warn("Plugin '{}' has an application with empty url, it will not be injected", pluginName);
+        return;
+      }
+      applicationPlugins.add(applicationPlugin);
+    });
+    return applicationPlugins;
+  }
+
+  private boolean deleteObsoleteSystemApplications() {
+    List<Application> systemApplications = appCenterStorage.getSystemApplications();
+    boolean deleted = true;
+    for (Application application : systemApplications) {
+      if (!isDefaultSystemApplication(application)) {
+        try {
+          LOG.info("Delete application '{}' that was previously injected as system application and that doesn't exist in configuration anymore",
+                   application.getTitle());
+          appCenterStorage.deleteApplication(application.getId());
+        } catch (Exception e) {
+          LOG.warn("An unknown error occurs while deleting not found system application '{}' in store",
+                   application.getTitle(),
+                   e);
+          deleted = false;
+        }
+      }
+    }
+    return deleted;
+  }
+
+  private SystemApplicationSyncStatus synchronizeSystemApplication(ApplicationPlugin applicationPlugin,
+                                                                   byte[] imageContent,
+                                                                   Map<Long, String> storedFingerprints) {
+    Application application = applicationPlugin.getApplication();
+    String title = application.getTitle();
+    Application storedApplication = appCenterStorage.getApplicationByTitle(title);
+    if (storedApplication != null && !applicationPlugin.isOverride() && storedApplication.isChangedManually() && ( MERGE_MODE.equals(applicationPlugin.getOverrideMode()) || applicationPlugin.getOverrideMode() == null) ) {
+      LOG.info("Ignore updating system application '{}', override flag is turned off", application.getTitle());
+      return SystemApplicationSyncStatus.IGNORED;
+    }
+
+    List<String> permissions = application.getPermissions();
+    if (permissions == null || permissions.isEmpty()) {
+      // Set default permission if empty
+      application.setPermissions(DEFAULT_USERS_PERMISSION);
+    }
+
+    if (StringUtils.isBlank(application.getImageFileName())) {
+      application.setImageFileName(application.getTitle() + ".png");
+    }
+
+    String fingerprint = computeSystemApplicationFingerprint(application, imageContent);
+    if (storedApplication != null && !storedApplication.isChangedManually()
+        && fingerprint.equals(storedFingerprints.get(storedApplication.getId()))) {
+      LOG.debug("System application '{}' is unchanged", title);
+      return SystemApplicationSyncStatus.UNCHANGED;
+    }
+
+    if (imageContent != null) {
+      application.setImageFileBody(new String(Base64.encode(imageContent)));
+    }
+    try {
+      application.setSystem(true);
+      application.setChangedManually(false);
+      Application savedApplication;
+      SystemApplicationSyncStatus status;
+      if (storedApplication == null) {
+        LOG.info("Create system application '{}'", application.getTitle());
+        application.setImageFileId(null);
+        savedApplication = this.createApplication(application);
+        status = SystemApplicationSyncStatus.CREATED;
+      } else {
+        LOG.info("Update system application '{}'", application.getTitle());
+        application.setId(storedApplication.getId());
+        application.setImageFileId(storedApplication.getImageFileId());
+        savedApplication = appCenterStorage.updateApplication(application);
+        status = SystemApplicationSyncStatus.UPDATED;
+      }
+      appCenterStorage.setSystemApplicationFingerprint(savedApplication.getId(), fingerprint);
+      return status;
+    } catch (Exception e) {
+      LOG.error("Error {} application {}", storedApplication == null ? "creating" : "updating", application, e);
+      return SystemApplicationSyncStatus.FAILED;
+    } finally {
+      // Don't keep the image content in memory with the plugin
+      application.setImageFileBody(null);
+    }
+  }
+
+  private byte[] readSystemApplicationImage(ApplicationPlugin applicationPlugin) {
+    String imagePath = applicationPlugin.getImagePath();
+    if (StringUtils.isBlank(imagePath)) {
+      return null; // NOSONAR
+    }
+    try (InputStream inputStream = configurationManager.getInputStream(imagePath)) {
+      return IOUtils.toByteArray(inputStream);
+    } catch (Exception e) {
+      LOG.warn("Error reading image from file {}. Application will be injected without image", imagePath, e);
+      return null; // NOSONAR
+    }
+  }
+
+  private ExecutorService newImageLoader(int applicationPluginsCount) {
+    AtomicInteger threadIndex = new AtomicInteger();
+    return Executors.newFixedThreadPool(Math.min(applicationPluginsCount, IMAGE_LOADER_THREADS), runnable -> {
+      Thread thread = new Thread(runnable, "AppCenter-ImageLoader-" + threadIndex.incrementAndGet());
+      thread.setDaemon(true);
+      return thread;
+    });
+  }
+
+  /**
+   * @param applicationPlugins configured system applications
+   * @return a fingerprint of the system applications configuration, identical
+   *         on all the nodes sharing the same configuration
+   */
+  private String computeSystemApplicationsFingerprint(List<ApplicationPlugin> applicationPlugins) {
+    String configuration = applicationPlugins.stream()
+                                             .map(applicationPlugin -> StringUtils.join(new Object[] { applicationPlugin.getName(),
+                                                 applicationPlugin.getImagePath(), applicationPlugin.isOverride(),
+                                                 applicationPlugin.getOverrideMode(),
+                                                 computeSystemApplicationFingerprint(applicationPlugin.getApplication(), null) },
+                                                                                        '\n'))
+                                             .sorted()
+                                             .collect(Collectors.joining("\n"));
+    return ApplicationCenterStorage.computeHash(configuration.getBytes(StandardCharsets.UTF_8));
+  }
+
+  private String computeSystemApplicationFingerprint(Application application, byte[] imageContent) {
+    String configuration = StringUtils.join(new Object[] { application.getTitle(), application.getUrl(),
+        application.getHelpPageURL(), application.getDescription(), application.isActive(), application.isMandatory(),
+        application.isMobile(), StringUtils.join(application.getPermissions(), ","), application.getImageFileName(),
+        imageContent == null ? null : ApplicationCenterStorage.computeHash(imageContent) }, '\n');
+    return ApplicationCenterStorage.computeHash(configuration.getBytes(StandardCharsets.UTF_8));
+  }
+
+  private void importApplicationsChunk(List<Application> applications, ApplicationImportReport report) {
+    try {
+      appCenterStorage.createApplications(applications);
+      report.setImported(report.getImported() + applications.size());
+    } catch (Exception e) {
+      LOG.warn("Error while importing a chunk of {} applications", applications.size(), e);
+      report.setFailed(report.getFailed() + applications.size());
+    }
+  }
+
+  private Application parseApplication(String json) throws JsonException {
+    JsonDefaultHandler jsonHandler = new JsonDefaultHandler();
+    new JsonParserImpl().parse(new StringReader(json), jsonHandler);
+    JsonValue jsonValue = jsonHandler.getJsonObject();
+    Application application = ObjectBuilder.createObject(Application.class, jsonValue);
+    // The mobile flag is serialized as 'mobile' while its setter is 'setIsMobile'
+    JsonValue mobileValue = jsonValue.getElement("mobile");
+    if (mobileValue != null) {
+      application.setIsMobile(mobileValue.getBooleanValue());
+    }
+    return application;
+  }
+
+  private AuthorizationContext getAuthorizationContext(String username) {
+    return new AuthorizationContext(username,
+                                    this::getIdentity,
+                                    this::isAdmin,
+                                    appCenterStorage::getApplicationPermissions);
+  }
+
+  /**
+   * @param authorizationContext authorization context of the user
+   * @return a filter of active applications authorized to the user, computed
+   *         once using the permissions index
+   */
+  private Predicate<Application> authorizedApplicationsFilter(AuthorizationContext authorizationContext) {
+    BitSet authorizedApplicationIds = getAuthorizedApplicationIds(authorizationContext);
+    return app -> app.isActive() && ApplicationPermissionIndex.isAuthorized(authorizedApplicationIds, app.getId());
+  }
+
+  private BitSet getAuthorizedApplicationIds(AuthorizationContext authorizationContext) {
+    if (authorizationContext.getIdentity() == null) {
+      return appCenterStorage.getAuthorizedApplicationIds(null, null);
+    }
+    return appCenterStorage.getAuthorizedApplicationIds(authorizationContext.getUsername(),
+                                                        authorizationContext.getMemberships());
+  }
+
+  private Identity getIdentity(String username) {
     // Ingeneral case, the user is already loggedin, thus we will get the
     // Identity from registry without having to compute it again from
     // OrganisationService, thus the condition (identity == null) will be false
     // most of the time for better performances
     Identity identity = identityRegistry.getIdentity(username);
     if (identity == null) {
-      try {
-        identity = authenticator.createIdentity(username);
-      } catch (Exception e) {
-        LOG.warn("Error getting memberships of user {}", username, e);
-        return false;
+      // Avoid building the identity from OrganizationService for each request
+      // of a user that isn't logged in, such as search and REST calls
+      identity = identityCache.get(username);
+      if (identity == null) {
+        try {
+          identity = authenticator.createIdentity(username);
+        } catch (Exception e) {
+          LOG.warn("Error getting memberships of user {}", username, e);
+          return null;
+        }
+        if (identity != null) {
+          identityCache.putLocal(username, identity);
+        }
       }
+    }
+    return identity;
+  }
 
-      // Check null again after building identity
-      if (identity == null) {
-        return false;
+  private Application getAccessibleApplication(long applicationId, String username) throws ApplicationNotFoundException,
+                                                                                      IllegalAccessException {
+    if (StringUtils.isBlank(username)) {
+      throw new IllegalArgumentException("username is mandatory");
+    }
+    Application application = appCenterStorage.getApplicationById(applicationId);
+    if (application == null) {
+      throw new ApplicationNotFoundException("Application with id " + applicationId + " wasn't found");
+    }
+    // if user is admin then no need to check for permissions
+    AuthorizationContext authorizationContext = getAuthorizationContext(username);
+    if (!authorizationContext.isAdmin()) {
+      if (!authorizationContext.hasPermission(application)) {
+        throw new IllegalAccessException("User " + username + " isn't allowed to access application with id " + applicationId);
       }
     }
+    return application;
+  }
 
-    MembershipEntry membership = null;
-    if (permissionExpression.contains(":")) {
-      String[] permissionExpressionParts = permissionExpression.split(":");
-      membership = new MembershipEntry(permissionExpressionParts[1], permissionExpressionParts[0]);
-    } else if (permissionExpression.contains("/")) {
-      membership = new MembershipEntry(permissionExpression, MembershipEntry.ANY_TYPE);
-    } else {
-      return StringUtils.equals(username, permissionExpression);
+  private FileInfo getImageVariantFileInfo(long imageFileId, int variantSize) throws Exception { // NOSONAR
+    FileInfo imageFileInfo = appCenterStorage.getApplicationImageFileInfo(imageFileId);
+    if (imageFileInfo == null || variantSize <= 0) {
+      return imageFileInfo;
+    }
+    return appCenterStorage.getApplicationImageVariantFileInfo(imageFileInfo, variantSize);
+  }
+
+  private FileInfo getImageVariantOrOriginalFileInfo(long imageFileId, int variantSize) {
+    try {
+      return getImageVariantFileInfo(imageFileId, variantSize);
+    } catch (Exception e) {
+      LOG.warn("Can't retrieve variant of size {} of application image {}, the original image will be used",
+               variantSize,
+               imageFileId,
+               e);
+    }
+    try {
+      return appCenterStorage.getApplicationImageFileInfo(imageFileId);
+    } catch (Exception e) {
+      LOG.warn("Can't retrieve application image {}", imageFileId, e);
+      return null;
     }
-    return identity.isMemberOf(membership);
+  }
+
+  private int getIllustrationVariantSize(int size) {
+    if (size > 0) {
+      for (int variantSize : ILLUSTRATION_SIZES) {
+        if (variantSize >= size) {
+          return variantSize;
+        }
+      }
+    }
+    return 0;
   }
 
   private Long getDefaultImageId() {
-    SettingValue<?> defaultAppImageIdSetting = settingService.get(APP_CENTER_CONTEXT, APP_CENTER_SCOPE, DEFAULT_APP_IMAGE_ID);
-    Long defaultAppImageId = null;
-    if (defaultAppImageIdSetting != null && defaultAppImageIdSetting.getValue() != null) {
-      defaultAppImageId = Long.parseLong(defaultAppImageIdSetting.getValue().toString());
+    Long defaultAppImageId = settingsCache.get(DEFAULT_APP_IMAGE_ID);
+    if (defaultAppImageId == null) {
+      SettingValue<?> defaultAppImageIdSetting = settingService.get(APP_CENTER_CONTEXT, APP_CENTER_SCOPE, DEFAULT_APP_IMAGE_ID);
+      if (defaultAppImageIdSetting != null && defaultAppImageIdSetting.getValue() != null) {
+        defaultAppImageId = Long.parseLong(defaultAppImageIdSetting.getValue().toString());
+      } else {
+        // Cache absence of default image to avoid querying settings each time
+        defaultAppImageId = NO_DEFAULT_IMAGE_ID;
+      }
+      settingsCache.putLocal(DEFAULT_APP_IMAGE_ID, defaultAppImageId);
     }
-    return defaultAppImageId;
+    return NO_DEFAULT_IMAGE_ID.equals(defaultAppImageId) ? null : defaultAppImageId;
+  }
+
+  private List<Application> toUserApplications(List<Application> applications, long[] favoriteApplicationIds) {
+    return applications.stream().map(app -> {
+      UserApplication applicationFavorite = new UserApplication(app);
+      applicationFavorite.setFavorite(Arrays.binarySearch(favoriteApplicationIds, applicationFavorite.getId()) >= 0);
+      return applicationFavorite;
+    }).collect(Collectors.toList());
   }
 
   private List<Application> getApplications(int offset, int limit, String keyword, String username) throws FileStorageException {
@@ -801,8 +1679,7 @@ public class ApplicationCenterService implements Startable {
 
     List<Application> applications = appCenterStorage.getApplications(keyword);
     applications = applications.stream()
-                               .filter(app -> hasPermission(username, app))
-                               .filter(Application::isActive)
+                               .filter(authorizedApplicationsFilter(getAuthorizationContext(username)))
                                .collect(Collectors.toList());
     if (limit <= 0) {
       limit = applications.size();
@@ -0,0 +1,120 @@
+/*
+ * This file is part of the Meeds project (https://meeds.io/).
+ * Copyright (C) 2020 Meeds Association
+ * contact@meeds.io
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.exoplatform.appcenter.service;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.BooleanSupplier;
+import java.util.function.Function;
+
+import org.apache.commons.lang.StringUtils;
+
+import org.exoplatform.appcenter.dto.Application;
+import org.exoplatform.appcenter.storage.ApplicationPermission;
+import org.exoplatform.appcenter.storage.ApplicationPermissionEvaluator;
+import org.exoplatform.services.security.Identity;
+import org.exoplatform.services.security.MembershipEntry;
+
+/**
+ * Authorization data of a user, built once per request. The user identity and
+ * the administrator flag are resolved lazily and at most once, whatever the
+ * count of permission checks made while processing the request.
+ */
+public class AuthorizationContext {
+
+  private final String                                             username;
+
+  private final Function<String, Identity>                         identityResolver;
+
+  private final BooleanSupplier                                    adminResolver;
+
+  private final Function<Application, List<ApplicationPermission>> permissionsResolver;
+
+  private final ApplicationPermissionEvaluator                     permissionEvaluator;
+
+  private Identity                                                 identity;
+
+  private boolean                                                  identityResolved;
+
+  private Boolean                                                  admin;
+
+  /**
+   * @param username login of user
+   * @param identityResolver resolves the user identity from its username
+   * @param adminResolver resolves whether the current user is an
+   *          administrator
+   * @param permissionsResolver resolves the compiled permissions of an
+   *          application
+   */
+  public AuthorizationContext(String username,
+                              Function<String, Identity> identityResolver,
+                              BooleanSupplier adminResolver,
+                              Function<Application, List<ApplicationPermission>> permissionsResolver) {
+    this.username = username;
+    this.identityResolver = identityResolver;
+    this.adminResolver = adminResolver;
+    this.permissionsResolver = permissionsResolver;
+    this.permissionEvaluator = new ApplicationPermissionEvaluator(username, this::getIdentity);
+  }
+
+  public String getUsername() {
+    return username;
+  }
+
+  /**
+   * @return user identity, null if the username is blank or if the identity
+   *         can't be built
+   */
+  public Identity getIdentity() {
+    if (!identityResolved) {
+      identity = StringUtils.isBlank(username) ? null : identityResolver.apply(username);
+      identityResolved = true;
+    }
+    return identity;
+  }
+
+  /**
+   * @return user memberships, empty if the identity can't be retrieved
+   */
+  public Collection<MembershipEntry> getMemberships() {
+    Identity userIdentity = getIdentity();
+    if (userIdentity == null || userIdentity.getMemberships() == null) {
+      return Collections.emptyList();
+    }
+    return userIdentity.getMemberships();
+  }
+
+  /**
+   * @return true if the current user is an administrator
+   */
+  public boolean isAdmin() {
+    if (admin == null) {
+      admin = adminResolver.getAsBoolean();
+    }
+    return admin;
+  }
+
+  /**
+   * @param application {@link Application} to check
+   * @return true if the user is allowed to access the application
+   */
+  public boolean hasPermission(Application application) {
+    return permissionEvaluator.hasPermission(permissionsResolver.apply(application));
+  }
+
+}
@@ -0,0 +1,235 @@
+/*
+ * This file is part of the Meeds project (https://meeds.io/).
+ * Copyright (C) 2020 Meeds Association
+ * contact@meeds.io
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.exoplatform.appcenter.service;
+
+import java.lang.management.ManagementFactory;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.picocontainer.Startable;
+
+import org.exoplatform.appcenter.storage.ApplicationCenterStorage;
+import org.exoplatform.container.ExoContainerContext;
+import org.exoplatform.container.PortalContainer;
+import org.exoplatform.container.component.RequestLifeCycle;
+import org.exoplatform.container.xml.InitParams;
+import org.exoplatform.services.log.ExoLogger;
+import org.exoplatform.services.log.Log;
+
+/**
+ * Purges in background the favorites of deleted applications and of
+ * applications that became mandatory. The favorites are deleted by bounded
+ * chunks, each one in its own transaction. The pending purges are persisted,
+ * thus an interrupted purge is resumed when the server starts again.
+ * <p>
+ * The purges are processed by a single cluster node at a time, elected using a
+ * lease. They are also processed periodically, with a sweep of the favorites
+ * referencing deleted applications, thus a lost or failed purge doesn't leave
+ * orphan favorites.
+ */
+public class FavoritePurgeService implements Startable {
+
+  private static final Log         LOG                  = ExoLogger.getLogger(FavoritePurgeService.class);
+
+  public static final int          DEFAULT_CHUNK_SIZE   = 500;
+
+  public static final long         DEFAULT_PERIOD       = 3600;
+
+  static final String              FAVORITES_PURGE_LEASE = "FAVORITES_PURGE";
+
+  /**
+   * Duration of the lease, renewed before each chunk, after which another node
+   * can resume the purges of a stopped node
+   */
+  private static final long        PURGE_LEASE_DURATION = 300000;
+
+  private ApplicationCenterStorage appCenterStorage;
+
+  private PortalContainer          container;
+
+  private int                      chunkSize            = DEFAULT_CHUNK_SIZE;
+
+  private long                     period               = DEFAULT_PERIOD;
+
+  private final AtomicBoolean      scheduled            = new AtomicBoolean();
+
+  private final String             nodeId               = ManagementFactory.getRuntimeMXBean().getName() + "-"
+      + UUID.randomUUID();
+
+  private ScheduledExecutorService executor;
+
+  public FavoritePurgeService(ApplicationCenterStorage appCenterStorage, PortalContainer container, InitParams params) {
+    this.appCenterStorage = appCenterStorage;
+    this.container = container;
+    if (params != null && params.containsKey("chunk.size")) {
+      this.chunkSize = Integer.parseInt(params.getValueParam("chunk.size").getValue());
+    }
+    if (this.chunkSize <= 0) {
+      this.chunkSize = DEFAULT_CHUNK_SIZE;
+    }
+    if (params != null && params.containsKey("period")) {
+      this.period = Long.parseLong(params.getValueParam("period").getValue());
+    }
+  }
+
+  @Override
+  public void start() {
+    executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+      Thread thread = new Thread(runnable, "AppCenter-FavoritesPurge");
+      thread.setDaemon(true);
+      return thread;
+    });
+    // Resume purges interrupted by a previous server stop
+    schedulePurge();
+    if (period > 0) {
+      executor.scheduleWithFixedDelay(this::processPurges, period, period, TimeUnit.SECONDS);
+    }
+  }
+
+  @Override
+  public void stop() {
+    if (executor != null) {
+      executor.shutdownNow();
+    }
+  }
+
+  /**
+   * Triggers the processing of pending purges in background. Successive calls
+   * made while a processing is already waiting are merged.
+   */
+  public void schedulePurge() {
+    if (executor == null || executor.isShutdown() || !scheduled.compareAndSet(false, true)) {
+      return;
+    }
+    executor.execute(() -> {
+      scheduled.set(false);
+      processPurges();
+    });
+  }
+
+  /**
+   * Processes all pending purges chunk by chunk, then deletes the orphan
+   * favorites. A failing purge is kept to be retried on next processing. Nothing
+   * is made when another cluster node is already processing the purges.
+   */
+  public void processPurges() {
+    ExoContainerContext.setCurrentContainer(container);
+    if (!acquirePurgeLease()) {
+      LOG.debug("Favorites purges are processed by another node");
+      return;
+    }
+    try {
+      for (Long purgeId : getPurgeIds()) {
+        processPurge(purgeId);
+      }
+      deleteOrphanFavorites();
+    } finally {
+      releasePurgeLease();
+    }
+  }
+
+  private void processPurge(Long purgeId) {
+    try {
+      long purgedCount = 0;
+      int deletedCount;
+      do {
+        if (!acquirePurgeLease()) {
+          LOG.warn("Favorites purge lease lost, purge {} will be resumed later", purgeId);
+          return;
+        }
+        RequestLifeCycle.begin(container);
+        try {
+          deletedCount = appCenterStorage.purgeFavorites(purgeId, chunkSize);
+        } finally {
+          RequestLifeCycle.end();
+        }
+        purgedCount += deletedCount;
+        if (deletedCount > 0) {
+          LOG.debug("Favorites purge {}: {} favorites deleted so far", purgeId, purgedCount);
+        }
+      } while (deletedCount > 0 && !Thread.currentThread().isInterrupted());
+      LOG.info("Favorites purge {} processed, {} favorites deleted", purgeId, purgedCount);
+    } catch (Exception e) {
+      LOG.warn("Error while purging favorites with purge id {}, it will be retried later", purgeId, e);
+    }
+  }
+
+  private void deleteOrphanFavorites() {
+    try {
+      long deletedCount = 0;
+      int chunkDeletedCount;
+      do {
+        if (!acquirePurgeLease()) {
+          return;
+        }
+        RequestLifeCycle.begin(container);
+        try {
+          chunkDeletedCount = appCenterStorage.deleteOrphanFavorites(chunkSize);
+        } finally {
+          RequestLifeCycle.end();
+        }
+        deletedCount += chunkDeletedCount;
+      } while (chunkDeletedCount > 0 && !Thread.currentThread().isInterrupted());
+      if (deletedCount > 0) {
+        LOG.info("{} favorites of deleted applications removed", deletedCount);
+      }
+    } catch (Exception e) {
+      LOG.warn("Error while deleting favorites of deleted applications, it will be retried later", e);
+    }
+  }
+
+  private List<Long> getPurgeIds() {
+    RequestLifeCycle.begin(container);
+    try {
+      return appCenterStorage.getFavoritePurgeIds();
+    } catch (Exception e) {
+      LOG.warn("Error while retrieving pending favorites purges", e);
+      return Collections.emptyList();
+    } finally {
+      RequestLifeCycle.end();
+    }
+  }
+
+  private boolean acquirePurgeLease() {
+    RequestLifeCycle.begin(container);
+    try {
+      return appCenterStorage.acquireSyncLease(FAVORITES_PURGE_LEASE, nodeId, PURGE_LEASE_DURATION);
+    } catch (Exception e) {
+      LOG.warn("Error while acquiring favorites purge lease", e);
+      return false;
+    } finally {
+      RequestLifeCycle.end();
+    }
+  }
+
+  private void releasePurgeLease() {
+    RequestLifeCycle.begin(container);
+    try {
+      appCenterStorage.releaseSyncLease(FAVORITES_PURGE_LEASE, nodeId);
+    } catch (Exception e) {
+      LOG.warn("Error while releasing favorites purge lease", e);
+    } finally {
+      RequestLifeCycle.end();
+    }
+  }
+
+}
@@ -0,0 +1,388 @@
+/*
+ * This file is part of the Meeds project (https://meeds.io/).
+ * Copyright (C) 2020 Meeds Association
+ * contact@meeds.io
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.exoplatform.appcenter.storage;
+
+import java.io.Serializable;
+import java.util.*;
+import java.util.function.Predicate;
+
+import org.apache.commons.lang.StringUtils;
+
+import org.exoplatform.appcenter.dto.Application;
+import org.exoplatform.appcenter.dto.ApplicationCursor;
+import org.exoplatform.appcenter.dto.UserApplication;
+
+/**
+ * An immutable and versioned snapshot of all stored applications. A new
+ * snapshot is built each time an application is created, updated or deleted,
+ * thus readers never see a partially modified catalog.
+ */
+public final class ApplicationCatalog implements Serializable {
+
+  private static final long                            serialVersionUID = -6153864223406191874L;
+
+  private static final Comparator<Application>         TITLE_COMPARATOR =
+                                                                       Comparator.comparing(ApplicationCatalog::sortTitle)
+                                                                                 .thenComparing(Application::getId);
+
+  private final long                                   version;
+
+  private final List<Application>                      applications;
+
+  private final Map<Long, Application>                 applicationsById;
+
+  private final Map<String, List<Application>>         applicationsByTitle;
+
+  private final List<Application>                      mandatoryActiveApplications;
+
+  private final List<Application>                      systemApplications;
+
+  /** Compiled permissions by application id, sharing identical expressions */
+  private final Map<Long, List<ApplicationPermission>> applicationsPermissions;
+
+  private final ApplicationPermissionIndex             permissionIndex;
+
+  private final ApplicationSearchIndex                 searchIndex;
+
+  /** Folded titles of active applications, sorted to search by prefix */
+  private final String[]                               activeFoldedTitles;
+
+  /** Active applications, in the same order than activeFoldedTitles */
+  private final Application[]                          activeApplicationsByFoldedTitle;
+
+  public ApplicationCatalog(long version, Collection<Application> applications) {
+    this(version, applications, null);
+  }
+
+  private ApplicationCatalog(long version, Collection<Application> applications, ApplicationSearchIndex searchIndex) {
+    this.version = version;
+
+    List<Application> sortedApplications = new ArrayList<>(applications);
+    sortedApplications.sort(TITLE_COMPARATOR);
+
+    Map<Long, Application> byId = new HashMap<>();
+    Map<String, List<Application>> byTitle = new HashMap<>();
+    List<Application> mandatoryActive = new ArrayList<>();
+    List<Application> system = new ArrayList<>();
+    for (Application application : sortedApplications) {
+      byId.put(application.getId(), application);
+      byTitle.computeIfAbsent(lowerTitle(application), key -> new ArrayList<>()).add(application);
+      if (application.isMandatory() && application.isActive()) {
+        mandatoryActive.add(application);
+      }
+      if (application.isSystem()) {
+        system.add(application);
+      }
+    }
+    byTitle.replaceAll((title, list) -> Collections.unmodifiableList(list));
+
+    this.applications = Collections.unmodifiableList(sortedApplications);
+    this.applicationsById = Collections.unmodifiableMap(byId);
+    this.applicationsByTitle = Collections.unmodifiableMap(byTitle);
+    this.mandatoryActiveApplications = Collections.unmodifiableList(mandatoryActive);
+    this.systemApplications = Collections.unmodifiableList(system);
+    this.applicationsPermissions = Collections.unmodifiableMap(compilePermissions(sortedApplications));
+    this.permissionIndex = new ApplicationPermissionIndex(applicationsPermissions);
+    this.searchIndex = searchIndex == null ? new ApplicationSearchIndex(sortedApplications) : searchIndex;
+
+    List<Application> activeApplications = new ArrayList<>();
+    Map<Long, String> foldedTitles = new HashMap<>();
+    for (Application application : sortedApplications) {
+      if (application.isActive()) {
+        activeApplications.add(application);
+        foldedTitles.put(application.getId(), ApplicationSearchIndex.fold(application.getTitle()));
+      }
+    }
+    activeApplications.sort(Comparator.comparing((Application application) -> foldedTitles.get(application.getId()))
+                                      .thenComparing(Application::getId));
+    this.activeApplicationsByFoldedTitle = activeApplications.toArray(new Application[activeApplications.size()]);
+    this.activeFoldedTitles = new String[activeApplicationsByFoldedTitle.length];
+    for (int i = 0; i < activeFoldedTitles.length; i++) {
+      activeFoldedTitles[i] = foldedTitles.get(activeApplicationsByFoldedTitle[i].getId());
+    }
+  }
+
+  /**
+   * @return the version of this snapshot, incremented on each modification
+   */
+  public long getVersion() {
+    return version;
+  }
+
+  /**
+   * @return all applications sorted by lowercase title
+   */
+  public List<Application> getApplications() {
+    return applications;
+  }
+
+  public Application getApplicationById(long applicationId) {
+    return applicationsById.get(applicationId);
+  }
+
+  public Application getApplicationByTitle(String title) {
+    List<Application> sameTitleApplications = applicationsByTitle.get(StringUtils.lowerCase(title));
+    if (sameTitleApplications == null) {
+      return null;
+    }
+    return sameTitleApplications.stream()
+                                .filter(application -> StringUtils.equals(title, application.getTitle()))
+                                .min(Comparator.comparing(Application::getId))
+                                .orElse(null);
+  }
+
+  public List<Application> getMandatoryActiveApplications() {
+    return mandatoryActiveApplications;
+  }
+
+  public List<Application> getSystemApplications() {
+    return systemApplications;
+  }
+
+  /**
+   * @param application {@link Application} to check
+   * @return compiled permissions of the application, shared by this snapshot
+   *         when the application is part of it with the same permissions, null
+   *         if the application is accessible to everyone
+   */
+  public List<ApplicationPermission> getPermissions(Application application) {
+    Application catalogApplication = application.getId() == null ? null : applicationsById.get(application.getId());
+    if (catalogApplication != null && Objects.equals(catalogApplication.getPermissions(), application.getPermissions())) {
+      return applicationsPermissions.get(application.getId());
+    }
+    return ApplicationPermission.compile(application.getPermissions());
+  }
+
+  /**
+   * @return the permissions index of applications of this snapshot
+   */
+  public ApplicationPermissionIndex getPermissionIndex() {
+    return permissionIndex;
+  }
+
+  public int size() {
+    return applications.size();
+  }
+
+  /**
+   * Search applications using the {@link ApplicationSearchIndex}: the keyword
+   * is searched in title, description and url ignoring case and accents, '*'
+   * can be used as wildcard.
+   *
+   * @param keyword keyword to search, if blank all applications are returned
+   * @return {@link List} of matching applications sorted by relevance (title
+   *         prefix, title infix, description then url), then by lowercase title
+   */
+  public List<Application> getApplications(String keyword) {
+    if (StringUtils.isBlank(keyword)) {
+      return applications;
+    }
+    Map<Long, Integer> ranks = searchIndex.search(keyword);
+    List<Application> result = new ArrayList<>(ranks.size());
+    ranks.keySet().forEach(applicationId -> result.add(applicationsById.get(applicationId)));
+    result.sort(Comparator.<Application> comparingInt(application -> ranks.get(application.getId()))
+                          .thenComparing(TITLE_COMPARATOR));
+    return result;
+  }
+
+  /**
+   * Scans the applications sorted by lowercase title, starting just after the
+   * cursor position, and stops as soon as the requested count of applications
+   * matching the keyword and the filter is reached.
+   *
+   * @param keyword keyword to search, if blank all applications are scanned
+   * @param cursor position after which to start the scan, null to start from
+   *          the first application
+   * @param filter additional condition to fulfill by returned applications
+   * @param limit maximum number of applications to return
+   * @return {@link List} of matching applications sorted by lowercase title
+   */
+  public List<Application> getApplications(String keyword,
+                                           ApplicationCursor cursor,
+                                           Predicate<Application> filter,
+                                           int limit) {
+    Map<Long, Integer> ranks = StringUtils.isBlank(keyword) ? null : searchIndex.search(keyword);
+    List<Application> result = new ArrayList<>();
+    for (int i = cursor == null ? 0 : indexAfter(cursor); i < applications.size() && result.size() < limit; i++) {
+      Application application = applications.get(i);
+      if ((ranks == null || ranks.containsKey(application.getId())) && filter.test(application)) {
+        result.add(application);
+      }
+    }
+    return result;
+  }
+
+  /**
+   * Retrieves active applications which title starts with a prefix, ignoring
+   * case and accents, using a binary search on the sorted titles.
+   *
+   * @param prefix title prefix
+   * @param filter additional condition to fulfill by returned applications
+   * @param limit maximum number of applications to return
+   * @return {@link List} of matching applications sorted by folded title
+   */
+  public List<Application> getActiveApplicationsByTitlePrefix(String prefix, Predicate<Application> filter, int limit) {
+    String foldedPrefix = ApplicationSearchIndex.fold(prefix);
+    int index = Arrays.binarySearch(activeFoldedTitles, foldedPrefix);
+    if (index < 0) {
+      index = -index - 1;
+    } else {
+      // Go back to the first equal title
+      while (index > 0 && activeFoldedTitles[index - 1].equals(foldedPrefix)) {
+        index--;
+      }
+    }
+    List<Application> result = new ArrayList<>();
+    for (; index < activeFoldedTitles.length && result.size() < limit
+        && activeFoldedTitles[index].startsWith(foldedPrefix); index++) {
+      Application application = activeApplicationsByFoldedTitle[index];
+      if (filter.test(application)) {
+        result.add(application);
+      }
+    }
+    return result;
+  }
+
+  /**
+   * @param application created or updated application
+   * @return a new snapshot including the application
+   */
+  public ApplicationCatalog withApplication(Application application) {
+    Map<Long, Application> newApplications = new LinkedHashMap<>(applicationsById);
+    Application applicationCopy = copy(application);
+    newApplications.put(application.getId(), applicationCopy);
+    return new ApplicationCatalog(version + 1,
+                                  newApplications.values(),
+                                  searchIndex.withApplications(Collections.singletonList(applicationCopy)));
+  }
+
+  /**
+   * @param newApplications created applications
+   * @return a new snapshot including the applications
+   */
+  public ApplicationCatalog withApplications(Collection<Application> newApplications) {
+    Map<Long, Application> applicationsMap = new LinkedHashMap<>(applicationsById);
+    List<Application> applicationCopies = new ArrayList<>(newApplications.size());
+    for (Application application : newApplications) {
+      Application applicationCopy = copy(application);
+      applicationsMap.put(application.getId(), applicationCopy);
+      applicationCopies.add(applicationCopy);
+    }
+    return new ApplicationCatalog(version + 1, applicationsMap.values(), searchIndex.withApplications(applicationCopies));
+  }
+
+  /**
+   * @param applicationId deleted application identifier
+   * @return a new snapshot excluding the application
+   */
+  public ApplicationCatalog withoutApplication(long applicationId) {
+    Map<Long, Application> newApplications = new LinkedHashMap<>(applicationsById);
+    newApplications.remove(applicationId);
+    return new ApplicationCatalog(version + 1, newApplications.values(), searchIndex.withoutApplication(applicationId));
+  }
+
+  /**
+   * Creates a copy of the application to avoid modifying the shared snapshot
+   * from outside.
+   *
+   * @param application {@link Application} to copy
+   * @return a new detached {@link Application}
+   */
+  public static Application copy(Application application) {
+    if (application == null) {
+      return null;
+    }
+    Application copy = new Application(application.getId(),
+                                       application.getTitle(),
+                                       application.getUrl(),
+                                       application.getHelpPageURL(),
+                                       application.getImageFileId(),
+                                       application.getImageLastModified(),
+                                       application.getImageFileBody(),
+                                       application.getImageFileName(),
+                                       application.getDescription(),
+                                       application.isSystem(),
+                                       application.isActive(),
+                                       application.isMandatory(),
+                                       application.isMobile(),
+                                       application.isChangedManually(),
+                                       application.getPermissions() == null ? null
+                                                                            : new ArrayList<>(application.getPermissions()));
+    copy.setOrder(application.getOrder());
+    return copy;
+  }
+
+  /**
+   * @param application {@link Application} to copy
+   * @return a new detached {@link UserApplication}
+   */
+  public static UserApplication copyAsUserApplication(Application application) {
+    return application == null ? null : new UserApplication(copy(application));
+  }
+
+  /**
+   * @return the index of the first application positioned strictly after the
+   *         cursor, using a binary search on the sorted applications
+   */
+  private int indexAfter(ApplicationCursor cursor) {
+    String cursorTitle = StringUtils.defaultString(cursor.getTitle());
+    int low = 0;
+    int high = applications.size();
+    while (low < high) {
+      int middle = (low + high) >>> 1;
+      Application application = applications.get(middle);
+      int comparison = sortTitle(application).compareTo(cursorTitle);
+      if (comparison == 0) {
+        comparison = Long.compare(application.getId(), cursor.getId());
+      }
+      if (comparison <= 0) {
+        low = middle + 1;
+      } else {
+        high = middle;
+      }
+    }
+    return low;
+  }
+
+  private static Map<Long, List<ApplicationPermission>> compilePermissions(Collection<Application> applications) {
+    Map<String, ApplicationPermission> compiledPermissions = new HashMap<>();
+    Map<Long, List<ApplicationPermission>> permissionsById = new HashMap<>();
+    for (Application application : applications) {
+      List<String> expressions = application.getPermissions();
+      List<ApplicationPermission> permissions = null;
+      if (expressions != null) {
+        permissions = new ArrayList<>(expressions.size());
+        for (String expression : expressions) {
+          permissions.add(compiledPermissions.computeIfAbsent(StringUtils.defaultString(expression),
+                                                              ApplicationPermission::compile));
+        }
+        permissions = Collections.unmodifiableList(permissions);
+      }
+      permissionsById.put(application.getId(), permissions);
+    }
+    return permissionsById;
+  }
+
+  private static String sortTitle(Application application) {
+    return StringUtils.defaultString(lowerTitle(application));
+  }
+
+  private static String lowerTitle(Application application) {
+    return StringUtils.lowerCase(application.getTitle());
+  }
+
+}
@@ -19,58 +19,116 @@ package org.exoplatform.appcenter.storage;
 import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.UnsupportedEncodingException;
 import java.nio.charset.Charset;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
 import java.util.Date;
 import java.util.List;
+import java.util.Map;
+import java.util.function.Predicate;
+import java.util.function.UnaryOperator;
 import java.util.stream.Collectors;
 
+import javax.persistence.PersistenceException;
+
 import org.apache.commons.lang.StringUtils;
 import org.apache.xmlbeans.impl.util.Base64;
 
 import org.exoplatform.appcenter.dao.ApplicationDAO;
+import org.exoplatform.appcenter.dao.ApplicationImageVariantDAO;
+import org.exoplatform.appcenter.dao.ApplicationSyncLeaseDAO;
+import org.exoplatform.appcenter.dao.EntityManagerUtils;
 import org.exoplatform.appcenter.dao.FavoriteApplicationDAO;
+import org.exoplatform.appcenter.dao.FavoritePurgeDAO;
 import org.exoplatform.appcenter.dto.Application;
+import org.exoplatform.appcenter.dto.ApplicationCursor;
 import org.exoplatform.appcenter.dto.ApplicationImage;
+import org.exoplatform.appcenter.dto.ApplicationList;
+import org.exoplatform.appcenter.dto.ApplicationSuggestion;
 import org.exoplatform.appcenter.dto.UserApplication;
 import org.exoplatform.appcenter.entity.ApplicationEntity;
+import org.exoplatform.appcenter.entity.ApplicationImageVariantEntity;
 import org.exoplatform.appcenter.entity.FavoriteApplicationEntity;
+import org.exoplatform.appcenter.entity.FavoritePurgeEntity;
 import org.exoplatform.appcenter.service.ApplicationNotFoundException;
+import org.exoplatform.appcenter.storage.ApplicationIllustrationCache.CachedIllustration;
+import org.exoplatform.commons.api.persistence.ExoTransactional;
 import org.exoplatform.commons.file.model.FileInfo;
 import org.exoplatform.commons.file.model.FileItem;
 import org.exoplatform.commons.file.services.FileService;
 import org.exoplatform.commons.file.services.FileStorageException;
+import org.exoplatform.commons.persistence.impl.GenericDAOJPAImpl;
+import org.exoplatform.services.cache.CacheService;
+import org.exoplatform.services.cache.ExoCache;
+import org.exoplatform.services.log.ExoLogger;
+import org.exoplatform.services.log.Log;
+import org.exoplatform.services.security.MembershipEntry;
 
 /**
  * Storage service to access / load and save applications. This service will be
- * used , as well, to convert from JPA entity to DTO.
+ * used , as well, to convert from JPA entity to DTO. The applications are read
+ * from an immutable {@link ApplicationCatalog} snapshot that is replaced each
+ * time an application is created, updated or deleted.
  */
 public class ApplicationCenterStorage {
 
-  public static final String     NAME_SPACE            = "appCenter";
+  private static final Log                     LOG                   = ExoLogger.getLogger(ApplicationCenterStorage.class);
+
+  public static final String                   NAME_SPACE            = "appCenter";
+
+  public static final Long                     DEFAULT_LAST_MODIFIED = System.currentTimeMillis();
+
+  public static final String                   CATALOG_CACHE_NAME    = "appcenter.ApplicationCatalogCache";
+
+  private static final String                  CATALOG_CACHE_KEY     = "catalog";
+
+  static final String                          HASH_ALGORITHM        = "SHA-256";
+
+  private FileService                          fileService;
 
-  public static final Long       DEFAULT_LAST_MODIFIED = System.currentTimeMillis();
+  private ApplicationDAO                       applicationDAO;
 
-  private FileService            fileService;
+  private FavoriteApplicationDAO               favoriteApplicationDAO;
 
-  private ApplicationDAO         applicationDAO;
+  private FavoritePurgeDAO                     favoritePurgeDAO;
 
-  private FavoriteApplicationDAO favoriteApplicationDAO;
+  private ApplicationImageVariantDAO           imageVariantDAO;
+
+  private ApplicationSyncLeaseDAO              syncLeaseDAO;
+
+  private ExoCache<String, ApplicationCatalog> catalogCache;
+
+  private ApplicationIllustrationCache         illustrationCache;
+
+  private long                                 catalogVersion;
 
   public ApplicationCenterStorage(ApplicationDAO applicationDAO,
                                   FavoriteApplicationDAO favoriteApplicationDAO,
-                                  FileService fileService) {
+                                  FavoritePurgeDAO favoritePurgeDAO,
+                                  ApplicationImageVariantDAO imageVariantDAO,
+                                  ApplicationSyncLeaseDAO syncLeaseDAO,
+                                  FileService fileService,
+                                  CacheService cacheService,
+                                  ApplicationIllustrationCache illustrationCache) {
     this.applicationDAO = applicationDAO;
     this.favoriteApplicationDAO = favoriteApplicationDAO;
+    this.favoritePurgeDAO = favoritePurgeDAO;
+    this.imageVariantDAO = imageVariantDAO;
+    this.syncLeaseDAO = syncLeaseDAO;
     this.fileService = fileService;
+    this.catalogCache = cacheService.getCacheInstance(CATALOG_CACHE_NAME);
+    this.illustrationCache = illustrationCache;
   }
 
   public Application getApplicationByTitle(String title) {
     if (StringUtils.isBlank(title)) {
       throw new IllegalArgumentException("title is mandatory");
     }
-    ApplicationEntity applicationentity = applicationDAO.getApplicationByTitle(title);
-    return toDTO(applicationentity);
+    return ApplicationCatalog.copy(getCatalog().getApplicationByTitle(title));
   }
 
   public Application createApplication(Application applicationForm) throws Exception {
@@ -79,13 +137,85 @@ public class ApplicationCenterStorage {
     }
     ApplicationEntity applicationEntity = toEntity(applicationForm);
     applicationEntity.setId(null);
-    ApplicationImage applicationImage = createAppImageFileItem(applicationForm.getImageFileName(),
-                                                               applicationForm.getImageFileBody());
-    if (applicationImage != null) {
-      applicationEntity.setImageFileId(applicationImage.getId());
-    }
+    attachAppImageFileItem(applicationEntity, applicationForm.getImageFileName(), applicationForm.getImageFileBody());
     applicationEntity = applicationDAO.create(applicationEntity);
-    return toDTO(applicationEntity);
+    Application application = toDTO(applicationEntity);
+    updateCatalog(catalog -> catalog.withApplication(application));
+    return application;
+  }
+
+  /**
+   * Creates applications using a single transaction. Applications are inserted
+   * together using pooled ids allocation, thus they are sent in JDBC batches
+   * when batching is enabled on the persistence unit
+   * (exo.jpa.hibernate.jdbc.batch_size). Images are stored before, and deleted
+   * if the applications can't be created.
+   *
+   * @param applicationForms applications to create
+   * @return created {@link Application}s
+   * @throws Exception when an error occurs while storing an image
+   */
+  public List<Application> createApplications(List<Application> applicationForms) throws Exception {
+    if (applicationForms == null) {
+      throw new IllegalArgumentException("applications are mandatory");
+    }
+    List<ApplicationEntity> applicationEntities = new ArrayList<>(applicationForms.size());
+    try {
+      for (Application applicationForm : applicationForms) {
+        ApplicationEntity applicationEntity = toEntity(applicationForm);
+        applicationEntity.setId(null);
+        applicationEntities.add(applicationEntity);
+        attachAppImageFileItem(applicationEntity, applicationForm.getImageFileName(), applicationForm.getImageFileBody());
+      }
+      applicationDAO.createAll(applicationEntities);
+    } catch (Exception e) {
+      // Cleanup images already stored for the applications of the chunk
+      for (ApplicationEntity applicationEntity : applicationEntities) {
+        if (applicationEntity.getImageFileId() != null && applicationEntity.getImageFileId() > 0) {
+          try {
+            fileService.deleteFile(applicationEntity.getImageFileId());
+          } catch (Exception deleteException) {
+            LOG.warn("Can't delete image {} of application '{}' not created",
+                     applicationEntity.getImageFileId(),
+                     applicationEntity.getTitle(),
+                     deleteException);
+          }
+        }
+      }
+      throw e;
+    }
+    List<Application> applications = applicationEntities.stream().map(this::toDTO).collect(Collectors.toList());
+    updateCatalog(catalog -> catalog.withApplications(applications));
+    return applications;
+  }
+
+  /**
+   * Retrieves a chunk of applications from database sorted by id, to iterate
+   * over all applications without loading them at once.
+   *
+   * @param applicationId id after which to retrieve applications, 0 to start
+   *          from first one
+   * @param limit maximum number of applications to retrieve
+   * @param withImage whether to include applications images content
+   * @return {@link List} of {@link Application}
+   * @throws FileStorageException when an error occurs while reading an image
+   */
+  public List<Application> getApplicationsAfterId(long applicationId,
+                                                  int limit,
+                                                  boolean withImage) throws FileStorageException {
+    List<ApplicationEntity> applicationEntities = applicationDAO.getApplicationsAfterId(applicationId, limit);
+    List<Application> applications = new ArrayList<>(applicationEntities.size());
+    for (ApplicationEntity applicationEntity : applicationEntities) {
+      Application application = toDTO(applicationEntity);
+      if (withImage && application.getImageFileId() != null && application.getImageFileId() > 0) {
+        ApplicationImage applicationImage = getAppImageFile(application.getImageFileId());
+        if (applicationImage != null) {
+          application.setImageFileBody(applicationImage.getFileBody());
+        }
+      }
+      applications.add(application);
+    }
+    return applications;
   }
 
   public Application updateApplication(Application application) throws Exception {
@@ -108,14 +238,27 @@ public class ApplicationCenterStorage {
 
     boolean newImageAttached = StringUtils.isNotBlank(application.getImageFileBody())
         && StringUtils.isNotBlank(application.getImageFileName());
+    FileInfo newImageFileInfo = null;
+    String imageHash = storedApplicationEntity.getImageHash();
     // if new image make sure to update it
     if (newImageAttached) {
-      ApplicationImage applicationImage = createAppImageFileItem(application.getImageFileName(), application.getImageFileBody());
-      if (applicationImage != null) {
-        application.setImageFileId(applicationImage.getId());
+      byte[] imageContent = decodeImageBody(application.getImageFileBody());
+      String newImageHash = computeHash(imageContent);
+      if (oldImageFileId != null && oldImageFileId > 0 && newImageHash.equals(getStoredImageHash(storedApplicationEntity))) {
+        // Same content than the stored image, keep it untouched to not
+        // invalidate clients caches
+        newImageAttached = false;
+      } else {
+        newImageFileInfo = writeAppImageFileItem(null, application.getImageFileName(), imageContent);
+      }
+      imageHash = newImageHash;
+    }
+    if (newImageAttached) {
+      if (newImageFileInfo != null) {
+        application.setImageFileId(newImageFileInfo.getId());
         if (oldImageFileId != null && oldImageFileId > 0) {
           // Cleanup old useless image
-          fileService.deleteFile(oldImageFileId);
+          deleteAppImageFileItem(oldImageFileId);
         }
       }
     } else {
@@ -126,18 +269,31 @@ public class ApplicationCenterStorage {
     if (imageRemoved) {
       application.setImageFileId(null);
       // Cleanup old useless image
-      fileService.deleteFile(oldImageFileId);
+      deleteAppImageFileItem(oldImageFileId);
     }
 
-    // if application is mandatory make sure to remove it from users favorites
-    if (application.isMandatory()) {
-      favoriteApplicationDAO.removeAllFavoritesOfApplication(application.getId());
+    // if application becomes mandatory, its favorites will be purged
+    // asynchronously, meanwhile they are ignored when reading favorites
+    if (application.isMandatory() && !storedApplicationEntity.isMandatory()) {
+      favoritePurgeDAO.create(new FavoritePurgeEntity(applicationId, FavoritePurgeEntity.Reason.MANDATORY));
     }
 
     ApplicationEntity applicationEntity = toEntity(application);
+    if (newImageFileInfo != null) {
+      setImageMetadata(applicationEntity, newImageFileInfo);
+      applicationEntity.setImageHash(imageHash);
+    } else if (!imageRemoved) {
+      applicationEntity.setImageFileName(storedApplicationEntity.getImageFileName());
+      applicationEntity.setImageContentType(storedApplicationEntity.getImageContentType());
+      applicationEntity.setImageSize(storedApplicationEntity.getImageSize());
+      applicationEntity.setImageUpdatedDate(storedApplicationEntity.getImageUpdatedDate());
+      applicationEntity.setImageHash(imageHash);
+    }
     applicationEntity = applicationDAO.update(applicationEntity);
 
-    return toDTO(applicationEntity);
+    Application updatedApplication = toDTO(applicationEntity);
+    updateCatalog(catalog -> catalog.withApplication(updatedApplication));
+    return updatedApplication;
   }
 
   public void deleteApplication(long applicationId) throws ApplicationNotFoundException {
@@ -148,18 +304,79 @@ public class ApplicationCenterStorage {
     if (applicationEntity == null) {
       throw new ApplicationNotFoundException("Application with id " + applicationId + " not found");
     }
+    // The purge is registered first, thus if the deletion fails, the purge
+    // will be ignored since the application still exists
+    favoritePurgeDAO.create(new FavoritePurgeEntity(applicationId, FavoritePurgeEntity.Reason.DELETED));
     applicationDAO.delete(applicationEntity);
+    updateCatalog(catalog -> catalog.withoutApplication(applicationId));
+  }
+
+  /**
+   * @return ids of pending favorites purges
+   */
+  public List<Long> getFavoritePurgeIds() {
+    return favoritePurgeDAO.getPurgeIds();
+  }
+
+  /**
+   * Deletes a chunk of the favorites of the application targeted by a purge.
+   * When no favorite remains, or when the purge isn't needed anymore, the purge
+   * is removed. The chunk deletion and the purge progress are committed in the
+   * same transaction, thus an interrupted purge is resumed with an accurate
+   * progress.
+   *
+   * @param purgeId technical id of the purge
+   * @param limit maximum number of favorites to delete
+   * @return count of deleted favorites, 0 when the purge is finished
+   */
+  @ExoTransactional
+  public int purgeFavorites(long purgeId, int limit) {
+    FavoritePurgeEntity favoritePurge = favoritePurgeDAO.find(purgeId);
+    if (favoritePurge == null) {
+      return 0;
+    }
+    if (!isFavoritePurgeNeeded(favoritePurge)) {
+      favoritePurgeDAO.delete(favoritePurge);
+      return 0;
+    }
+    int deletedCount = favoriteApplicationDAO.deleteFavoritesOfApplication(favoritePurge.getApplicationId(), limit);
+    if (deletedCount == 0) {
+      favoritePurgeDAO.delete(favoritePurge);
+    } else {
+      favoritePurge.setPurgedCount(favoritePurge.getPurgedCount() + deletedCount);
+      favoritePurgeDAO.update(favoritePurge);
+    }
+    return deletedCount;
+  }
+
+  /**
+   * Deletes a chunk of favorites referencing deleted applications which
+   * purge was lost or failed.
+   *
+   * @param limit maximum number of favorites to delete
+   * @return count of deleted favorites, 0 when no orphan favorite remains
+   */
+  public int deleteOrphanFavorites(int limit) {
+    return favoriteApplicationDAO.deleteOrphanFavorites(limit);
   }
 
   public Application getApplicationById(long applicationId) {
     if (applicationId <= 0) {
       throw new IllegalArgumentException("applicationId must be a positive integer");
     }
-    ApplicationEntity applicationEntity = applicationDAO.find(applicationId);
-    return toDTO(applicationEntity);
+    return ApplicationCatalog.copy(getCatalog().getApplicationById(applicationId));
   }
 
-  public void addApplicationToUserFavorite(long applicationId, String username) throws ApplicationNotFoundException {
+  /**
+   * Adds an application to user favorites. A concurrent insertion of the same
+   * favorite is rejected by the UK_AC_FAV_APP_USER_APP unique constraint.
+   *
+   * @param applicationId technical identifier of application
+   * @param username login of user
+   * @return true if added, false if it's already a favorite application
+   * @throws ApplicationNotFoundException when application doesn't exist
+   */
+  public boolean addApplicationToUserFavorite(long applicationId, String username) throws ApplicationNotFoundException {
     if (applicationId <= 0) {
       throw new IllegalArgumentException("applicationId must be a positive integer");
     }
@@ -167,7 +384,10 @@ public class ApplicationCenterStorage {
     if (application == null) {
       throw new ApplicationNotFoundException("Application with id " + applicationId + " wasn't found in store");
     }
-    favoriteApplicationDAO.create(new FavoriteApplicationEntity(application, username));
+    if (favoriteApplicationDAO.getFavoriteAppByUserNameAndAppId(applicationId, username) != null) {
+      return false;
+    }
+    return createUnique(favoriteApplicationDAO, new FavoriteApplicationEntity(application, username));
   }
 
   public void updateFavoriteApplicationOrder(long applicationId, String username, Long order) {
@@ -179,6 +399,20 @@ public class ApplicationCenterStorage {
     }
   }
 
+  /**
+   * Updates the order of favorite applications of a user in a single
+   * transaction with one read and one batched write.
+   *
+   * @param username login of user
+   * @param ordersByApplicationId new order by application id
+   */
+  public void updateFavoriteApplicationsOrder(String username, Map<Long, Long> ordersByApplicationId) {
+    if (ordersByApplicationId == null || ordersByApplicationId.isEmpty()) {
+      return;
+    }
+    favoriteApplicationDAO.updateFavoriteAppsOrder(username, ordersByApplicationId);
+  }
+
   public void deleteApplicationFavorite(Long applicationId, String username) {
     if (applicationId <= 0) {
       throw new IllegalArgumentException("applicationId must be a positive integer");
@@ -191,32 +425,121 @@ public class ApplicationCenterStorage {
   }
 
   public List<UserApplication> getMandatoryApplications() {
-    List<ApplicationEntity> applications = applicationDAO.getMandatoryActiveApps();
-    return applications.stream()
-                       .map(this::toUserApplicationDTO)
+    return getCatalog().getMandatoryActiveApplications()
+                       .stream()
+                       .map(ApplicationCatalog::copyAsUserApplication)
                        .collect(Collectors.toList());
   }
 
   public List<UserApplication> getFavoriteApplicationsByUser(String username) {
+    return getAllFavoriteApplicationsByUser(username).stream()
+                                                     .filter(userApplication -> userApplication.isActive()
+                                                         && !userApplication.isMandatory())
+                                                     .collect(Collectors.toList());
+  }
+
+  /**
+   * Retrieves all favorite applications of a user, including inactive and
+   * mandatory ones, using a single query.
+   *
+   * @param username login of user
+   * @return {@link List} of {@link UserApplication} sorted by favorite order
+   */
+  public List<UserApplication> getAllFavoriteApplicationsByUser(String username) {
     if (StringUtils.isBlank(username)) {
       throw new IllegalArgumentException("username is mandatory");
     }
     List<FavoriteApplicationEntity> applications = favoriteApplicationDAO.getFavoriteAppsByUser(username);
-    return applications.stream()
-                       .map(this::toUserApplicationDTO)
-                       .filter(userApplication -> userApplication.isActive() && !userApplication.isMandatory())
-                       .collect(Collectors.toList());
+    return applications.stream().map(this::toUserApplicationDTO).collect(Collectors.toList());
   }
 
-  public List<Application> getSystemApplications() {
-    List<ApplicationEntity> applications = applicationDAO.getSystemApplications();
-    List<Application> list = new ArrayList<>();
-    Application application = null;
-    for (ApplicationEntity entity : applications) {
-      application = toDTO(entity);
-      list.add(application);
+  /**
+   * @return the configuration fingerprint of system applications, indexed by
+   *         application id
+   */
+  public Map<Long, String> getSystemApplicationsFingerprints() {
+    return applicationDAO.getSystemApplicationsFingerprints();
+  }
+
+  /**
+   * Stores the fingerprint of the configuration which injected a system
+   * application. The fingerprint is reset each time the application is
+   * updated.
+   *
+   * @param applicationId technical id of application
+   * @param fingerprint configuration fingerprint
+   * @throws ApplicationNotFoundException if application wasn't found
+   */
+  public void setSystemApplicationFingerprint(long applicationId, String fingerprint) throws ApplicationNotFoundException {
+    ApplicationEntity applicationEntity = applicationDAO.find(applicationId);
+    if (applicationEntity == null) {
+      throw new ApplicationNotFoundException("Application with id " + applicationId + " wasn't found");
     }
-    return list;
+    applicationEntity.setSystemFingerprint(fingerprint);
+    applicationDAO.update(applicationEntity);
+  }
+
+  /**
+   * Acquires a cluster-wide lease, or renews it if already held by the same
+   * owner. The lease is committed immediately, thus this method must not be
+   * called inside a running transaction.
+   *
+   * @param leaseName lease name
+   * @param owner identifier of the node acquiring the lease
+   * @param duration duration in milliseconds after which the lease expires
+   * @return true if the lease is acquired
+   */
+  public boolean acquireSyncLease(String leaseName, String owner, long duration) {
+    long now = System.currentTimeMillis();
+    return syncLeaseDAO.acquireLease(leaseName, owner, now, now + duration);
+  }
+
+  /**
+   * Releases a cluster-wide lease if it's still held by the owner.
+   *
+   * @param leaseName lease name
+   * @param owner identifier of the node holding the lease
+   */
+  public void releaseSyncLease(String leaseName, String owner) {
+    syncLeaseDAO.releaseLease(leaseName, owner);
+  }
+
+  /**
+   * Records a successful synchronization in a cluster-wide lease and releases
+   * it if it's still held by the owner.
+   *
+   * @param leaseName lease name
+   * @param owner identifier of the node holding the lease
+   * @param fingerprint fingerprint of the synchronized configuration
+   * @return true if the completion was recorded
+   */
+  public boolean completeSyncLease(String leaseName, String owner, String fingerprint) {
+    return syncLeaseDAO.completeLease(leaseName, owner, System.currentTimeMillis(), fingerprint);
+  }
+
+  /**
+   * @param leaseName lease name
+   * @return fingerprint of the configuration applied by the last successful
+   *         synchronization made under the lease, null if none completed
+   */
+  public String getSyncLeaseCompletedFingerprint(String leaseName) {
+    return syncLeaseDAO.getCompletedFingerprint(leaseName);
+  }
+
+  /**
+   * @param leaseName lease name
+   * @return identifier of the node holding the lease, even if expired, null if
+   *         it was released
+   */
+  public String getSyncLeaseOwner(String leaseName) {
+    return syncLeaseDAO.getLeaseOwner(leaseName);
+  }
+
+  public List<Application> getSystemApplications() {
+    return getCatalog().getSystemApplications()
+                       .stream()
+                       .map(ApplicationCatalog::copy)
+                       .collect(Collectors.toList());
   }
 
   public boolean isFavoriteApplication(Long applicationId, String username) {
@@ -229,6 +552,18 @@ public class ApplicationCenterStorage {
     return favoriteApplicationDAO.getFavoriteAppByUserNameAndAppId(applicationId, username) != null;
   }
 
+  /**
+   * @param username login of user
+   * @return sorted ids of favorite applications of the user, to use with
+   *         {@link java.util.Arrays#binarySearch(long[], long)}
+   */
+  public long[] getFavoriteApplicationIds(String username) {
+    if (StringUtils.isBlank(username)) {
+      throw new IllegalArgumentException("username is mandatory");
+    }
+    return favoriteApplicationDAO.getFavoriteAppIdsByUser(username);
+  }
+
   public long countFavorites(String username) {
     if (StringUtils.isBlank(username)) {
       throw new IllegalArgumentException("username is mandatory");
@@ -240,31 +575,201 @@ public class ApplicationCenterStorage {
     if (defaultAppImage == null) {
       throw new IllegalArgumentException("Application image is mandatory");
     }
-    if (defaultAppImage.getId() == null || defaultAppImage.getId() <= 0) {
-      return createAppImageFileItem(defaultAppImage.getFileName(), defaultAppImage.getFileBody());
-    } else {
-      return updateAppImageFileItem(defaultAppImage.getId(), defaultAppImage.getFileName(), defaultAppImage.getFileBody());
+    Long fileId = defaultAppImage.getId() == null || defaultAppImage.getId() <= 0 ? null : defaultAppImage.getId();
+    return toApplicationImage(updateAppImageFileItem(fileId, defaultAppImage.getFileName(), defaultAppImage.getFileBody()),
+                              defaultAppImage.getFileBody());
+  }
+
+  /**
+   * Stores an uploaded image, or replaces the content of an existing one
+   *
+   * @param fileId image file identifier to replace, null to create a new image
+   * @param fileName image file name
+   * @param imageUpload uploaded image content
+   * @return stored image, without its content
+   * @throws Exception if an error occurs while storing the image
+   */
+  public ApplicationImage saveAppImageFileItem(Long fileId,
+                                               String fileName,
+                                               ApplicationImageUpload imageUpload) throws Exception { // NOSONAR
+    if (StringUtils.isBlank(fileName) || imageUpload == null) {
+      throw new IllegalArgumentException("Image name and content are mandatory");
+    }
+    return toApplicationImage(writeAppImageFileItem(fileId == null || fileId <= 0 ? null : fileId, fileName, imageUpload), null);
+  }
+
+  /**
+   * Replaces the image of an application by an uploaded image. The content is
+   * left untouched when it didn't change. As any modification made by an
+   * administrator, the application is marked as changed manually.
+   *
+   * @param applicationId technical id of application
+   * @param fileName image file name
+   * @param imageUpload uploaded image content
+   * @return updated {@link Application}
+   * @throws ApplicationNotFoundException if application wasn't found
+   * @throws Exception if an error occurs while storing the image
+   */
+  public Application updateApplicationImage(long applicationId,
+                                            String fileName,
+                                            ApplicationImageUpload imageUpload) throws Exception { // NOSONAR
+    if (StringUtils.isBlank(fileName) || imageUpload == null) {
+      throw new IllegalArgumentException("Image name and content are mandatory");
+    }
+    ApplicationEntity applicationEntity = applicationDAO.find(applicationId);
+    if (applicationEntity == null) {
+      throw new ApplicationNotFoundException("Application with id " + applicationId + " wasn't found");
     }
+    Long oldImageFileId = applicationEntity.getImageFileId();
+    boolean hasImage = oldImageFileId != null && oldImageFileId > 0;
+    if (!hasImage || !imageUpload.getHash().equals(getStoredImageHash(applicationEntity))) {
+      FileInfo imageFileInfo = writeAppImageFileItem(null, fileName, imageUpload);
+      if (imageFileInfo == null) {
+        throw new IllegalStateException("Image of application " + applicationId + " wasn't stored");
+      }
+      setImageMetadata(applicationEntity, imageFileInfo);
+      applicationEntity.setImageHash(imageUpload.getHash());
+      if (hasImage) {
+        // Cleanup old useless image
+        deleteAppImageFileItem(oldImageFileId);
+      }
+    }
+    applicationEntity.setChangedManually(true);
+    applicationEntity.setSystemFingerprint(null);
+    applicationEntity = applicationDAO.update(applicationEntity);
+
+    Application updatedApplication = toDTO(applicationEntity);
+    updateCatalog(catalog -> catalog.withApplication(updatedApplication));
+    return updatedApplication;
   }
 
   public ApplicationImage createAppImageFileItem(String fileName, String fileBody) throws Exception {
-    return updateAppImageFileItem(null, fileName, fileBody);
+    return toApplicationImage(updateAppImageFileItem(null, fileName, fileBody), fileBody);
   }
 
-  public Long getApplicationImageLastUpdated(long fileId) throws FileStorageException {
-    FileItem fileItem = fileService.getFile(fileId);
-    if (fileItem != null && fileItem.getFileInfo().getUpdatedDate() != null) {
-      return fileItem.getFileInfo().getUpdatedDate().getTime();
+  public Long getApplicationImageLastUpdated(long fileId) {
+    FileInfo fileInfo = getApplicationImageFileInfo(fileId);
+    if (fileInfo != null && fileInfo.getUpdatedDate() != null) {
+      return fileInfo.getUpdatedDate().getTime();
     }
     return null;
   }
 
+  /**
+   * Retrieves the image metadata only, without reading its binary content
+   *
+   * @param fileId image file identifier
+   * @return {@link FileInfo} of the image or null if not found or deleted
+   */
+  public FileInfo getApplicationImageFileInfo(long fileId) {
+    CachedIllustration cachedIllustration = illustrationCache.peek(fileId);
+    if (cachedIllustration != null) {
+      return cachedIllustration.getFileInfo();
+    }
+    FileInfo fileInfo = fileService.getFileInfo(fileId);
+    return fileInfo == null || fileInfo.isDeleted() ? null : fileInfo;
+  }
+
+  /**
+   * Opens the image binary stream. Small images are served from the
+   * {@link ApplicationIllustrationCache}, bigger ones are streamed as provided
+   * by the file storage without being loaded in memory. The caller is
+   * responsible for closing the stream.
+   *
+   * @param fileId image file identifier
+   * @return {@link InputStream} of the image or null if not found
+   * @throws FileStorageException if an error occurs while accessing file from
+   *           store
+   * @throws IOException if an error occurs while opening the binary stream
+   */
   public InputStream getApplicationImageInputStream(long fileId) throws FileStorageException, IOException { // NOSONAR
+    CachedIllustration cachedIllustration = illustrationCache.get(fileId);
+    if (cachedIllustration != null) {
+      return cachedIllustration.getInputStream();
+    }
     FileItem fileItem = fileService.getFile(fileId);
-    if (fileItem != null && fileItem.getAsByte() != null) {
-      return new ByteArrayInputStream(fileItem.getAsByte());
+    if (fileItem == null) {
+      return null;
+    }
+    if (!illustrationCache.isCacheable(fileItem.getFileInfo())) {
+      return fileItem.getAsStream();
+    }
+    try (InputStream inputStream = fileItem.getAsStream()) {
+      return inputStream == null ? null : illustrationCache.put(fileItem.getFileInfo(), inputStream).getInputStream();
     }
-    return null;
+  }
+
+  /**
+   * Retrieves the metadata of a variant of the image downscaled to fit in a
+   * square of the given size. The variant is generated and stored in the
+   * appCenter file namespace on first request, then regenerated only if the
+   * original image changes.
+   *
+   * @param imageFileInfo original image metadata
+   * @param size maximum width and height in pixels of the variant
+   * @return {@link FileInfo} of the variant or of the original image if it
+   *         already fits in the size or its format can't be resized
+   * @throws Exception if an error occurs while reading the original image or
+   *           storing the variant
+   */
+  public FileInfo getApplicationImageVariantFileInfo(FileInfo imageFileInfo, int size) throws Exception { // NOSONAR
+    if (imageFileInfo == null || imageFileInfo.getId() == null) {
+      throw new IllegalArgumentException("imageFileInfo is mandatory");
+    }
+    if (size <= 0) {
+      throw new IllegalArgumentException("size must be a positive integer");
+    }
+    long imageFileId = imageFileInfo.getId();
+    long imageLastUpdated = imageFileInfo.getUpdatedDate() == null ? 0 : imageFileInfo.getUpdatedDate().getTime();
+    ApplicationImageVariantEntity variantEntity = imageVariantDAO.getVariant(imageFileId, size);
+    if (variantEntity != null) {
+      if (variantEntity.getImageLastUpdated() == imageLastUpdated) {
+        if (variantEntity.getVariantFileId() == null) {
+          return imageFileInfo;
+        }
+        FileInfo variantFileInfo = getApplicationImageFileInfo(variantEntity.getVariantFileId());
+        if (variantFileInfo != null) {
+          return variantFileInfo;
+        }
+      }
+      // The original image was modified or the variant file is missing
+      deleteAppImageVariant(variantEntity);
+    }
+
+    byte[] variantContent = null;
+    try (InputStream inputStream = getApplicationImageInputStream(imageFileId)) {
+      if (inputStream != null) {
+        variantContent = ApplicationImageResizer.resize(inputStream, size);
+      }
+    } catch (IOException e) {
+      LOG.warn("Can't resize application image {}, the original image will be used", imageFileId, e);
+    }
+    FileInfo variantFileInfo = null;
+    if (variantContent != null) {
+      FileItem variantFileItem = new FileItem(null,
+                                              size + "_" + imageFileInfo.getName(),
+                                              "image/png",
+                                              NAME_SPACE,
+                                              variantContent.length,
+                                              new Date(),
+                                              null,
+                                              false,
+                                              new ByteArrayInputStream(variantContent));
+      variantFileInfo = fileService.writeFile(variantFileItem).getFileInfo();
+    }
+    if (!createUnique(imageVariantDAO,
+                      new ApplicationImageVariantEntity(imageFileId,
+                                                        size,
+                                                        imageLastUpdated,
+                                                        variantFileInfo == null ? null : variantFileInfo.getId()))) {
+      // The same variant was generated concurrently, keep the stored one
+      LOG.debug("Variant of size {} of application image {} already exists", size, imageFileId);
+      if (variantFileInfo != null) {
+        fileService.deleteFile(variantFileInfo.getId());
+      }
+      return imageFileInfo;
+    }
+    return variantFileInfo == null ? imageFileInfo : variantFileInfo;
   }
 
   public ApplicationImage getAppImageFile(Long fileId) throws FileStorageException {
@@ -279,34 +784,166 @@ public class ApplicationCenterStorage {
   }
 
   public List<Application> getApplications(String keyword) {
-    List<ApplicationEntity> applications = applicationDAO.getApplications(keyword);
-    List<Application> list = new ArrayList<>();
-    for (ApplicationEntity entity : applications) {
-      Application application = toDTO(entity);
-      list.add(application);
-    }
-    return list;
+    return getCatalog().getApplications(keyword)
+                       .stream()
+                       .map(ApplicationCatalog::copy)
+                       .collect(Collectors.toList());
+  }
+
+  /**
+   * Retrieves a page of applications matching the keyword with the total count
+   * of matching applications. The catalog snapshot is filtered once and only
+   * the applications of the requested page are copied.
+   *
+   * @param keyword keyword to search in title, description and url
+   * @param offset index of the first application to return
+   * @param limit maximum number of applications to return, all remaining
+   *          applications are returned when less or equal to 0
+   * @return {@link ApplicationList} of {@link Application} sorted by title
+   */
+  public ApplicationList getApplicationsList(String keyword, int offset, int limit) {
+    List<Application> applications = getCatalog().getApplications(keyword);
+    int fromIndex = Math.min(Math.max(offset, 0), applications.size());
+    int toIndex = limit <= 0 ? applications.size() : (int) Math.min((long) fromIndex + limit, applications.size());
+    List<Application> pageApplications = applications.subList(fromIndex, toIndex)
+                                                     .stream()
+                                                     .map(ApplicationCatalog::copy)
+                                                     .collect(Collectors.toList());
+    ApplicationList applicationList = new ApplicationList();
+    applicationList.setApplications(pageApplications);
+    applicationList.setSize(pageApplications.size());
+    applicationList.setTotalSize(applications.size());
+    applicationList.setOffset(offset);
+    applicationList.setLimit(limit <= 0 ? applications.size() : limit);
+    return applicationList;
+  }
+
+  /**
+   * Retrieves the applications positioned after the cursor that match the
+   * keyword and the filter. The scan stops as soon as the limit is reached.
+   *
+   * @param keyword keyword to search in title, description and url
+   * @param cursor position after which to start, null to start from the first
+   *          application
+   * @param filter condition to fulfill by returned applications
+   * @param limit maximum number of applications to return
+   * @return {@link List} of {@link Application} sorted by title
+   */
+  public List<Application> getApplications(String keyword,
+                                           ApplicationCursor cursor,
+                                           Predicate<Application> filter,
+                                           int limit) {
+    return getCatalog().getApplications(keyword, cursor, filter, limit)
+                       .stream()
+                       .map(ApplicationCatalog::copy)
+                       .collect(Collectors.toList());
+  }
+
+  /**
+   * Retrieves active applications which title starts with the prefix, ignoring
+   * case and accents, with only the data needed to display a suggestion.
+   *
+   * @param prefix title prefix
+   * @param filter condition to fulfill by returned applications
+   * @param limit maximum number of suggestions to return
+   * @return {@link List} of {@link ApplicationSuggestion} sorted by title
+   */
+  public List<ApplicationSuggestion> getApplicationSuggestions(String prefix, Predicate<Application> filter, int limit) {
+    return getCatalog().getActiveApplicationsByTitlePrefix(prefix, filter, limit)
+                       .stream()
+                       .map(application -> new ApplicationSuggestion(application.getId(),
+                                                                     application.getTitle(),
+                                                                     application.getImageLastModified()))
+                       .collect(Collectors.toList());
+  }
+
+  /**
+   * @param username user login, null when the user identity can't be retrieved
+   * @param memberships user memberships
+   * @return {@link BitSet} of ids of applications authorized to the user
+   */
+  public BitSet getAuthorizedApplicationIds(String username, Collection<MembershipEntry> memberships) {
+    return getCatalog().getPermissionIndex().getAuthorizedApplications(username, memberships);
+  }
+
+  /**
+   * @param application {@link Application} to check
+   * @return compiled permissions of the application, shared by the current
+   *         catalog snapshot when the application is up to date in it
+   */
+  public List<ApplicationPermission> getApplicationPermissions(Application application) {
+    return getCatalog().getPermissions(application);
   }
 
   public long countApplications() {
-    return applicationDAO.count();
+    return getCatalog().size();
+  }
+
+  /**
+   * @return current {@link ApplicationCatalog} snapshot, loaded from database
+   *         if not already in cache. The returned snapshot is shared, thus its
+   *         applications must not be modified.
+   */
+  public ApplicationCatalog getCatalog() {
+    ApplicationCatalog catalog = catalogCache.get(CATALOG_CACHE_KEY);
+    if (catalog == null) {
+      synchronized (this) {
+        catalog = catalogCache.get(CATALOG_CACHE_KEY);
+        if (catalog == null) {
+          List<Application> applications = applicationDAO.getApplications(null)
+                                                         .stream()
+                                                         .map(this::toDTO)
+                                                         .collect(Collectors.toList());
+          catalog = new ApplicationCatalog(++catalogVersion, applications);
+          // Local put to not invalidate the snapshot of other cluster nodes
+          catalogCache.putLocal(CATALOG_CACHE_KEY, catalog);
+        }
+      }
+    }
+    return catalog;
+  }
+
+  private synchronized void updateCatalog(UnaryOperator<ApplicationCatalog> modification) {
+    ApplicationCatalog catalog = catalogCache.get(CATALOG_CACHE_KEY);
+    if (catalog == null) {
+      // Invalidate snapshot on other cluster nodes, it will be reloaded on next
+      // read
+      catalogCache.remove(CATALOG_CACHE_KEY);
+    } else {
+      catalog = modification.apply(catalog);
+      catalogVersion = Math.max(catalogVersion, catalog.getVersion());
+      catalogCache.put(CATALOG_CACHE_KEY, catalog);
+    }
+  }
+
+  /**
+   * Creates an entity in the DAO transaction, the unique constraints of its
+   * table rejecting a concurrent insertion of the same row.
+   *
+   * @return true if created, false if rejected by a unique constraint
+   */
+  private <E> boolean createUnique(GenericDAOJPAImpl<E, Long> dao, E entity) {
+    try {
+      dao.create(entity);
+      return true;
+    } catch (PersistenceException e) {
+      if (!EntityManagerUtils.isConstraintViolation(e)) {
+        throw e;
+      }
+      // The DAO transaction was rolled back, avoid flushing the rejected row
+      // again with the next transaction of the request
+      dao.getEntityManager().detach(entity);
+      LOG.debug("{} already exists", entity.getClass().getSimpleName());
+      return false;
+    }
   }
 
   private Application toDTO(ApplicationEntity applicationEntity) {
     if (applicationEntity == null) {
       return null;
     }
-    String imageFileName = null;
-    long imageLastModified = DEFAULT_LAST_MODIFIED;
-    if(applicationEntity.getImageFileId() != null && applicationEntity.getImageFileId()>0){
-      FileInfo fileInfo = fileService.getFileInfo(applicationEntity.getImageFileId());
-      if(fileInfo != null){
-        imageFileName = fileInfo.getName();
-        if (fileInfo.getUpdatedDate() != null) {
-          imageLastModified = fileInfo.getUpdatedDate().getTime();
-        }
-      }
-    }
+    String imageFileName = applicationEntity.getImageFileName();
+    long imageLastModified = getImageLastModified(applicationEntity);
     String[] permissions = StringUtils.split(applicationEntity.getPermissions(), ",");
     Application application = new Application(applicationEntity.getId(),
                                               applicationEntity.getTitle(),
@@ -329,60 +966,13 @@ public class ApplicationCenterStorage {
     return application;
   }
 
-  private UserApplication toUserApplicationDTO(ApplicationEntity applicationEntity) {
-    if (applicationEntity == null) {
-      return null;
-    }
-    String imageFileName = null;
-    long imageLastModified = DEFAULT_LAST_MODIFIED;
-    if(applicationEntity.getImageFileId() != null && applicationEntity.getImageFileId()>0){
-      FileInfo fileInfo = fileService.getFileInfo(applicationEntity.getImageFileId());
-      if(fileInfo != null){
-        imageFileName = fileInfo.getName();
-        if (fileInfo.getUpdatedDate() != null) {
-          imageLastModified = fileInfo.getUpdatedDate().getTime();
-        }
-      }
-    }
-    String[] permissions = StringUtils.split(applicationEntity.getPermissions(), ",");
-    UserApplication userApplication = new UserApplication(applicationEntity.getId(),
-                                                          applicationEntity.getTitle(),
-                                                          applicationEntity.getUrl(),
-                                                          applicationEntity.getHelpPageUrl(),
-                                                          applicationEntity.getImageFileId(),
-                                                          imageLastModified,
-                                                          null,
-                                                          imageFileName,
-                                                          applicationEntity.getDescription(),
-                                                          applicationEntity.isSystem(),
-                                                          applicationEntity.isActive(),
-                                                          applicationEntity.isMandatory(),
-                                                          applicationEntity.isMobile(),
-                                                          false,
-                                                          applicationEntity.isChangedManually(),
-                                                          permissions);
-    userApplication.setSystem(applicationEntity.isSystem());
-    userApplication.setHelpPageURL(applicationEntity.getHelpPageUrl());
-    userApplication.setIsMobile(applicationEntity.isMobile());
-    return userApplication;
-  }
-
   private UserApplication toUserApplicationDTO(FavoriteApplicationEntity favoriteApplicationEntity) {
     if (favoriteApplicationEntity == null) {
       return null;
     }
     ApplicationEntity applicationEntity = favoriteApplicationEntity.getApplication();
-    String imageFileName = null;
-    long imageLastModified = DEFAULT_LAST_MODIFIED;
-    if (applicationEntity.getImageFileId() != null && applicationEntity.getImageFileId() > 0) {
-      FileInfo fileInfo = fileService.getFileInfo(applicationEntity.getImageFileId());
-      if (fileInfo != null) {
-        imageFileName = fileInfo.getName();
-        if (fileInfo.getUpdatedDate() != null) {
-          imageLastModified = fileInfo.getUpdatedDate().getTime();
-        }
-      }
-    }
+    String imageFileName = applicationEntity.getImageFileName();
+    long imageLastModified = getImageLastModified(applicationEntity);
     String[] permissions = StringUtils.split(applicationEntity.getPermissions(), ",");
     UserApplication userApplication = new UserApplication(applicationEntity.getId(),
                                                           applicationEntity.getTitle(),
@@ -427,11 +1017,117 @@ public class ApplicationCenterStorage {
     return applicationEntity;
   }
 
-  private ApplicationImage updateAppImageFileItem(Long fileId, String fileName, String fileBody) throws Exception { // NOSONAR
+  private boolean isFavoritePurgeNeeded(FavoritePurgeEntity favoritePurge) {
+    ApplicationEntity applicationEntity = applicationDAO.find(favoritePurge.getApplicationId());
+    if (favoritePurge.getReason() == FavoritePurgeEntity.Reason.MANDATORY) {
+      return applicationEntity != null && applicationEntity.isMandatory();
+    } else {
+      return applicationEntity == null;
+    }
+  }
+
+  private long getImageLastModified(ApplicationEntity applicationEntity) {
+    if (applicationEntity.getImageFileId() != null && applicationEntity.getImageFileId() > 0
+        && applicationEntity.getImageUpdatedDate() != null) {
+      return applicationEntity.getImageUpdatedDate().getTime();
+    }
+    return DEFAULT_LAST_MODIFIED;
+  }
+
+  private void setImageMetadata(ApplicationEntity applicationEntity, FileInfo imageFileInfo) {
+    applicationEntity.setImageFileId(imageFileInfo.getId());
+    applicationEntity.setImageFileName(imageFileInfo.getName());
+    applicationEntity.setImageContentType(imageFileInfo.getMimetype());
+    applicationEntity.setImageSize(imageFileInfo.getSize());
+    applicationEntity.setImageUpdatedDate(imageFileInfo.getUpdatedDate());
+  }
+
+  private ApplicationImage toApplicationImage(FileInfo imageFileInfo, String fileBody) {
+    if (imageFileInfo == null) {
+      return null;
+    }
+    ApplicationImage applicationImage = new ApplicationImage(imageFileInfo.getId(), imageFileInfo.getName(), fileBody);
+    if (imageFileInfo.getUpdatedDate() != null) {
+      applicationImage.setLastUpdated(imageFileInfo.getUpdatedDate().getTime());
+    }
+    return applicationImage;
+  }
+
+  private void deleteAppImageFileItem(long fileId) {
+    fileService.deleteFile(fileId);
+    illustrationCache.remove(fileId);
+    deleteAppImageVariants(fileId);
+  }
+
+  private void deleteAppImageVariants(long imageFileId) {
+    imageVariantDAO.getVariantsOfImage(imageFileId).forEach(this::deleteAppImageVariant);
+  }
+
+  private void deleteAppImageVariant(ApplicationImageVariantEntity variantEntity) {
+    if (variantEntity.getVariantFileId() != null) {
+      fileService.deleteFile(variantEntity.getVariantFileId());
+      illustrationCache.remove(variantEntity.getVariantFileId());
+    }
+    imageVariantDAO.delete(variantEntity);
+  }
+
+  private FileInfo updateAppImageFileItem(Long fileId, String fileName, String fileBody) throws Exception { // NOSONAR
+    if (StringUtils.isBlank(fileName) || StringUtils.isBlank(fileBody)) {
+      return null;
+    }
+    return writeAppImageFileItem(fileId, fileName, decodeImageBody(fileBody));
+  }
+
+  private void attachAppImageFileItem(ApplicationEntity applicationEntity, String fileName, String fileBody) throws Exception { // NOSONAR
     if (StringUtils.isBlank(fileName) || StringUtils.isBlank(fileBody)) {
+      return;
+    }
+    byte[] imageContent = decodeImageBody(fileBody);
+    FileInfo imageFileInfo = writeAppImageFileItem(null, fileName, imageContent);
+    if (imageFileInfo != null) {
+      setImageMetadata(applicationEntity, imageFileInfo);
+      applicationEntity.setImageHash(computeHash(imageContent));
+    }
+  }
+
+  /**
+   * @return the hash of the stored image, computed from the file content for
+   *         images stored before hashes were persisted
+   */
+  private String getStoredImageHash(ApplicationEntity applicationEntity) {
+    if (applicationEntity.getImageHash() != null) {
+      return applicationEntity.getImageHash();
+    }
+    try {
+      FileItem fileItem = fileService.getFile(applicationEntity.getImageFileId());
+      return fileItem == null || fileItem.getAsByte() == null ? null : computeHash(fileItem.getAsByte());
+    } catch (Exception e) {
+      LOG.debug("Can't compute hash of application image {}", applicationEntity.getImageFileId(), e);
       return null;
     }
+  }
 
+  /**
+   * @param content content to hash
+   * @return the SHA-256 hexadecimal hash of the content
+   */
+  public static String computeHash(byte[] content) {
+    try {
+      return toHex(MessageDigest.getInstance(HASH_ALGORITHM).digest(content));
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException(HASH_ALGORITHM + " algorithm isn't available", e);
+    }
+  }
+
+  static String toHex(byte[] hash) {
+    StringBuilder hexHash = new StringBuilder(hash.length * 2);
+    for (byte hashByte : hash) {
+      hexHash.append(Character.forDigit((hashByte >> 4) & 0xF, 16)).append(Character.forDigit(hashByte & 0xF, 16));
+    }
+    return hexHash.toString();
+  }
+
+  private byte[] decodeImageBody(String fileBody) throws UnsupportedEncodingException {
     String fileContent = fileBody;
     if (fileBody.contains("base64,")) {
       String[] file = fileBody.split("base64,");
@@ -443,22 +1139,46 @@ public class ApplicationCenterStorage {
     if (decodedBytes != null) {
       bytesContent = decodedBytes;
     }
+    return bytesContent;
+  }
+
+  private FileInfo writeAppImageFileItem(Long fileId, String fileName, byte[] bytesContent) throws Exception { // NOSONAR
+    return writeAppImageFileItem(fileId,
+                                 fileName,
+                                 "image/png",
+                                 bytesContent.length,
+                                 new ByteArrayInputStream(bytesContent));
+  }
+
+  private FileInfo writeAppImageFileItem(Long fileId, String fileName, ApplicationImageUpload imageUpload) throws Exception { // NOSONAR
+    try (InputStream inputStream = imageUpload.getInputStream()) {
+      return writeAppImageFileItem(fileId, fileName, imageUpload.getMimeType(), imageUpload.getSize(), inputStream);
+    }
+  }
+
+  private FileInfo writeAppImageFileItem(Long fileId,
+                                         String fileName,
+                                         String mimeType,
+                                         long size,
+                                         InputStream inputStream) throws Exception { // NOSONAR
     FileItem fileItem = new FileItem(fileId,
                                      fileName,
-                                     "image/png",
+                                     mimeType,
                                      NAME_SPACE,
-                                     bytesContent.length,
+                                     size,
                                      new Date(),
                                      null,
                                      false,
-                                     new ByteArrayInputStream(bytesContent));
+                                     inputStream);
     if (fileId != null && fileId > 0) {
       fileItem = fileService.updateFile(fileItem);
+      illustrationCache.remove(fileId);
+      deleteAppImageVariants(fileId);
     } else {
       fileItem = fileService.writeFile(fileItem);
     }
-    Long id = fileItem == null || fileItem.getFileInfo() == null ? null : fileItem.getFileInfo().getId();
-    return new ApplicationImage(id, fileName, fileBody);
+    return fileItem == null || fileItem.getFileInfo() == null || fileItem.getFileInfo().getId() == null ? null
+                                                                                                      : fileItem.getFileInfo();
   }
 
 }
@@ -0,0 +1,339 @@
+/*
+ * This file is part of the Meeds project (https://meeds.io/).
+ * Copyright (C) 2020 Meeds Association
+ * contact@meeds.io
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.exoplatform.appcenter.storage;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.exoplatform.commons.file.model.FileInfo;
+import org.exoplatform.container.xml.InitParams;
+import org.exoplatform.management.annotations.Managed;
+import org.exoplatform.management.annotations.ManagedDescription;
+import org.exoplatform.management.jmx.annotations.NameTemplate;
+import org.exoplatform.management.jmx.annotations.Property;
+import org.exoplatform.services.cache.CacheService;
+import org.exoplatform.services.cache.ExoCache;
+
+/**
+ * A byte-budgeted LRU cache of application illustrations. The images content
+ * is stored off-heap in direct {@link ByteBuffer}s, thus a few dozens of
+ * frequently displayed icons don't weigh on the garbage collector. The
+ * content is local to the node while its validity is tracked in a cluster
+ * aware {@link ExoCache} of images versions: an image written on a node
+ * invalidates its version on all nodes, thus the content cached by other nodes
+ * isn't served anymore. Entries also expire after a live time.
+ */
+@Managed
+@NameTemplate({ @Property(key = "service", value = "appcenter"), @Property(key = "view", value = "IllustrationCache") })
+@ManagedDescription("Application illustrations cache")
+public class ApplicationIllustrationCache {
+
+  public static final long                      DEFAULT_BUDGET_SIZE    = 8L * 1024 * 1024;
+
+  public static final long                      DEFAULT_MAX_ENTRY_SIZE = 256L * 1024;
+
+  public static final long                      DEFAULT_LIVE_TIME      = 600;
+
+  public static final String                    VERSION_CACHE_NAME     = "appcenter.IllustrationVersionCache";
+
+  private final Map<Long, CachedIllustration>   entries                = new LinkedHashMap<>(16, 0.75f, true);
+
+  /** Last updated time of cached images, indexed by file id */
+  private final ExoCache<Long, Long>            versionCache;
+
+  private final AtomicLong                      hitCount               = new AtomicLong();
+
+  private final AtomicLong                      missCount              = new AtomicLong();
+
+  private final AtomicLong                      evictionCount          = new AtomicLong();
+
+  private long                                  budgetSize             = DEFAULT_BUDGET_SIZE;
+
+  private long                                  maxEntrySize           = DEFAULT_MAX_ENTRY_SIZE;
+
+  private long                                  liveTimeMillis         = DEFAULT_LIVE_TIME * 1000;
+
+  private long                                  usedSize;
+
+  public ApplicationIllustrationCache(CacheService cacheService, InitParams params) {
+    this.versionCache = cacheService.getCacheInstance(VERSION_CACHE_NAME);
+    if (params != null) {
+      if (params.containsKey("budget.size")) {
+        this.budgetSize = Long.parseLong(params.getValueParam("budget.size").getValue());
+      }
+      if (params.containsKey("max.entry.size")) {
+        this.maxEntrySize = Long.parseLong(params.getValueParam("max.entry.size").getValue());
+      }
+      if (params.containsKey("live.time")) {
+        this.liveTimeMillis = Long.parseLong(params.getValueParam("live.time").getValue()) * 1000;
+      }
+    }
+    this.maxEntrySize = Math.min(Math.min(this.maxEntrySize, this.budgetSize), Integer.MAX_VALUE);
+  }
+
+  /**
+   * Retrieves a cached illustration and counts the lookup as hit or miss.
+   *
+   * @param fileId image file identifier
+   * @return {@link CachedIllustration} or null if not cached
+   */
+  public CachedIllustration get(long fileId) {
+    CachedIllustration illustration = peek(fileId);
+    if (illustration == null) {
+      missCount.incrementAndGet();
+    } else {
+      hitCount.incrementAndGet();
+    }
+    return illustration;
+  }
+
+  /**
+   * Retrieves a cached illustration without modifying the hit and miss
+   * statistics. An illustration which version was invalidated in cluster is
+   * evicted.
+   *
+   * @param fileId image file identifier
+   * @return {@link CachedIllustration} or null if not cached
+   */
+  public synchronized CachedIllustration peek(long fileId) {
+    CachedIllustration illustration = entries.get(fileId);
+    if (illustration != null
+        && (illustration.isExpired(liveTimeMillis) || !illustration.isVersion(versionCache.get(fileId)))) {
+      evict(fileId);
+      return null;
+    }
+    return illustration;
+  }
+
+  /**
+   * @param fileInfo image metadata
+   * @return true if the image size fits in the cache
+   */
+  public boolean isCacheable(FileInfo fileInfo) {
+    return fileInfo != null && fileInfo.getId() != null && fileInfo.getSize() >= 0 && fileInfo.getSize() <= maxEntrySize;
+  }
+
+  /**
+   * Copies the image content in a direct buffer and caches it, the least
+   * recently used illustrations are evicted when the budget is exceeded.
+   *
+   * @param fileInfo image metadata
+   * @param inputStream image content, not closed by this method
+   * @return the cached illustration
+   * @throws IOException if an error occurs while reading the content
+   */
+  public CachedIllustration put(FileInfo fileInfo, InputStream inputStream) throws IOException {
+    if (!isCacheable(fileInfo)) {
+      throw new IllegalArgumentException("Illustration with id " + (fileInfo == null ? null : fileInfo.getId())
+          + " can't be cached");
+    }
+    ByteBuffer content = ByteBuffer.allocateDirect((int) fileInfo.getSize());
+    ReadableByteChannel channel = Channels.newChannel(inputStream);
+    while (content.hasRemaining() && channel.read(content) >= 0) {
+      // Read until the buffer is filled or the end of stream is reached
+    }
+    content.flip();
+    CachedIllustration illustration = new CachedIllustration(fileInfo, content.asReadOnlyBuffer());
+    if (illustration.getSize() != fileInfo.getSize()) {
+      // Content doesn't match its metadata, don't keep it
+      return illustration;
+    }
+    synchronized (this) {
+      evict(fileInfo.getId());
+      // Local put to not invalidate the illustration on other cluster nodes
+      versionCache.putLocal(fileInfo.getId(), illustration.getVersion());
+      entries.put(fileInfo.getId(), illustration);
+      usedSize += illustration.getSize();
+      Iterator<CachedIllustration> iterator = entries.values().iterator();
+      while (usedSize > budgetSize && iterator.hasNext()) {
+        usedSize -= iterator.next().getSize();
+        iterator.remove();
+        evictionCount.incrementAndGet();
+      }
+    }
+    return illustration;
+  }
+
+  /**
+   * Invalidates a cached illustration on all cluster nodes
+   *
+   * @param fileId image file identifier
+   */
+  public synchronized void remove(long fileId) {
+    evict(fileId);
+    versionCache.remove(fileId);
+  }
+
+  private void evict(long fileId) {
+    CachedIllustration illustration = entries.remove(fileId);
+    if (illustration != null) {
+      usedSize -= illustration.getSize();
+    }
+  }
+
+  @Managed
+  @ManagedDescription("Remove all cached illustrations")
+  public synchronized void clear() {
+    entries.clear();
+    usedSize = 0;
+  }
+
+  @Managed
+  @ManagedDescription("Count of illustrations content read from cache")
+  public long getHitCount() {
+    return hitCount.get();
+  }
+
+  @Managed
+  @ManagedDescription("Count of illustrations content read from file storage")
+  public long getMissCount() {
+    return missCount.get();
+  }
+
+  @Managed
+  @ManagedDescription("Count of illustrations evicted to respect the budget size")
+  public long getEvictionCount() {
+    return evictionCount.get();
+  }
+
+  @Managed
+  @ManagedDescription("Ratio of illustrations content read from cache")
+  public double getHitRatio() {
+    long hits = hitCount.get();
+    long lookups = hits + missCount.get();
+    return lookups == 0 ? 0 : (double) hits / lookups;
+  }
+
+  @Managed
+  @ManagedDescription("Count of cached illustrations")
+  public synchronized int getSize() {
+    return entries.size();
+  }
+
+  @Managed
+  @ManagedDescription("Off-heap size in bytes used by cached illustrations")
+  public synchronized long getUsedSize() {
+    return usedSize;
+  }
+
+  @Managed
+  @ManagedDescription("Maximum off-heap size in bytes of cached illustrations")
+  public long getBudgetSize() {
+    return budgetSize;
+  }
+
+  @Managed
+  @ManagedDescription("Maximum size in bytes of a cached illustration")
+  public long getMaxEntrySize() {
+    return maxEntrySize;
+  }
+
+  /**
+   * An illustration content cached in a read-only direct buffer with its
+   * metadata.
+   */
+  public static final class CachedIllustration {
+
+    private final FileInfo   fileInfo;
+
+    private final ByteBuffer content;
+
+    private final long       cachedTime = System.currentTimeMillis();
+
+    CachedIllustration(FileInfo fileInfo, ByteBuffer content) {
+      this.fileInfo = fileInfo;
+      this.content = content;
+    }
+
+    public FileInfo getFileInfo() {
+      return fileInfo;
+    }
+
+    public int getSize() {
+      return content.limit();
+    }
+
+    /**
+     * @return a new {@link InputStream} reading the cached content, each
+     *         stream has its own position
+     */
+    public InputStream getInputStream() {
+      return new ByteBufferInputStream(content.duplicate());
+    }
+
+    long getVersion() {
+      return fileInfo.getUpdatedDate() == null ? 0 : fileInfo.getUpdatedDate().getTime();
+    }
+
+    boolean isVersion(Long version) {
+      return version != null && version == getVersion();
+    }
+
+    boolean isExpired(long liveTimeMillis) {
+      return liveTimeMillis > 0 && System.currentTimeMillis() - cachedTime > liveTimeMillis;
+    }
+
+  }
+
+  private static final class ByteBufferInputStream extends InputStream {
+
+    private final ByteBuffer buffer;
+
+    ByteBufferInputStream(ByteBuffer buffer) {
+      this.buffer = buffer;
+    }
+
+    @Override
+    public int read() {
+      return buffer.hasRemaining() ? buffer.get() & 0xFF : -1;
+    }
+
+    @Override
+    public int read(byte[] bytes, int offset, int length) {
+      if (length == 0) {
+        return 0;
+      }
+      if (!buffer.hasRemaining()) {
+        return -1;
+      }
+      int count = Math.min(length, buffer.remaining());
+      buffer.get(bytes, offset, count);
+      return count;
+    }
+
+    @Override
+    public long skip(long count) {
+      int skipped = (int) Math.max(Math.min(count, buffer.remaining()), 0);
+      buffer.position(buffer.position() + skipped);
+      return skipped;
+    }
+
+    @Override
+    public int available() {
+      return buffer.remaining();
+    }
+
+  }
+
+}
@@ -0,0 +1,129 @@
+/*
+ * This file is part of the Meeds project (https://meeds.io/).
+ * Copyright (C) 2020 Meeds Association
+ * contact@meeds.io
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.exoplatform.appcenter.storage;
+
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Iterator;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+
+/**
+ * Downscales applications images to PNG variants fitting in a square.
+ */
+public final class ApplicationImageResizer {
+
+  /**
+   * Maximum count of pixels of a resized image, to not decode images which
+   * dimensions would require gigabytes of memory
+   */
+  public static final long MAX_PIXELS = 40L * 1000 * 1000;
+
+  private ApplicationImageResizer() {
+  }
+
+  /**
+   * Downscales an image, preserving its aspect ratio, to fit in a square of
+   * the given size.
+   *
+   * @param inputStream original image content
+   * @param size maximum width and height in pixels
+   * @return PNG content of the downscaled image or null if the image already
+   *         fits in the square or its format isn't supported
+   * @throws IOException if an error occurs while decoding or encoding the
+   *           image, or if the image exceeds {@link #MAX_PIXELS}
+   */
+  public static byte[] resize(InputStream inputStream, int size) throws IOException {
+    if (size <= 0) {
+      throw new IllegalArgumentException("size must be a positive integer");
+    }
+    BufferedImage image;
+    int targetWidth;
+    int targetHeight;
+    try (ImageInputStream imageInputStream = ImageIO.createImageInputStream(inputStream)) {
+      Iterator<ImageReader> readers = imageInputStream == null ? null : ImageIO.getImageReaders(imageInputStream);
+      if (readers == null || !readers.hasNext()) {
+        return null;
+      }
+      ImageReader reader = readers.next();
+      try {
+        reader.setInput(imageInputStream, true, true);
+        // Read the dimensions from the header only, before decoding pixels
+        int originalWidth = reader.getWidth(0);
+        int originalHeight = reader.getHeight(0);
+        if (originalWidth <= size && originalHeight <= size) {
+          return null;
+        }
+        if ((long) originalWidth * originalHeight > MAX_PIXELS) {
+          throw new IOException("Image of " + originalWidth + "x" + originalHeight + " pixels exceeds the maximum of "
+              + MAX_PIXELS + " pixels to resize");
+        }
+        double ratio = Math.min((double) size / originalWidth, (double) size / originalHeight);
+        targetWidth = Math.max((int) Math.round(originalWidth * ratio), 1);
+        targetHeight = Math.max((int) Math.round(originalHeight * ratio), 1);
+
+        // Skip pixels while decoding, keeping at least twice the target size
+        // for the progressive downscale
+        int subsampling = Math.max(Math.min(originalWidth / (2 * targetWidth), originalHeight / (2 * targetHeight)), 1);
+        ImageReadParam readParam = reader.getDefaultReadParam();
+        readParam.setSourceSubsampling(subsampling, subsampling, 0, 0);
+        image = reader.read(0, readParam);
+      } finally {
+        reader.dispose();
+      }
+    }
+    if (image == null) {
+      return null;
+    }
+
+    // Halve the image progressively, a single bilinear pass loses details
+    // when the scale factor is below one half
+    BufferedImage resizedImage = image;
+    int width = image.getWidth();
+    int height = image.getHeight();
+    do {
+      width = Math.max(width / 2, targetWidth);
+      height = Math.max(height / 2, targetHeight);
+      resizedImage = scale(resizedImage, width, height);
+    } while (width != targetWidth || height != targetHeight);
+
+    ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+    ImageIO.write(resizedImage, "png", outputStream);
+    return outputStream.toByteArray();
+  }
+
+  private static BufferedImage scale(BufferedImage image, int width, int height) {
+    BufferedImage scaledImage = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+    Graphics2D graphics = scaledImage.createGraphics();
+    try {
+      graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+      graphics.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+      graphics.drawImage(image, 0, 0, width, height, null);
+    } finally {
+      graphics.dispose();
+    }
+    return scaledImage;
+  }
+
+}
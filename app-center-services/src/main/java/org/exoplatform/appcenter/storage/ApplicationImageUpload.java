@@ -0,0 +1,179 @@
+/*
+ * This file is part of the Meeds project (https://meeds.io/).
+ * Copyright (C) 2020 Meeds Association
+ * contact@meeds.io
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.exoplatform.appcenter.storage;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+import org.exoplatform.appcenter.service.ApplicationImageTooLargeException;
+
+/**
+ * An uploaded image spooled to a temporary file while its hash is computed and
+ * its size is checked, thus the image content is never held in memory. The
+ * image type is detected from its content, not from the request headers.
+ */
+public final class ApplicationImageUpload implements Closeable {
+
+  private static final int    BUFFER_SIZE  = 8192;
+
+  /** Count of leading bytes needed to detect supported image types */
+  private static final int    HEADER_SIZE  = 12;
+
+  private static final byte[] PNG_MAGIC    = { (byte) 0x89, 'P', 'N', 'G', '\r', '\n', 0x1A, '\n' };
+
+  private static final byte[] JPEG_MAGIC   = { (byte) 0xFF, (byte) 0xD8, (byte) 0xFF };
+
+  private static final byte[] GIF87_MAGIC  = { 'G', 'I', 'F', '8', '7', 'a' };
+
+  private static final byte[] GIF89_MAGIC  = { 'G', 'I', 'F', '8', '9', 'a' };
+
+  private static final byte[] RIFF_MAGIC   = { 'R', 'I', 'F', 'F' };
+
+  private static final byte[] WEBP_MAGIC   = { 'W', 'E', 'B', 'P' };
+
+  private final File          file;
+
+  private final long          size;
+
+  private final String        mimeType;
+
+  private final String        hash;
+
+  private ApplicationImageUpload(File file, long size, String mimeType, String hash) {
+    this.file = file;
+    this.size = size;
+    this.mimeType = mimeType;
+    this.hash = hash;
+  }
+
+  /**
+   * Spools an uploaded image to a temporary file
+   *
+   * @param inputStream image content, not closed by this method
+   * @param maxSize maximum allowed size in bytes
+   * @return {@link ApplicationImageUpload} to close once stored
+   * @throws ApplicationImageTooLargeException if the image size exceeds the
+   *           maximum allowed size
+   * @throws IllegalArgumentException if the content is empty or isn't a PNG,
+   *           JPEG, GIF or WEBP image
+   * @throws IOException if an error occurs while reading or spooling the
+   *           content
+   */
+  public static ApplicationImageUpload read(InputStream inputStream, long maxSize) throws ApplicationImageTooLargeException,
+                                                                                   IOException {
+    if (inputStream == null) {
+      throw new IllegalArgumentException("inputStream is mandatory");
+    }
+    MessageDigest digest;
+    try {
+      digest = MessageDigest.getInstance(ApplicationCenterStorage.HASH_ALGORITHM);
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException(ApplicationCenterStorage.HASH_ALGORITHM + " algorithm isn't available", e);
+    }
+    File file = File.createTempFile("appcenter-image-", ".upload");
+    try {
+      byte[] header = new byte[HEADER_SIZE];
+      long size = 0;
+      try (OutputStream outputStream = new BufferedOutputStream(new FileOutputStream(file))) {
+        DigestInputStream digestInputStream = new DigestInputStream(inputStream, digest);
+        byte[] buffer = new byte[BUFFER_SIZE];
+        int count;
+        while ((count = digestInputStream.read(buffer)) >= 0) {
+          if (size < HEADER_SIZE) {
+            System.arraycopy(buffer, 0, header, (int) size, (int) Math.min(count, HEADER_SIZE - size));
+          }
+          size += count;
+          if (size > maxSize) {
+            throw new ApplicationImageTooLargeException("Image size exceeds the maximum allowed size " + maxSize);
+          }
+          outputStream.write(buffer, 0, count);
+        }
+      }
+      if (size == 0) {
+        throw new IllegalArgumentException("Image content is empty");
+      }
+      String mimeType = detectMimeType(header);
+      if (mimeType == null) {
+        throw new IllegalArgumentException("Image content isn't a supported image type");
+      }
+      return new ApplicationImageUpload(file, size, mimeType, ApplicationCenterStorage.toHex(digest.digest()));
+    } catch (IOException | ApplicationImageTooLargeException | RuntimeException e) {
+      Files.deleteIfExists(file.toPath());
+      throw e;
+    }
+  }
+
+  /**
+   * @return a new {@link InputStream} reading the spooled image
+   * @throws IOException if the temporary file can't be opened
+   */
+  public InputStream getInputStream() throws IOException {
+    return new FileInputStream(file);
+  }
+
+  public long getSize() {
+    return size;
+  }
+
+  /**
+   * @return the image content type detected from its content
+   */
+  public String getMimeType() {
+    return mimeType;
+  }
+
+  /**
+   * @return the SHA-256 hexadecimal hash of the image content
+   */
+  public String getHash() {
+    return hash;
+  }
+
+  @Override
+  public void close() throws IOException {
+    Files.deleteIfExists(file.toPath());
+  }
+
+  static String detectMimeType(byte[] header) {
+    if (startsWith(header, 0, PNG_MAGIC)) {
+      return "image/png";
+    } else if (startsWith(header, 0, JPEG_MAGIC)) {
+      return "image/jpeg";
+    } else if (startsWith(header, 0, GIF87_MAGIC) || startsWith(header, 0, GIF89_MAGIC)) {
+      return "image/gif";
+    } else if (startsWith(header, 0, RIFF_MAGIC) && startsWith(header, 8, WEBP_MAGIC)) {
+      return "image/webp";
+    }
+    return null;
+  }
+
+  private static boolean startsWith(byte[] header, int offset, byte[] magic) {
+    if (header.length < offset + magic.length) {
+      return false;
+    }
+    for (int i = 0; i < magic.length; i++) {
+      if (header[offset + i] != magic[i]) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+}
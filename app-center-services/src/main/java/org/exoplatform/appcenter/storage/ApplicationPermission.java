@@ -0,0 +1,160 @@
+/*
+ * This file is part of the Meeds project (https://meeds.io/).
+ * Copyright (C) 2020 Meeds Association
+ * contact@meeds.io
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.exoplatform.appcenter.storage;
+
+import java.io.Serializable;
+import java.util.*;
+
+import org.apache.commons.lang.StringUtils;
+
+import org.exoplatform.services.security.Identity;
+import org.exoplatform.services.security.MembershipEntry;
+
+/**
+ * An immutable and compiled application permission expression. The expression
+ * can be blank to allow everyone, a username, a group or a membership of the
+ * form 'type:group'. Permissions of stored applications are compiled once per
+ * {@link ApplicationCatalog} snapshot, see
+ * {@link ApplicationCatalog#getPermissions(org.exoplatform.appcenter.dto.Application)}.
+ */
+public final class ApplicationPermission implements Serializable {
+
+  private static final long                  serialVersionUID = -1816417440893466371L;
+
+  private static final ApplicationPermission EVERYONE         = new ApplicationPermission("", null, null, null);
+
+  private final String                       expression;
+
+  private final String                       username;
+
+  private final String                       group;
+
+  private final String                       membershipType;
+
+  private final transient MembershipEntry    membershipEntry;
+
+  private ApplicationPermission(String expression, String username, String group, String membershipType) {
+    this.expression = expression;
+    this.username = username;
+    this.group = group;
+    this.membershipType = membershipType;
+    this.membershipEntry = group == null ? null : new MembershipEntry(group, membershipType);
+  }
+
+  /**
+   * @param expression permission expression as stored in application
+   * @return compiled permission
+   */
+  public static ApplicationPermission compile(String expression) {
+    return StringUtils.isBlank(expression) ? EVERYONE : parse(expression);
+  }
+
+  /**
+   * @param expressions permission expressions as stored in application
+   * @return {@link List} of compiled permissions or null when the application
+   *         has no permission, which means that it's accessible to everyone
+   */
+  public static List<ApplicationPermission> compile(List<String> expressions) {
+    if (expressions == null) {
+      return null; // NOSONAR null has a different meaning than empty
+    }
+    List<ApplicationPermission> permissions = new ArrayList<>(expressions.size());
+    for (String expression : expressions) {
+      permissions.add(compile(expression));
+    }
+    return Collections.unmodifiableList(permissions);
+  }
+
+  public String getExpression() {
+    return expression;
+  }
+
+  /**
+   * @return true if the permission allows everyone
+   */
+  public boolean isEveryone() {
+    return username == null && group == null;
+  }
+
+  /**
+   * @return the username when the expression is a username, else null
+   */
+  public String getUsername() {
+    return username;
+  }
+
+  /**
+   * @return the group when the expression is a group or a membership, else
+   *         null
+   */
+  public String getGroup() {
+    return group;
+  }
+
+  /**
+   * @return the membership type when the expression is a membership,
+   *         {@link MembershipEntry#ANY_TYPE} when it's a group, else null
+   */
+  public String getMembershipType() {
+    return membershipType;
+  }
+
+  /**
+   * @param user login of user
+   * @param identity identity of the user, can be null if not found
+   * @return true if the user is allowed by this permission
+   */
+  public boolean matches(String user, Identity identity) {
+    if (isEveryone()) {
+      return true;
+    }
+    if (StringUtils.isBlank(user) || identity == null) {
+      return false;
+    }
+    if (username != null) {
+      return username.equals(user);
+    }
+    return identity.isMemberOf(membershipEntry);
+  }
+
+  @Override
+  public String toString() {
+    return expression;
+  }
+
+  private Object readResolve() {
+    // Rebuild the transient membership entry, a permission shared in the
+    // serialized catalog is resolved once and remains shared
+    return isEveryone() ? EVERYONE : new ApplicationPermission(expression, username, group, membershipType);
+  }
+
+  private static ApplicationPermission parse(String expression) {
+    if (expression.contains(":")) {
+      String[] expressionParts = expression.split(":");
+      if (expressionParts.length < 2) {
+        // Malformed membership, never matches
+        return new ApplicationPermission(expression, null, "", "");
+      }
+      return new ApplicationPermission(expression, null, expressionParts[1], expressionParts[0]);
+    } else if (expression.contains("/")) {
+      return new ApplicationPermission(expression, null, expression, MembershipEntry.ANY_TYPE);
+    } else {
+      return new ApplicationPermission(expression, expression, null, null);
+    }
+  }
+
+}
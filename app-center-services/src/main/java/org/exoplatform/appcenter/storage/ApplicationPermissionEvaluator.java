@@ -0,0 +1,96 @@
+/*
+ * This file is part of the Meeds project (https://meeds.io/).
+ * Copyright (C) 2020 Meeds Association
+ * contact@meeds.io
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.exoplatform.appcenter.storage;
+
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+
+import org.apache.commons.lang.StringUtils;
+
+import org.exoplatform.services.security.Identity;
+
+/**
+ * Evaluates applications permissions for a user during a single request. The
+ * user identity is retrieved at most once and each distinct
+ * {@link ApplicationPermission} is evaluated only once, whatever the number of
+ * applications of the {@link ApplicationCatalog} snapshot sharing it.
+ */
+public class ApplicationPermissionEvaluator {
+
+  private final String                              username;
+
+  private final Supplier<Identity>                  identitySupplier;
+
+  private final Map<ApplicationPermission, Boolean> evaluatedPermissions = new IdentityHashMap<>();
+
+  private Identity                                  identity;
+
+  private boolean                                   identityRetrieved;
+
+  /**
+   * @param username login of user
+   * @param identitySupplier supplier of user identity, called lazily once
+   */
+  public ApplicationPermissionEvaluator(String username, Supplier<Identity> identitySupplier) {
+    this.username = username;
+    this.identitySupplier = identitySupplier;
+  }
+
+  /**
+   * @param permissions compiled permissions of an application, see
+   *          {@link ApplicationCatalog#getPermissions(org.exoplatform.appcenter.dto.Application)}
+   * @return true if the user is allowed by at least one permission or if
+   *         permissions is null
+   */
+  public boolean hasPermission(List<ApplicationPermission> permissions) {
+    if (permissions == null) {
+      return true;
+    }
+    for (ApplicationPermission permission : permissions) {
+      if (hasPermission(permission)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private boolean hasPermission(ApplicationPermission permission) {
+    if (permission.isEveryone()) {
+      return true;
+    }
+    if (StringUtils.isBlank(username)) {
+      return false;
+    }
+    Boolean allowed = evaluatedPermissions.get(permission);
+    if (allowed == null) {
+      allowed = permission.matches(username, getIdentity());
+      evaluatedPermissions.put(permission, allowed);
+    }
+    return allowed;
+  }
+
+  private Identity getIdentity() {
+    if (!identityRetrieved) {
+      identity = identitySupplier.get();
+      identityRetrieved = true;
+    }
+    return identity;
+  }
+
+}
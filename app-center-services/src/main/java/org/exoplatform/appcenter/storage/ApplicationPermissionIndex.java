@@ -0,0 +1,136 @@
+/*
+ * This file is part of the Meeds project (https://meeds.io/).
+ * Copyright (C) 2020 Meeds Association
+ * contact@meeds.io
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.exoplatform.appcenter.storage;
+
+import java.io.Serializable;
+import java.util.*;
+
+import org.apache.commons.lang.StringUtils;
+
+import org.exoplatform.services.security.MembershipEntry;
+
+/**
+ * An inverted index of applications permissions built with an
+ * {@link ApplicationCatalog} snapshot. Each compiled permission of the snapshot
+ * is mapped to a {@link BitSet} of application ids, so that the
+ * applications authorized to a user are computed by combining the bitsets of
+ * its memberships instead of evaluating each application permission.
+ */
+public final class ApplicationPermissionIndex implements Serializable {
+
+  private static final long                       serialVersionUID = -3571262580693738284L;
+
+  /** Applications without permissions or having a blank permission */
+  private final BitSet                            unrestricted     = new BitSet();
+
+  /** Applications by username permission */
+  private final Map<String, BitSet>               byUser           = new HashMap<>();
+
+  /** Applications by group, then by membership type permission */
+  private final Map<String, Map<String, BitSet>> byGroup          = new HashMap<>();
+
+  /**
+   * @param applicationsPermissions compiled permissions by application id, a
+   *          null value meaning that the application is accessible to everyone
+   */
+  public ApplicationPermissionIndex(Map<Long, List<ApplicationPermission>> applicationsPermissions) {
+    for (Map.Entry<Long, List<ApplicationPermission>> applicationPermissions : applicationsPermissions.entrySet()) {
+      int index = toIndex(applicationPermissions.getKey());
+      List<ApplicationPermission> permissions = applicationPermissions.getValue();
+      if (permissions == null) {
+        unrestricted.set(index);
+        continue;
+      }
+      for (ApplicationPermission permission : permissions) {
+        addPermission(permission, index);
+      }
+    }
+  }
+
+  /**
+   * Computes the applications authorized to a user. This is equivalent to
+   * evaluating each permission expression of applications using
+   * {@link org.exoplatform.services.security.Identity#isMemberOf(MembershipEntry)}
+   * or comparing it to the username.
+   *
+   * @param username user login, null when the user identity can't be retrieved
+   * @param memberships user memberships
+   * @return a new {@link BitSet} of authorized application ids
+   */
+  public BitSet getAuthorizedApplications(String username, Collection<MembershipEntry> memberships) {
+    BitSet authorized = (BitSet) unrestricted.clone();
+    if (StringUtils.isBlank(username)) {
+      return authorized;
+    }
+    BitSet userApplications = byUser.get(username);
+    if (userApplications != null) {
+      authorized.or(userApplications);
+    }
+    if (memberships != null) {
+      for (MembershipEntry membership : memberships) {
+        Map<String, BitSet> groupApplications = byGroup.get(membership.getGroup());
+        if (groupApplications == null) {
+          continue;
+        }
+        if (MembershipEntry.ANY_TYPE.equals(membership.getMembershipType())) {
+          groupApplications.values().forEach(authorized::or);
+        } else {
+          BitSet typeApplications = groupApplications.get(membership.getMembershipType());
+          if (typeApplications != null) {
+            authorized.or(typeApplications);
+          }
+          BitSet anyTypeApplications = groupApplications.get(MembershipEntry.ANY_TYPE);
+          if (anyTypeApplications != null) {
+            authorized.or(anyTypeApplications);
+          }
+        }
+      }
+    }
+    return authorized;
+  }
+
+  /**
+   * @param authorized bitset computed using
+   *          {@link #getAuthorizedApplications(String, Collection)}
+   * @param applicationId application id
+   * @return true if the application id is included in the bitset
+   */
+  public static boolean isAuthorized(BitSet authorized, Long applicationId) {
+    return applicationId != null && applicationId >= 0 && applicationId <= Integer.MAX_VALUE
+        && authorized.get(applicationId.intValue());
+  }
+
+  private void addPermission(ApplicationPermission permission, int index) {
+    if (permission.isEveryone()) {
+      unrestricted.set(index);
+    } else if (permission.getUsername() != null) {
+      byUser.computeIfAbsent(permission.getUsername(), key -> new BitSet()).set(index);
+    } else {
+      byGroup.computeIfAbsent(permission.getGroup(), key -> new HashMap<>())
+             .computeIfAbsent(permission.getMembershipType(), key -> new BitSet())
+             .set(index);
+    }
+  }
+
+  static int toIndex(long applicationId) {
+    if (applicationId < 0 || applicationId > Integer.MAX_VALUE) {
+      throw new IllegalStateException("Application id " + applicationId + " can't be indexed");
+    }
+    return (int) applicationId;
+  }
+
+}
@@ -0,0 +1,263 @@
+/*
+ * This file is part of the Meeds project (https://meeds.io/).
+ * Copyright (C) 2020 Meeds Association
+ * contact@meeds.io
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.exoplatform.appcenter.storage;
+
+import java.io.Serializable;
+import java.text.Normalizer;
+import java.util.*;
+import java.util.regex.Pattern;
+
+import org.apache.commons.lang.StringUtils;
+
+import org.exoplatform.appcenter.dto.Application;
+
+/**
+ * An immutable trigram index of applications title, description and url used
+ * to search applications by keyword without scanning all of them. The indexed
+ * values and the searched keyword are folded to lowercase without accents.
+ * Each modification returns a new index sharing the unmodified posting lists
+ * with the previous one.
+ */
+public final class ApplicationSearchIndex implements Serializable {
+
+  private static final long    serialVersionUID      = -6230541853154542113L;
+
+  public static final int      RANK_TITLE_PREFIX     = 0;
+
+  public static final int      RANK_TITLE_INFIX      = 1;
+
+  public static final int      RANK_DESCRIPTION      = 2;
+
+  public static final int      RANK_URL              = 3;
+
+  private static final int     GRAM_SIZE             = 3;
+
+  private static final Pattern DIACRITICAL_MARKS     = Pattern.compile("\\p{InCombiningDiacriticalMarks}+");
+
+  /** Application ids by trigram of folded title, description or url */
+  private final Map<String, BitSet>           idsByTrigram;
+
+  /** Folded searchable values by application id */
+  private final Map<Long, IndexedApplication> indexedApplications;
+
+  public ApplicationSearchIndex(Collection<Application> applications) {
+    this(new HashMap<>(), new HashMap<>());
+    Set<String> modifiedTrigrams = new HashSet<>();
+    for (Application application : applications) {
+      addApplication(application, modifiedTrigrams);
+    }
+  }
+
+  private ApplicationSearchIndex(Map<String, BitSet> idsByTrigram, Map<Long, IndexedApplication> indexedApplications) {
+    this.idsByTrigram = idsByTrigram;
+    this.indexedApplications = indexedApplications;
+  }
+
+  /**
+   * @param applications created or updated applications
+   * @return a new index including the applications
+   */
+  public ApplicationSearchIndex withApplications(Collection<Application> applications) {
+    ApplicationSearchIndex searchIndex = new ApplicationSearchIndex(new HashMap<>(idsByTrigram),
+                                                                    new HashMap<>(indexedApplications));
+    Set<String> modifiedTrigrams = new HashSet<>();
+    for (Application application : applications) {
+      searchIndex.removeApplication(application.getId(), modifiedTrigrams);
+      searchIndex.addApplication(application, modifiedTrigrams);
+    }
+    return searchIndex;
+  }
+
+  /**
+   * @param applicationId deleted application identifier
+   * @return a new index excluding the application
+   */
+  public ApplicationSearchIndex withoutApplication(long applicationId) {
+    ApplicationSearchIndex searchIndex = new ApplicationSearchIndex(new HashMap<>(idsByTrigram),
+                                                                    new HashMap<>(indexedApplications));
+    searchIndex.removeApplication(applicationId, new HashSet<>());
+    return searchIndex;
+  }
+
+  /**
+   * Search applications matching the keyword in title, description or url.
+   * The keyword parts separated by '*' have to be found in the same order in
+   * one of the fields.
+   *
+   * @param keyword searched keyword, mustn't be blank
+   * @return matching applications identifiers with their rank, the lower rank
+   *         being the most relevant: {@link #RANK_TITLE_PREFIX},
+   *         {@link #RANK_TITLE_INFIX}, {@link #RANK_DESCRIPTION} then
+   *         {@link #RANK_URL}
+   */
+  public Map<Long, Integer> search(String keyword) {
+    String[] keywordParts = StringUtils.split(fold(keyword).replace("%", ""), '*');
+    Map<Long, Integer> ranks = new HashMap<>();
+    if (keywordParts.length == 0) {
+      indexedApplications.keySet().forEach(applicationId -> ranks.put(applicationId, RANK_TITLE_PREFIX));
+      return ranks;
+    }
+    BitSet candidates = null;
+    for (String keywordPart : keywordParts) {
+      for (String trigram : trigrams(keywordPart)) {
+        BitSet trigramIds = idsByTrigram.get(trigram);
+        if (trigramIds == null) {
+          return ranks;
+        }
+        if (candidates == null) {
+          candidates = (BitSet) trigramIds.clone();
+        } else {
+          candidates.and(trigramIds);
+        }
+      }
+    }
+    if (candidates == null) {
+      // Keyword too short to use trigrams
+      for (IndexedApplication indexedApplication : indexedApplications.values()) {
+        addRank(ranks, indexedApplication, keywordParts);
+      }
+    } else {
+      for (int index = candidates.nextSetBit(0); index >= 0; index = candidates.nextSetBit(index + 1)) {
+        addRank(ranks, indexedApplications.get((long) index), keywordParts);
+      }
+    }
+    return ranks;
+  }
+
+  /**
+   * @param value value to fold
+   * @return lowercase value without accents
+   */
+  public static String fold(String value) {
+    if (value == null) {
+      return "";
+    }
+    String normalizedValue = Normalizer.normalize(value, Normalizer.Form.NFD);
+    return DIACRITICAL_MARKS.matcher(normalizedValue).replaceAll("").toLowerCase(Locale.ROOT);
+  }
+
+  private void addApplication(Application application, Set<String> modifiedTrigrams) {
+    IndexedApplication indexedApplication = new IndexedApplication(application);
+    indexedApplications.put(application.getId(), indexedApplication);
+    int index = ApplicationPermissionIndex.toIndex(application.getId());
+    for (String trigram : indexedApplication.allTrigrams()) {
+      getModifiableIds(trigram, modifiedTrigrams).set(index);
+    }
+  }
+
+  private void removeApplication(long applicationId, Set<String> modifiedTrigrams) {
+    IndexedApplication indexedApplication = indexedApplications.remove(applicationId);
+    if (indexedApplication == null) {
+      return;
+    }
+    int index = ApplicationPermissionIndex.toIndex(applicationId);
+    for (String trigram : indexedApplication.allTrigrams()) {
+      BitSet trigramIds = getModifiableIds(trigram, modifiedTrigrams);
+      trigramIds.clear(index);
+      if (trigramIds.isEmpty()) {
+        idsByTrigram.remove(trigram);
+        modifiedTrigrams.remove(trigram);
+      }
+    }
+  }
+
+  /**
+   * Retrieves the posting list of a trigram, copying it once when it's shared
+   * with a previous index.
+   */
+  private BitSet getModifiableIds(String trigram, Set<String> modifiedTrigrams) {
+    if (modifiedTrigrams.add(trigram)) {
+      BitSet trigramIds = idsByTrigram.get(trigram);
+      trigramIds = trigramIds == null ? new BitSet() : (BitSet) trigramIds.clone();
+      idsByTrigram.put(trigram, trigramIds);
+      return trigramIds;
+    }
+    return idsByTrigram.get(trigram);
+  }
+
+  private static void addRank(Map<Long, Integer> ranks, IndexedApplication indexedApplication, String[] keywordParts) {
+    int titleIndex = indexOf(indexedApplication.title, keywordParts);
+    if (titleIndex == 0) {
+      ranks.put(indexedApplication.id, RANK_TITLE_PREFIX);
+    } else if (titleIndex > 0) {
+      ranks.put(indexedApplication.id, RANK_TITLE_INFIX);
+    } else if (indexOf(indexedApplication.description, keywordParts) >= 0) {
+      ranks.put(indexedApplication.id, RANK_DESCRIPTION);
+    } else if (indexOf(indexedApplication.url, keywordParts) >= 0) {
+      ranks.put(indexedApplication.id, RANK_URL);
+    }
+  }
+
+  /**
+   * @return the index of the first keyword part in the value when all parts
+   *         are found in order, else -1
+   */
+  private static int indexOf(String value, String[] keywordParts) {
+    int firstIndex = -1;
+    int index = 0;
+    for (String keywordPart : keywordParts) {
+      index = value.indexOf(keywordPart, index);
+      if (index < 0) {
+        return -1;
+      }
+      if (firstIndex < 0) {
+        firstIndex = index;
+      }
+      index += keywordPart.length();
+    }
+    return firstIndex;
+  }
+
+  private static Set<String> trigrams(String value) {
+    if (value.length() < GRAM_SIZE) {
+      return Collections.emptySet();
+    }
+    Set<String> trigrams = new HashSet<>();
+    for (int i = 0; i + GRAM_SIZE <= value.length(); i++) {
+      trigrams.add(value.substring(i, i + GRAM_SIZE));
+    }
+    return trigrams;
+  }
+
+  private static final class IndexedApplication implements Serializable {
+
+    private static final long serialVersionUID = 4823374139406826264L;
+
+    private final long        id;
+
+    private final String      title;
+
+    private final String      description;
+
+    private final String      url;
+
+    private IndexedApplication(Application application) {
+      this.id = application.getId();
+      this.title = fold(application.getTitle());
+      this.description = fold(application.getDescription());
+      this.url = fold(application.getUrl());
+    }
+
+    private Set<String> allTrigrams() {
+      Set<String> trigrams = new HashSet<>(trigrams(title));
+      trigrams.addAll(trigrams(description));
+      trigrams.addAll(trigrams(url));
+      return trigrams;
+    }
+  }
+
+}
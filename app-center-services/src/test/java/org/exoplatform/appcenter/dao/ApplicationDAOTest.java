@@ -223,7 +223,7 @@ public class ApplicationDAOTest {
     applicationEntity2 = applicationDAO.create(applicationEntity2);
 
     ApplicationEntity applicationEntity3 = new ApplicationEntity(null,
-                                                                 "title2",
+                                                                 "title3",
                                                                  "url2",
                                                                  5L,
                                                                  "description2",
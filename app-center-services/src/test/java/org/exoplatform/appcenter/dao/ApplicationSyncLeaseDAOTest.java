@@ -0,0 +1,189 @@
+/*
+ * This file is part of the Meeds project (https://meeds.io/).
+ * Copyright (C) 2020 Meeds Association
+ * contact@meeds.io
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.exoplatform.appcenter.dao;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+
+import javax.persistence.EntityTransaction;
+
+import org.junit.*;
+
+import org.exoplatform.container.*;
+import org.exoplatform.container.component.RequestLifeCycle;
+import org.exoplatform.services.naming.InitialContextInitializer;
+
+public class ApplicationSyncLeaseDAOTest {
+
+  private static final String LEASE_NAME = "TEST_LEASE";
+
+  private PortalContainer     container;
+
+  @BeforeClass
+  @SuppressWarnings("deprecation")
+  public static void startDB() {
+    RootContainer rootContainer = RootContainer.getInstance();
+    InitialContextInitializer initializer = rootContainer.getComponentInstanceOfType(InitialContextInitializer.class);
+    initializer.recall(); // NOSONAR
+  }
+
+  @Before
+  public void setup() {
+    container = PortalContainer.getInstance();
+    assertNotNull(container);
+    ExoContainerContext.setCurrentContainer(container);
+    RequestLifeCycle.begin(container);
+  }
+
+  @After
+  public void teardown() {
+    ApplicationSyncLeaseDAO syncLeaseDAO = ExoContainerContext.getService(ApplicationSyncLeaseDAO.class);
+    syncLeaseDAO.deleteAll();
+
+    RequestLifeCycle.end();
+    container.stop();
+    container = null;
+    ExoContainerContext.setCurrentContainer(null);
+  }
+
+  @Test
+  public void testAcquireLease() {
+    ApplicationSyncLeaseDAO syncLeaseDAO = ExoContainerContext.getService(ApplicationSyncLeaseDAO.class);
+    long now = System.currentTimeMillis();
+    assertNull(syncLeaseDAO.getLeaseOwner(LEASE_NAME));
+
+    assertTrue(syncLeaseDAO.acquireLease(LEASE_NAME, "node1", now, now + 60000));
+    assertEquals("node1", syncLeaseDAO.getLeaseOwner(LEASE_NAME));
+    assertFalse(syncLeaseDAO.acquireLease(LEASE_NAME, "node2", now, now + 60000));
+    // Renew lease
+    assertTrue(syncLeaseDAO.acquireLease(LEASE_NAME, "node1", now, now + 120000));
+
+    assertFalse(syncLeaseDAO.releaseLease(LEASE_NAME, "node2"));
+    assertEquals("node1", syncLeaseDAO.getLeaseOwner(LEASE_NAME));
+    assertTrue(syncLeaseDAO.releaseLease(LEASE_NAME, "node1"));
+    assertNull(syncLeaseDAO.getLeaseOwner(LEASE_NAME));
+
+    assertTrue(syncLeaseDAO.acquireLease(LEASE_NAME, "node2", now, now + 60000));
+    assertEquals("node2", syncLeaseDAO.getLeaseOwner(LEASE_NAME));
+  }
+
+  @Test
+  public void testAcquireExpiredLease() {
+    ApplicationSyncLeaseDAO syncLeaseDAO = ExoContainerContext.getService(ApplicationSyncLeaseDAO.class);
+    long now = System.currentTimeMillis();
+    assertTrue(syncLeaseDAO.acquireLease(LEASE_NAME, "node1", now - 60000, now - 1));
+    assertEquals("node1", syncLeaseDAO.getLeaseOwner(LEASE_NAME));
+
+    assertTrue(syncLeaseDAO.acquireLease(LEASE_NAME, "node2", now, now + 60000));
+    assertEquals("node2", syncLeaseDAO.getLeaseOwner(LEASE_NAME));
+    assertFalse(syncLeaseDAO.releaseLease(LEASE_NAME, "node1"));
+  }
+
+  @Test
+  public void testCompleteLease() {
+    ApplicationSyncLeaseDAO syncLeaseDAO = ExoContainerContext.getService(ApplicationSyncLeaseDAO.class);
+    long now = System.currentTimeMillis();
+    assertTrue(syncLeaseDAO.acquireLease(LEASE_NAME, "node1", now, now + 60000));
+    assertNull(syncLeaseDAO.getCompletedFingerprint(LEASE_NAME));
+
+    assertFalse(syncLeaseDAO.completeLease(LEASE_NAME, "node2", now, "fingerprint"));
+    assertNull(syncLeaseDAO.getCompletedFingerprint(LEASE_NAME));
+    assertTrue(syncLeaseDAO.completeLease(LEASE_NAME, "node1", now, "fingerprint"));
+    assertEquals("fingerprint", syncLeaseDAO.getCompletedFingerprint(LEASE_NAME));
+    assertNull(syncLeaseDAO.getLeaseOwner(LEASE_NAME));
+
+    // A new holder doesn't erase the last completion until it completes
+    assertTrue(syncLeaseDAO.acquireLease(LEASE_NAME, "node2", now, now + 60000));
+    assertTrue(syncLeaseDAO.releaseLease(LEASE_NAME, "node2"));
+    assertEquals("fingerprint", syncLeaseDAO.getCompletedFingerprint(LEASE_NAME));
+  }
+
+  @Test
+  public void testAcquireLeaseInTransaction() {
+    ApplicationSyncLeaseDAO syncLeaseDAO = ExoContainerContext.getService(ApplicationSyncLeaseDAO.class);
+    long now = System.currentTimeMillis();
+    EntityTransaction transaction = syncLeaseDAO.getEntityManager().getTransaction();
+    transaction.begin();
+    try {
+      assertTrue(syncLeaseDAO.acquireLease(LEASE_NAME, "node1", now, now + 60000));
+    } finally {
+      transaction.rollback();
+    }
+    // The lease is committed whatever the transaction of the caller
+    assertEquals("node1", syncLeaseDAO.getLeaseOwner(LEASE_NAME));
+    assertFalse(syncLeaseDAO.acquireLease(LEASE_NAME, "node2", now, now + 60000));
+  }
+
+  @Test
+  public void testAcquireNewLeaseConcurrently() throws Exception {
+    ApplicationSyncLeaseDAO syncLeaseDAO = ExoContainerContext.getService(ApplicationSyncLeaseDAO.class);
+    assertNull(syncLeaseDAO.find(LEASE_NAME));
+    // The lease doesn't exist yet, all the nodes race to insert it
+    assertEquals(1, acquireLeaseConcurrently(syncLeaseDAO));
+    assertNotNull(syncLeaseDAO.getLeaseOwner(LEASE_NAME));
+  }
+
+  @Test
+  public void testAcquireLeaseConcurrently() throws Exception {
+    ApplicationSyncLeaseDAO syncLeaseDAO = ExoContainerContext.getService(ApplicationSyncLeaseDAO.class);
+    long now = System.currentTimeMillis();
+    assertTrue(syncLeaseDAO.acquireLease(LEASE_NAME, "node0", now, now + 60000));
+    assertTrue(syncLeaseDAO.releaseLease(LEASE_NAME, "node0"));
+
+    // The lease exists, all the nodes race to update it
+    assertEquals(1, acquireLeaseConcurrently(syncLeaseDAO));
+    assertNotNull(syncLeaseDAO.getLeaseOwner(LEASE_NAME));
+  }
+
+  private int acquireLeaseConcurrently(ApplicationSyncLeaseDAO syncLeaseDAO) throws Exception {
+    long now = System.currentTimeMillis();
+    // Each thread uses its own entity manager, as nodes sharing the database
+    int nodesCount = 5;
+    ExecutorService executor = Executors.newFixedThreadPool(nodesCount);
+    CountDownLatch startLatch = new CountDownLatch(1);
+    try {
+      List<Future<Boolean>> results = new ArrayList<>();
+      for (int i = 1; i <= nodesCount; i++) {
+        String owner = "node" + i;
+        results.add(executor.submit(() -> {
+          ExoContainerContext.setCurrentContainer(container);
+          startLatch.await();
+          RequestLifeCycle.begin(container);
+          try {
+            return syncLeaseDAO.acquireLease(LEASE_NAME, owner, now, now + 60000);
+          } finally {
+            RequestLifeCycle.end();
+          }
+        }));
+      }
+      startLatch.countDown();
+      int acquiredCount = 0;
+      for (Future<Boolean> result : results) {
+        if (Boolean.TRUE.equals(result.get(30, TimeUnit.SECONDS))) {
+          acquiredCount++;
+        }
+      }
+      return acquiredCount;
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+}
@@ -18,6 +18,11 @@ package org.exoplatform.appcenter.dao;
 
 import static org.junit.Assert.*;
 
+import java.util.HashMap;
+import java.util.Map;
+
+import javax.persistence.PersistenceException;
+
 import org.junit.*;
 
 import org.exoplatform.appcenter.entity.ApplicationEntity;
@@ -183,4 +188,153 @@ public class FavoriteApplicationDAOTest {
     assertEquals(1, favoriteApplicationDAO.countFavoritesForUser("testuser4"));
   }
 
+  @Test
+  public void testGetFavoriteAppIdsByUser() {
+    ApplicationDAO applicationDAO = ExoContainerContext.getService(ApplicationDAO.class);
+    FavoriteApplicationDAO favoriteApplicationDAO = ExoContainerContext.getService(FavoriteApplicationDAO.class);
+
+    ApplicationEntity applicationEntity = applicationDAO.create(new ApplicationEntity(null,
+                                                                                      "title",
+                                                                                      "url",
+                                                                                      5L,
+                                                                                      "description",
+                                                                                      true,
+                                                                                      false,
+                                                                                      "permissions",
+                                                                                      false));
+    ApplicationEntity applicationEntity2 = applicationDAO.create(new ApplicationEntity(null,
+                                                                                       "title2",
+                                                                                       "url2",
+                                                                                       5L,
+                                                                                       "description2",
+                                                                                       true,
+                                                                                       false,
+                                                                                       "permissions",
+                                                                                       false));
+
+    assertEquals(0, favoriteApplicationDAO.getFavoriteAppIdsByUser("testuser").length);
+
+    favoriteApplicationDAO.create(new FavoriteApplicationEntity(applicationEntity2, "testuser"));
+    favoriteApplicationDAO.create(new FavoriteApplicationEntity(applicationEntity, "testuser"));
+    favoriteApplicationDAO.create(new FavoriteApplicationEntity(applicationEntity, "testuser2"));
+
+    long[] favoriteAppIds = favoriteApplicationDAO.getFavoriteAppIdsByUser("testuser");
+    assertArrayEquals(new long[] { applicationEntity.getId(), applicationEntity2.getId() }, favoriteAppIds);
+    assertEquals(favoriteApplicationDAO.countFavoritesForUser("testuser"), favoriteAppIds.length);
+    assertArrayEquals(new long[] { applicationEntity.getId() }, favoriteApplicationDAO.getFavoriteAppIdsByUser("testuser2"));
+  }
+
+  @Test
+  public void testCreateDuplicateFavorite() {
+    ApplicationDAO applicationDAO = ExoContainerContext.getService(ApplicationDAO.class);
+    FavoriteApplicationDAO favoriteApplicationDAO = ExoContainerContext.getService(FavoriteApplicationDAO.class);
+
+    ApplicationEntity applicationEntity = applicationDAO.create(new ApplicationEntity(null,
+                                                                                      "title",
+                                                                                      "url",
+                                                                                      5L,
+                                                                                      "description",
+                                                                                      true,
+                                                                                      false,
+                                                                                      "permissions",
+                                                                                      false));
+
+    favoriteApplicationDAO.create(new FavoriteApplicationEntity(applicationEntity, "testuser"));
+    FavoriteApplicationEntity duplicateFavorite = new FavoriteApplicationEntity(applicationEntity, "testuser");
+    try {
+      favoriteApplicationDAO.create(duplicateFavorite);
+      fail("Shouldn't allow to add the same favorite application twice");
+    } catch (PersistenceException e) {
+      // Expected, rejected by UK_AC_FAV_APP_USER_APP
+      favoriteApplicationDAO.getEntityManager().detach(duplicateFavorite);
+    }
+  }
+
+  @Test
+  public void testDeleteFavoritesOfApplication() {
+    ApplicationDAO applicationDAO = ExoContainerContext.getService(ApplicationDAO.class);
+    FavoriteApplicationDAO favoriteApplicationDAO = ExoContainerContext.getService(FavoriteApplicationDAO.class);
+
+    ApplicationEntity applicationEntity = applicationDAO.create(new ApplicationEntity(null,
+                                                                                      "title",
+                                                                                      "url",
+                                                                                      5L,
+                                                                                      "description",
+                                                                                      true,
+                                                                                      false,
+                                                                                      "permissions",
+                                                                                      false));
+    ApplicationEntity otherApplicationEntity = applicationDAO.create(new ApplicationEntity(null,
+                                                                                           "title2",
+                                                                                           "url2",
+                                                                                           5L,
+                                                                                           "description",
+                                                                                           true,
+                                                                                           false,
+                                                                                           "permissions",
+                                                                                           false));
+    for (int i = 0; i < 3; i++) {
+      favoriteApplicationDAO.create(new FavoriteApplicationEntity(applicationEntity, "testuser" + i));
+    }
+    favoriteApplicationDAO.create(new FavoriteApplicationEntity(otherApplicationEntity, "testuser0"));
+
+    assertEquals(2, favoriteApplicationDAO.deleteFavoritesOfApplication(applicationEntity.getId(), 2));
+    assertEquals(1, favoriteApplicationDAO.deleteFavoritesOfApplication(applicationEntity.getId(), 2));
+    assertEquals(0, favoriteApplicationDAO.deleteFavoritesOfApplication(applicationEntity.getId(), 2));
+    assertNotNull(favoriteApplicationDAO.getFavoriteAppByUserNameAndAppId(otherApplicationEntity.getId(), "testuser0"));
+  }
+
+  @Test
+  public void testUpdateFavoriteAppsOrder() {
+    ApplicationDAO applicationDAO = ExoContainerContext.getService(ApplicationDAO.class);
+    FavoriteApplicationDAO favoriteApplicationDAO = ExoContainerContext.getService(FavoriteApplicationDAO.class);
+
+    ApplicationEntity application1 = applicationDAO.create(new ApplicationEntity(null,
+                                                                                 "title1",
+                                                                                 "url1",
+                                                                                 5L,
+                                                                                 "description",
+                                                                                 true,
+                                                                                 false,
+                                                                                 "permissions",
+                                                                                 false));
+    ApplicationEntity application2 = applicationDAO.create(new ApplicationEntity(null,
+                                                                                 "title2",
+                                                                                 "url2",
+                                                                                 5L,
+                                                                                 "description",
+                                                                                 true,
+                                                                                 false,
+                                                                                 "permissions",
+                                                                                 false));
+    ApplicationEntity mandatoryApplication = applicationDAO.create(new ApplicationEntity(null,
+                                                                                         "title3",
+                                                                                         "url3",
+                                                                                         5L,
+                                                                                         "description",
+                                                                                         true,
+                                                                                         true,
+                                                                                         "permissions",
+                                                                                         false));
+    favoriteApplicationDAO.create(new FavoriteApplicationEntity(application1, "testuser"));
+    favoriteApplicationDAO.create(new FavoriteApplicationEntity(application2, "testuser"));
+    favoriteApplicationDAO.create(new FavoriteApplicationEntity(mandatoryApplication, "testuser"));
+    favoriteApplicationDAO.create(new FavoriteApplicationEntity(application1, "testuser2"));
+
+    Map<Long, Long> orders = new HashMap<>();
+    orders.put(application1.getId(), 2L);
+    orders.put(application2.getId(), 1L);
+    orders.put(mandatoryApplication.getId(), 0L);
+    orders.put(application1.getId() + 1000, 3L);
+    assertEquals(2, favoriteApplicationDAO.updateFavoriteAppsOrder("testuser", orders));
+
+    assertEquals(Long.valueOf(2L), favoriteApplicationDAO.getFavoriteAppByUserNameAndAppId(application1.getId(), "testuser").getOrder());
+    assertEquals(Long.valueOf(1L), favoriteApplicationDAO.getFavoriteAppByUserNameAndAppId(application2.getId(), "testuser").getOrder());
+    assertNull(favoriteApplicationDAO.getFavoriteAppByUserNameAndAppId(mandatoryApplication.getId(), "testuser").getOrder());
+    assertNull(favoriteApplicationDAO.getFavoriteAppByUserNameAndAppId(application1.getId(), "testuser2").getOrder());
+
+    // Unchanged orders aren't updated again
+    assertEquals(0, favoriteApplicationDAO.updateFavoriteAppsOrder("testuser", orders));
+  }
+
 }
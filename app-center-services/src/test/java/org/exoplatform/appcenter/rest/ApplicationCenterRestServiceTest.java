@@ -1,11 +1,24 @@
 package org.exoplatform.appcenter.rest;
 
-import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.*;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
+import javax.ws.rs.core.EntityTag;
+import javax.ws.rs.core.HttpHeaders;
+import javax.ws.rs.core.Request;
 import javax.ws.rs.core.Response;
+import javax.ws.rs.core.StreamingOutput;
 
 import org.junit.Before;
 import org.junit.Test;
@@ -16,6 +29,9 @@ import org.mockito.runners.MockitoJUnitRunner;
 
 import org.exoplatform.appcenter.dto.*;
 import org.exoplatform.appcenter.service.ApplicationCenterService;
+import org.exoplatform.appcenter.service.ApplicationImageTooLargeException;
+import org.exoplatform.appcenter.service.ApplicationNotFoundException;
+import org.exoplatform.commons.file.model.FileInfo;
 import org.exoplatform.container.PortalContainer;
 
 @RunWith(MockitoJUnitRunner.class)
@@ -58,6 +74,74 @@ public class ApplicationCenterRestServiceTest {
   
   }
   
+  @Test
+  public void testGetStatus() {
+    ApplicationCenterREST applicationCenterREST = new ApplicationCenterREST(applicationCenterService, portalContainer);
+    Mockito.when(applicationCenterService.getSystemApplicationsSyncState())
+           .thenReturn(ApplicationCenterService.SystemApplicationsSyncState.PENDING);
+    Response response = applicationCenterREST.getStatus();
+    assertEquals(503, response.getStatus());
+    assertEquals(Boolean.FALSE, ((Map<?, ?>) response.getEntity()).get("systemApplicationsSynchronized"));
+
+    Mockito.when(applicationCenterService.getSystemApplicationsSyncState())
+           .thenReturn(ApplicationCenterService.SystemApplicationsSyncState.SYNCHRONIZED);
+    response = applicationCenterREST.getStatus();
+    assertEquals(200, response.getStatus());
+    assertEquals(Boolean.TRUE, ((Map<?, ?>) response.getEntity()).get("systemApplicationsSynchronized"));
+
+    // No retry remains, the node serves the stored applications
+    Mockito.when(applicationCenterService.getSystemApplicationsSyncState())
+           .thenReturn(ApplicationCenterService.SystemApplicationsSyncState.FAILED);
+    response = applicationCenterREST.getStatus();
+    assertEquals(200, response.getStatus());
+    assertEquals(Boolean.FALSE, ((Map<?, ?>) response.getEntity()).get("systemApplicationsSynchronized"));
+    assertEquals("FAILED", ((Map<?, ?>) response.getEntity()).get("systemApplicationsSyncState"));
+  }
+
+  @Test
+  public void testUploadApplicationIllustration() throws Exception {
+    ApplicationCenterREST applicationCenterREST = new ApplicationCenterREST(applicationCenterService, portalContainer);
+    assertEquals(400,
+                 applicationCenterREST.uploadApplicationIllustration(0L, "name.png", new ByteArrayInputStream(new byte[1]))
+                                      .getStatus());
+
+    Mockito.when(applicationCenterService.updateApplicationImage(Mockito.eq(1L),
+                                                                 Mockito.anyString(),
+                                                                 Mockito.any(InputStream.class),
+                                                                 Mockito.anyString()))
+           .thenReturn(new Application());
+    assertEquals(204,
+                 applicationCenterREST.uploadApplicationIllustration(1L, "name.png", new ByteArrayInputStream(new byte[1]))
+                                      .getStatus());
+
+    Mockito.when(applicationCenterService.updateApplicationImage(Mockito.eq(2L),
+                                                                 Mockito.anyString(),
+                                                                 Mockito.any(InputStream.class),
+                                                                 Mockito.anyString()))
+           .thenThrow(new ApplicationImageTooLargeException("Too large"));
+    assertEquals(413,
+                 applicationCenterREST.uploadApplicationIllustration(2L, "name.png", new ByteArrayInputStream(new byte[1]))
+                                      .getStatus());
+
+    Mockito.when(applicationCenterService.updateApplicationImage(Mockito.eq(3L),
+                                                                 Mockito.anyString(),
+                                                                 Mockito.any(InputStream.class),
+                                                                 Mockito.anyString()))
+           .thenThrow(new IllegalArgumentException("Unsupported image"));
+    assertEquals(400,
+                 applicationCenterREST.uploadApplicationIllustration(3L, "name.svg", new ByteArrayInputStream(new byte[1]))
+                                      .getStatus());
+
+    Mockito.when(applicationCenterService.updateApplicationImage(Mockito.eq(4L),
+                                                                 Mockito.anyString(),
+                                                                 Mockito.any(InputStream.class),
+                                                                 Mockito.anyString()))
+           .thenThrow(new ApplicationNotFoundException("Not found"));
+    assertEquals(404,
+                 applicationCenterREST.uploadApplicationIllustration(4L, "name.png", new ByteArrayInputStream(new byte[1]))
+                                      .getStatus());
+  }
+
   @Test
   public void testGetAuthorizedApplicationsList() throws Exception {
     
@@ -77,12 +161,156 @@ public class ApplicationCenterRestServiceTest {
     Mockito.when(applicationCenterService.getAuthorizedApplicationsList(0,10,"",null)).thenReturn(result);
     
     ApplicationCenterREST applicationCenterREST= new ApplicationCenterREST(applicationCenterService,portalContainer);
-    Response response = applicationCenterREST.getAuthorizedApplicationsList(0, 10, "");
+    Response response = applicationCenterREST.getAuthorizedApplicationsList(0, 10, "", null);
     assertEquals(200,response.getStatus());
     assertEquals(resultList.size(),((ApplicationList)response.getEntity()).getApplications().size());
+
+    Mockito.when(applicationCenterService.getAuthorizedApplicationsList("", 10, "", null)).thenReturn(result);
+    response = applicationCenterREST.getAuthorizedApplicationsList(0, 10, "", "");
+    assertEquals(200,response.getStatus());
+    assertEquals(resultList.size(),((ApplicationList)response.getEntity()).getApplications().size());
+
+    Mockito.when(applicationCenterService.getAuthorizedApplicationsList("malformed", 10, "", null))
+           .thenThrow(new IllegalArgumentException());
+    response = applicationCenterREST.getAuthorizedApplicationsList(0, 10, "", "malformed");
+    assertEquals(400,response.getStatus());
     
   }
   
+  @Test
+  public void testGetApplicationSuggestions() throws Exception {
+    List<ApplicationSuggestion> suggestions = new ArrayList<>();
+    suggestions.add(new ApplicationSuggestion(1L, "titre1", 0L));
+    suggestions.add(new ApplicationSuggestion(2L, "titre2", 0L));
+    Mockito.when(applicationCenterService.getApplicationSuggestions("tit", 10, null)).thenReturn(suggestions);
+
+    ApplicationCenterREST applicationCenterREST = new ApplicationCenterREST(applicationCenterService, portalContainer);
+    Response response = applicationCenterREST.getApplicationSuggestions("tit", 10);
+    assertEquals(200, response.getStatus());
+    assertEquals(suggestions, response.getEntity());
+
+    Mockito.when(applicationCenterService.getApplicationSuggestions("error", 10, null)).thenThrow(new RuntimeException());
+    response = applicationCenterREST.getApplicationSuggestions("error", 10);
+    assertEquals(500, response.getStatus());
+  }
+
+  @Test
+  public void testGetApplicationIllustrationContentType() throws Exception {
+    byte[] content = "illustration".getBytes(StandardCharsets.UTF_8);
+    FileInfo fileInfo = new FileInfo(5L, "name", "image/jpeg", "appCenter", content.length, new Date(1000L), "root", "", false);
+    Request request = Mockito.mock(Request.class);
+    Mockito.when(applicationCenterService.getApplicationImageFileInfo(1L, null, 0)).thenReturn(fileInfo);
+    Mockito.when(applicationCenterService.getApplicationImageInputStream(fileInfo))
+           .thenAnswer(invocation -> new ByteArrayInputStream(content));
+
+    ApplicationCenterREST applicationCenterREST = new ApplicationCenterREST(applicationCenterService, portalContainer);
+    Response response = applicationCenterREST.getApplicationIllustration(request, 1L, 0, 0, null, null);
+    assertEquals(200, response.getStatus());
+    assertEquals("image/jpeg", String.valueOf(response.getMetadata().getFirst(HttpHeaders.CONTENT_TYPE)));
+
+    // Unknown content type
+    FileInfo untypedFileInfo = new FileInfo(6L, "name", null, "appCenter", content.length, new Date(1000L), "root", "", false);
+    Mockito.when(applicationCenterService.getApplicationImageFileInfo(2L, null, 0)).thenReturn(untypedFileInfo);
+    Mockito.when(applicationCenterService.getApplicationImageInputStream(untypedFileInfo))
+           .thenAnswer(invocation -> new ByteArrayInputStream(content));
+    response = applicationCenterREST.getApplicationIllustration(request, 2L, 0, 0, null, null);
+    assertEquals("image/png", String.valueOf(response.getMetadata().getFirst(HttpHeaders.CONTENT_TYPE)));
+  }
+
+  @Test
+  public void testGetApplicationIllustrationRange() throws Exception {
+    byte[] content = "illustration".getBytes(StandardCharsets.UTF_8);
+    FileInfo fileInfo = new FileInfo(5L, "name", "image/png", "appCenter", content.length, new Date(1000L), "root", "", false);
+    Request request = Mockito.mock(Request.class);
+    Mockito.when(applicationCenterService.getApplicationImageFileInfo(1L, null, 0)).thenReturn(fileInfo);
+    Mockito.when(applicationCenterService.getApplicationImageInputStream(fileInfo))
+           .thenAnswer(invocation -> new ByteArrayInputStream(content));
+
+    ApplicationCenterREST applicationCenterREST = new ApplicationCenterREST(applicationCenterService, portalContainer);
+    Response response = applicationCenterREST.getApplicationIllustration(request, 1L, 0, 0, null, null);
+    assertEquals(200, response.getStatus());
+    assertEquals("illustration", writeEntity(response));
+
+    response = applicationCenterREST.getApplicationIllustration(request, 1L, 0, 0, "bytes=2-5", null);
+    assertEquals(206, response.getStatus());
+    assertEquals("bytes 2-5/12", String.valueOf(response.getMetadata().getFirst("Content-Range")));
+    assertEquals("4", String.valueOf(response.getMetadata().getFirst(HttpHeaders.CONTENT_LENGTH)));
+    assertEquals("lust", writeEntity(response));
+
+    response = applicationCenterREST.getApplicationIllustration(request, 1L, 0, 0, "bytes=-4", null);
+    assertEquals(206, response.getStatus());
+    assertEquals("tion", writeEntity(response));
+
+    response = applicationCenterREST.getApplicationIllustration(request, 1L, 0, 0, "bytes=2-5", "W/\"999\"");
+    assertEquals("Range of a modified illustration shouldn't apply", 200, response.getStatus());
+
+    response = applicationCenterREST.getApplicationIllustration(request, 1L, 0, 0, "bytes=2-5", "\"1000\"");
+    assertEquals(206, response.getStatus());
+    assertEquals("lust", writeEntity(response));
+
+    response = applicationCenterREST.getApplicationIllustration(request, 1L, 0, 0, "bytes=2-5", "\"10001\"");
+    assertEquals("Range condition must be an exact match", 200, response.getStatus());
+
+    response = applicationCenterREST.getApplicationIllustration(request, 1L, 0, 0, "bytes=2-5", "W/\"1000\"");
+    assertEquals("Weak range condition shouldn't apply", 200, response.getStatus());
+
+    assertFalse(ApplicationCenterREST.isRangeConditionFulfilled("\"1000\"", new EntityTag("1000", true)));
+
+    response = applicationCenterREST.getApplicationIllustration(request, 1L, 0, 0, "bytes=20-", null);
+    assertEquals(416, response.getStatus());
+  }
+
+  @Test
+  public void testGetApplicationsIllustrations() throws Exception {
+    byte[] content1 = "illustration1".getBytes(StandardCharsets.UTF_8);
+    byte[] content2 = "illustration2".getBytes(StandardCharsets.UTF_8);
+    FileInfo fileInfo1 = new FileInfo(5L, "name1", "image/png", "appCenter", content1.length, new Date(1000L), "root", "", false);
+    FileInfo fileInfo2 = new FileInfo(6L, "name2", "image/jpeg", "appCenter", content2.length, new Date(2000L), "root", "", false);
+    Map<Long, FileInfo> illustrations = new LinkedHashMap<>();
+    illustrations.put(1L, fileInfo1);
+    illustrations.put(2L, fileInfo2);
+    List<Long> applicationIds = Arrays.asList(1L, 2L, 3L);
+    Request request = Mockito.mock(Request.class);
+    Mockito.when(applicationCenterService.getApplicationsImageFileInfos(applicationIds, null, 128)).thenReturn(illustrations);
+    Mockito.when(applicationCenterService.getApplicationImageInputStream(fileInfo1))
+           .thenAnswer(invocation -> new ByteArrayInputStream(content1));
+    Mockito.when(applicationCenterService.getApplicationImageInputStream(fileInfo2))
+           .thenAnswer(invocation -> new ByteArrayInputStream(content2));
+
+    ApplicationCenterREST applicationCenterREST = new ApplicationCenterREST(applicationCenterService, portalContainer);
+    Response response = applicationCenterREST.getApplicationsIllustrations(request, applicationIds, null, 128);
+    assertEquals(200, response.getStatus());
+    String contentType = String.valueOf(response.getMetadata().getFirst(HttpHeaders.CONTENT_TYPE));
+    assertTrue(contentType.startsWith("multipart/form-data"));
+    String boundary = contentType.substring(contentType.indexOf("boundary=") + "boundary=".length());
+    String body = writeEntity(response);
+    assertTrue(body.contains("name=\"1\""));
+    assertTrue(body.contains("Content-Type: image/jpeg\r\nContent-Length: " + content2.length + "\r\n\r\nillustration2\r\n"));
+    assertTrue(body.indexOf("illustration1") < body.indexOf("illustration2"));
+    assertTrue(body.endsWith("--" + boundary + "--\r\n"));
+    Object eTag = response.getMetadata().getFirst(HttpHeaders.ETAG);
+    assertNotNull(eTag);
+
+    // Same illustrations, same tag
+    response = applicationCenterREST.getApplicationsIllustrations(request, applicationIds, null, 128);
+    assertEquals(String.valueOf(eTag), String.valueOf(response.getMetadata().getFirst(HttpHeaders.ETAG)));
+
+    // Modified illustration, new tag
+    fileInfo2.setUpdatedDate(new Date(3000L));
+    response = applicationCenterREST.getApplicationsIllustrations(request, applicationIds, null, 128);
+    assertNotEquals(String.valueOf(eTag), String.valueOf(response.getMetadata().getFirst(HttpHeaders.ETAG)));
+
+    Mockito.when(applicationCenterService.getApplicationsImageFileInfos(null, null, 0)).thenThrow(new IllegalArgumentException());
+    response = applicationCenterREST.getApplicationsIllustrations(request, null, null, 0);
+    assertEquals(400, response.getStatus());
+  }
+
+  private String writeEntity(Response response) throws IOException {
+    ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+    ((StreamingOutput) response.getEntity()).write(outputStream);
+    return new String(outputStream.toByteArray(), StandardCharsets.UTF_8);
+  }
+
   @Test
   public void testGetFavoriteApplicationsList() throws Exception {
     
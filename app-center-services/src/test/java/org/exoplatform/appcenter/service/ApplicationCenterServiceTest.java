@@ -18,10 +18,17 @@ package org.exoplatform.appcenter.service;
 
 import static org.junit.Assert.*;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.FileNotFoundException;
 import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
 
 import org.exoplatform.appcenter.storage.ApplicationCenterStorage;
 import org.exoplatform.services.organization.*;
@@ -33,21 +40,31 @@ import org.junit.Test;
 import org.picocontainer.Startable;
 
 import org.exoplatform.appcenter.dao.ApplicationDAO;
+import org.exoplatform.appcenter.dao.ApplicationImageVariantDAO;
+import org.exoplatform.appcenter.dao.ApplicationSyncLeaseDAO;
 import org.exoplatform.appcenter.dao.FavoriteApplicationDAO;
+import org.exoplatform.appcenter.dao.FavoritePurgeDAO;
 import org.exoplatform.appcenter.dto.*;
 import org.exoplatform.appcenter.plugin.ApplicationPlugin;
+import org.exoplatform.commons.api.settings.SettingService;
+import org.exoplatform.commons.file.model.FileInfo;
 import org.exoplatform.commons.file.services.FileStorageException;
 import org.exoplatform.commons.file.services.NameSpaceService;
 import org.exoplatform.container.ExoContainerContext;
 import org.exoplatform.container.PortalContainer;
 import org.exoplatform.container.RootContainer;
 import org.exoplatform.container.component.RequestLifeCycle;
+import org.exoplatform.container.configuration.ConfigurationManager;
 import org.exoplatform.container.xml.InitParams;
 import org.exoplatform.container.xml.ObjectParameter;
 import org.exoplatform.container.xml.ValueParam;
+import org.exoplatform.services.cache.CacheService;
+import org.exoplatform.services.cache.ExoCache;
 import org.exoplatform.services.naming.InitialContextInitializer;
+import org.exoplatform.services.security.Authenticator;
 import org.exoplatform.services.security.ConversationState;
 import org.exoplatform.services.security.Identity;
+import org.exoplatform.services.security.IdentityRegistry;
 import org.exoplatform.services.security.MembershipEntry;
 
 public class ApplicationCenterServiceTest {
@@ -124,9 +141,18 @@ public class ApplicationCenterServiceTest {
   public void teardown() {
     FavoriteApplicationDAO favoriteApplicationDAO = ExoContainerContext.getService(FavoriteApplicationDAO.class);
     favoriteApplicationDAO.deleteAll();
+    ExoContainerContext.getService(FavoritePurgeDAO.class).deleteAll();
+    ExoContainerContext.getService(ApplicationImageVariantDAO.class).deleteAll();
+    ExoContainerContext.getService(ApplicationSyncLeaseDAO.class).deleteAll();
 
     ApplicationDAO applicationDAO = ExoContainerContext.getService(ApplicationDAO.class);
     applicationDAO.deleteAll();
+    ExoContainerContext.getService(CacheService.class)
+                       .getCacheInstance(ApplicationCenterStorage.CATALOG_CACHE_NAME)
+                       .clearCache();
+    ExoContainerContext.getService(CacheService.class)
+                       .getCacheInstance(ApplicationCenterService.IDENTITY_CACHE_NAME)
+                       .clearCache();
 
     ConversationState.setCurrent(null);
 
@@ -179,6 +205,92 @@ public class ApplicationCenterServiceTest {
     }
   }
 
+  @Test
+  public void testImportExportApplications() throws Exception {
+    try {
+      applicationCenterService.importApplications(null);
+      fail("Shouldn't allow to import null stream");
+    } catch (IllegalArgumentException e) {
+      // Expected
+    }
+    try {
+      applicationCenterService.exportApplications(null, false);
+      fail("Shouldn't allow to export to null stream");
+    } catch (IllegalArgumentException e) {
+      // Expected
+    }
+
+    Application application = new Application(null,
+                                              "title1",
+                                              "url1",
+                                              "",
+                                              null,
+                                              null,
+                                              "aW1hZ2U=",
+                                              "image.png",
+                                              "description",
+                                              false,
+                                              true,
+                                              true,
+                                              true,
+                                              false,
+                                              "permissions1",
+                                              "permissions2");
+    applicationCenterService.createApplication(application);
+    application = new Application(null,
+                                  "title2",
+                                  "url2",
+                                  "",
+                                  null,
+                                  null,
+                                  null,
+                                  null,
+                                  "description",
+                                  false,
+                                  false,
+                                  false,
+                                  false,
+                                  false);
+    applicationCenterService.createApplication(application);
+
+    ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+    applicationCenterService.exportApplications(outputStream, true);
+    String exportedContent = new String(outputStream.toByteArray(), StandardCharsets.UTF_8);
+    String[] lines = exportedContent.split("\n");
+    assertEquals(2, lines.length);
+
+    // Importing the same applications must skip them
+    ApplicationImportReport importReport = applicationCenterService.importApplications(toInputStream(exportedContent));
+    assertEquals(0, importReport.getImported());
+    assertEquals(2, importReport.getSkipped());
+    assertEquals(0, importReport.getFailed());
+
+    ExoContainerContext.getService(ApplicationDAO.class).deleteAll();
+    ExoContainerContext.getService(CacheService.class)
+                       .getCacheInstance(ApplicationCenterStorage.CATALOG_CACHE_NAME)
+                       .clearCache();
+    assertEquals(0, applicationCenterService.getApplicationsList(0, 0, null).getSize());
+
+    String importedContent = exportedContent + "{malformed\n" + "{\"title\":\"title3\"}\n" + lines[0] + "\n";
+    importReport = applicationCenterService.importApplications(toInputStream(importedContent));
+    assertEquals(2, importReport.getImported());
+    assertEquals(1, importReport.getSkipped());
+    assertEquals(2, importReport.getFailed());
+
+    Application importedApplication = applicationCenterService.getApplicationsList(0, 0, "title1")
+                                                              .getApplications()
+                                                              .get(0);
+    assertEquals("url1", importedApplication.getUrl());
+    assertTrue(importedApplication.isMandatory());
+    assertTrue(importedApplication.isMobile());
+    assertEquals(Arrays.asList("permissions1", "permissions2"), importedApplication.getPermissions());
+    assertNotNull(importedApplication.getImageFileId());
+
+    importedApplication = applicationCenterService.getApplicationsList(0, 0, "title2").getApplications().get(0);
+    assertFalse(importedApplication.isActive());
+    assertEquals(Arrays.asList(ApplicationCenterService.DEFAULT_USERS_PERMISSION), importedApplication.getPermissions());
+  }
+
   @Test
   public void testUpdateApplication() throws Exception {
     try {
@@ -348,7 +460,20 @@ public class ApplicationCenterServiceTest {
     application.setPermissions(ApplicationCenterService.DEFAULT_USERS_PERMISSION);
     storedApplication = applicationCenterService.updateApplication(application, ADMIN_USERNAME);
 
+    // Purges are not processed while another node holds the purge lease
+    ApplicationCenterStorage applicationCenterStorage = ExoContainerContext.getService(ApplicationCenterStorage.class);
+    assertTrue(applicationCenterStorage.acquireSyncLease(FavoritePurgeService.FAVORITES_PURGE_LEASE, "otherNode", 60000));
+    applicationCenterService.addFavoriteApplication(storedApplication.getId(), ADMIN_USERNAME);
     applicationCenterService.deleteApplication(storedApplication.getId(), ADMIN_USERNAME);
+    ExoContainerContext.getService(FavoritePurgeService.class).processPurges();
+    assertEquals(1, ExoContainerContext.getService(FavoritePurgeDAO.class).getPurgeIds().size());
+    applicationCenterStorage.releaseSyncLease(FavoritePurgeService.FAVORITES_PURGE_LEASE, "otherNode");
+
+    // Favorites are purged in background, process the purge synchronously
+    ExoContainerContext.getService(FavoritePurgeService.class).processPurges();
+    FavoriteApplicationDAO favoriteApplicationDAO = ExoContainerContext.getService(FavoriteApplicationDAO.class);
+    assertNull(favoriteApplicationDAO.getFavoriteAppByUserNameAndAppId(storedApplication.getId(), ADMIN_USERNAME));
+    assertEquals(0, ExoContainerContext.getService(FavoritePurgeDAO.class).getPurgeIds().size());
   }
 
   @Test
@@ -360,6 +485,15 @@ public class ApplicationCenterServiceTest {
 
     applicationCenterService.setMaxFavoriteApps(0);
     assertEquals(0, applicationCenterService.getMaxFavoriteApps());
+
+    applicationCenterService.setMaxFavoriteApps(originalMaxFavoriteApps + 2);
+    // Simulate an eviction or an invalidation coming from another cluster node
+    ExoContainerContext.getService(CacheService.class)
+                       .getCacheInstance(ApplicationCenterService.SETTINGS_CACHE_NAME)
+                       .clearCache();
+    assertEquals(originalMaxFavoriteApps + 2, applicationCenterService.getMaxFavoriteApps());
+
+    applicationCenterService.setMaxFavoriteApps(0);
   }
 
   @Test
@@ -521,6 +655,7 @@ public class ApplicationCenterServiceTest {
     assertNotNull(applicationsList.getApplications());
     assertEquals(0, applicationsList.getApplications().size());
     assertEquals(0, applicationsList.getSize());
+    assertEquals(0, applicationsList.getTotalSize());
     assertEquals(0, applicationsList.getOffset());
     assertEquals(0, applicationsList.getLimit());
 
@@ -563,30 +698,45 @@ public class ApplicationCenterServiceTest {
     assertNotNull(applicationsList.getApplications());
     assertEquals(2, applicationsList.getApplications().size());
     assertEquals(2, applicationsList.getSize());
+    assertEquals(2, applicationsList.getTotalSize());
 
     applicationsList = applicationCenterService.getApplicationsList(1, 0, null);
     assertNotNull(applicationsList);
     assertNotNull(applicationsList.getApplications());
     assertEquals(1, applicationsList.getApplications().size());
     assertEquals(1, applicationsList.getSize());
+    assertEquals(2, applicationsList.getTotalSize());
 
     applicationsList = applicationCenterService.getApplicationsList(2, 0, null);
     assertNotNull(applicationsList);
     assertNotNull(applicationsList.getApplications());
     assertEquals(0, applicationsList.getApplications().size());
     assertEquals(0, applicationsList.getSize());
+    assertEquals(2, applicationsList.getTotalSize());
 
     applicationsList = applicationCenterService.getApplicationsList(3, 0, null);
     assertNotNull(applicationsList);
     assertNotNull(applicationsList.getApplications());
     assertEquals(0, applicationsList.getApplications().size());
     assertEquals(0, applicationsList.getSize());
+    assertEquals(2, applicationsList.getTotalSize());
 
     applicationsList = applicationCenterService.getApplicationsList(0, 10, null);
     assertNotNull(applicationsList);
     assertNotNull(applicationsList.getApplications());
     assertEquals(2, applicationsList.getApplications().size());
     assertEquals(2, applicationsList.getSize());
+    assertEquals(2, applicationsList.getTotalSize());
+
+    applicationsList = applicationCenterService.getApplicationsList(1, 1, null);
+    assertEquals(1, applicationsList.getApplications().size());
+    assertEquals("title2", applicationsList.getApplications().get(0).getTitle());
+    assertEquals(1, applicationsList.getSize());
+    assertEquals(2, applicationsList.getTotalSize());
+
+    applicationsList = applicationCenterService.getApplicationsList(0, 10, "title2");
+    assertEquals(1, applicationsList.getApplications().size());
+    assertEquals(1, applicationsList.getTotalSize());
   }
 
   @Test
@@ -755,6 +905,28 @@ public class ApplicationCenterServiceTest {
     assertEquals(new Long(1),
                  applicationCenterService.getMandatoryAndFavoriteApplicationsList("admin").getApplications().get(0).getOrder());
 
+    // Bulk reorder
+    applicationCenterService.addFavoriteApplication(storedApp2.getId(), "admin");
+    applicationCenterService.updateFavoriteApplicationsOrder(Arrays.asList(new ApplicationOrder(storedApp1.getId(), 2L),
+                                                                           new ApplicationOrder(storedApp2.getId(), 1L)),
+                                                             "admin");
+    List<Application> favoriteApplications = applicationCenterService.getMandatoryAndFavoriteApplicationsList("admin")
+                                                                     .getApplications();
+    assertEquals(2, favoriteApplications.size());
+    assertEquals(storedApp2.getId(), favoriteApplications.get(0).getId());
+    assertEquals(storedApp1.getId(), favoriteApplications.get(1).getId());
+
+    try {
+      applicationCenterService.updateFavoriteApplicationsOrder(Arrays.asList(new ApplicationOrder(storedApp1.getId(), 1L),
+                                                                             new ApplicationOrder(storedApp2.getId() + 1000,
+                                                                                                  2L)),
+                                                               "admin");
+      fail("Shouldn't reorder unknown applications");
+    } catch (ApplicationNotFoundException e) {
+      // Expected
+    }
+    assertEquals(storedApp2.getId(),
+                 applicationCenterService.getMandatoryAndFavoriteApplicationsList("admin").getApplications().get(0).getId());
   }
 
   @Test
@@ -878,6 +1050,156 @@ public class ApplicationCenterServiceTest {
     assertEquals(1, applicationsList.getSize());
   }
 
+  @Test
+  public void testGetAuthorizedApplicationsListWithCursor() throws Exception {
+    try {
+      applicationCenterService.getAuthorizedApplicationsList(null, 10, null, null);
+      fail("Shouldn't retrieve applications with null username");
+    } catch (IllegalArgumentException e) {
+      // Expected
+    }
+    try {
+      applicationCenterService.getAuthorizedApplicationsList("%%%", 10, null, SIMPLE_USERNAME);
+      fail("Shouldn't retrieve applications with a malformed cursor");
+    } catch (IllegalArgumentException e) {
+      // Expected
+    }
+
+    ConversationState.setCurrent(adminState);
+    for (int i = 1; i <= 5; i++) {
+      Application application = new Application(null,
+                                                 "Title" + i,
+                                                 "url" + i,
+                                                 "",
+                                                 0L,
+                                                 0L,
+                                                 null,
+                                                 null,
+                                                 "description",
+                                                 false,
+                                                 i != 4,
+                                                 false,
+                                                 false,
+                                                 false,
+                                                 i == 2 ? ApplicationCenterService.DEFAULT_ADMINISTRATORS_GROUP
+                                                        : ApplicationCenterService.DEFAULT_USERS_PERMISSION);
+      applicationCenterService.createApplication(application);
+    }
+
+    ConversationState.setCurrent(simpleState);
+    ApplicationList applicationsList = applicationCenterService.getAuthorizedApplicationsList(null, 2, null, SIMPLE_USERNAME);
+    assertEquals(2, applicationsList.getSize());
+    assertEquals("Title1", applicationsList.getApplications().get(0).getTitle());
+    assertEquals("Title3", applicationsList.getApplications().get(1).getTitle());
+    assertNotNull(applicationsList.getNextCursor());
+
+    applicationsList = applicationCenterService.getAuthorizedApplicationsList(applicationsList.getNextCursor(),
+                                                                              2,
+                                                                              null,
+                                                                              SIMPLE_USERNAME);
+    assertEquals(1, applicationsList.getSize());
+    assertEquals("Title5", applicationsList.getApplications().get(0).getTitle());
+    assertNull(applicationsList.getNextCursor());
+
+    ConversationState.setCurrent(adminState);
+    applicationsList = applicationCenterService.getAuthorizedApplicationsList("", 4, null, ADMIN_USERNAME);
+    assertEquals(4, applicationsList.getSize());
+    assertNull(applicationsList.getNextCursor());
+
+    applicationsList = applicationCenterService.getAuthorizedApplicationsList("", 3, "title5", ADMIN_USERNAME);
+    assertEquals(1, applicationsList.getSize());
+    assertNull(applicationsList.getNextCursor());
+  }
+
+  @Test
+  public void testGetApplicationSuggestions() throws Exception {
+    try {
+      applicationCenterService.getApplicationSuggestions("title", 10, null);
+      fail("Shouldn't retrieve suggestions with null username");
+    } catch (IllegalArgumentException e) {
+      // Expected
+    }
+
+    ConversationState.setCurrent(adminState);
+    String[] titles = new String[] { "Calendar", "Caf\u00E9", "Cafeteria", "My Calendar", "Calendar admin", "Calendar old" };
+    for (String title : titles) {
+      Application application = new Application(null,
+                                                title,
+                                                "url",
+                                                "",
+                                                0L,
+                                                0L,
+                                                null,
+                                                null,
+                                                "description",
+                                                false,
+                                                !title.endsWith("old"),
+                                                false,
+                                                false,
+                                                false,
+                                                title.endsWith("admin") ? ApplicationCenterService.DEFAULT_ADMINISTRATORS_PERMISSION
+                                                                        : ApplicationCenterService.DEFAULT_USERS_PERMISSION);
+      applicationCenterService.createApplication(application);
+    }
+
+    ConversationState.setCurrent(simpleState);
+    assertEquals(0, applicationCenterService.getApplicationSuggestions("", 10, SIMPLE_USERNAME).size());
+
+    List<ApplicationSuggestion> suggestions = applicationCenterService.getApplicationSuggestions("cal", 10, SIMPLE_USERNAME);
+    assertEquals(1, suggestions.size());
+    assertEquals("Calendar", suggestions.get(0).getTitle());
+    assertTrue(suggestions.get(0).getId() > 0);
+
+    suggestions = applicationCenterService.getApplicationSuggestions("CAFE", 10, SIMPLE_USERNAME);
+    assertEquals(2, suggestions.size());
+    assertEquals("Caf\u00E9", suggestions.get(0).getTitle());
+    assertEquals("Cafeteria", suggestions.get(1).getTitle());
+
+    assertEquals(1, applicationCenterService.getApplicationSuggestions("ca", 1, SIMPLE_USERNAME).size());
+
+    ConversationState.setCurrent(adminState);
+    suggestions = applicationCenterService.getApplicationSuggestions("cal", 0, ADMIN_USERNAME);
+    assertEquals(2, suggestions.size());
+    assertEquals("Calendar", suggestions.get(0).getTitle());
+    assertEquals("Calendar admin", suggestions.get(1).getTitle());
+  }
+
+  @Test
+  public void testIdentityCache() throws Exception {
+    ExoCache<String, Identity> identityCache = ExoContainerContext.getService(CacheService.class)
+                                                                  .getCacheInstance(ApplicationCenterService.IDENTITY_CACHE_NAME);
+    assertNull(identityCache.get(SIMPLE_USERNAME));
+
+    ConversationState.setCurrent(adminState);
+    Application application = new Application(null,
+                                              "title",
+                                              "url",
+                                              "",
+                                              0L,
+                                              0L,
+                                              null,
+                                              null,
+                                              "description",
+                                              false,
+                                              true,
+                                              false,
+                                              false,
+                                              false,
+                                              ApplicationCenterService.DEFAULT_USERS_PERMISSION);
+    applicationCenterService.createApplication(application);
+
+    // User identity isn't registered, thus it's built and cached
+    ConversationState.setCurrent(simpleState);
+    ApplicationList applicationsList = applicationCenterService.getAuthorizedApplicationsList(0, 0, null, SIMPLE_USERNAME);
+    assertEquals(1, applicationsList.getSize());
+    Identity cachedIdentity = identityCache.get(SIMPLE_USERNAME);
+    assertNotNull(cachedIdentity);
+
+    applicationsList = applicationCenterService.getAuthorizedApplicationsList(0, 0, null, SIMPLE_USERNAME);
+    assertEquals(1, applicationsList.getSize());
+    assertSame(cachedIdentity, identityCache.get(SIMPLE_USERNAME));
+  }
+
   @Test
   public void testGetLastUpdated() throws Exception {
     long currentTimeMillis = System.currentTimeMillis();
@@ -927,6 +1249,97 @@ public class ApplicationCenterServiceTest {
     Long lastUpdated = applicationCenterService.getApplicationImageLastUpdated(storedApplication.getId(), ADMIN_USERNAME);
     assertNotNull(lastUpdated);
     assertTrue(lastUpdated >= currentTimeMillis);
+
+    FileInfo imageFileInfo = applicationCenterService.getApplicationImageFileInfo(storedApplication.getId(), ADMIN_USERNAME);
+    assertNotNull(imageFileInfo);
+    assertEquals(lastUpdated.longValue(), imageFileInfo.getUpdatedDate().getTime());
+    assertTrue(imageFileInfo.getSize() > 0);
+
+    FileInfo imageVariantFileInfo = applicationCenterService.getApplicationImageFileInfo(storedApplication.getId(),
+                                                                                         ADMIN_USERNAME,
+                                                                                         40);
+    assertEquals("Original image should be used when it can't be resized",
+                 imageFileInfo.getId(),
+                 imageVariantFileInfo.getId());
+  }
+
+  @Test
+  public void testGetApplicationsImageFileInfos() throws Exception {
+    try {
+      applicationCenterService.getApplicationsImageFileInfos(Collections.emptyList(), SIMPLE_USERNAME, 0);
+      fail("Shouldn't allow to use empty ids");
+    } catch (IllegalArgumentException e) {
+      // Expected
+    }
+    try {
+      applicationCenterService.getApplicationsImageFileInfos(Collections.singletonList(50000L), null, 0);
+      fail("Shouldn't allow to use null user");
+    } catch (IllegalArgumentException e) {
+      // Expected
+    }
+    try {
+      applicationCenterService.getApplicationsImageFileInfos(Collections.nCopies(ApplicationCenterService.MAX_ILLUSTRATIONS_BATCH_SIZE + 1,
+                                                                                 50000L),
+                                                             SIMPLE_USERNAME,
+                                                             0);
+      fail("Shouldn't allow to retrieve too many illustrations at once");
+    } catch (IllegalArgumentException e) {
+      // Expected
+    }
+
+    Application adminApplication = new Application(null,
+                                                   "title1",
+                                                   "url1",
+                                                   "",
+                                                   null,
+                                                   0L,
+                                                   "content1",
+                                                   "name1",
+                                                   "description",
+                                                   false,
+                                                   true,
+                                                   false,
+                                                   false,
+                                                   false,
+                                                   ApplicationCenterService.DEFAULT_ADMINISTRATORS_GROUP);
+    adminApplication = applicationCenterService.createApplication(adminApplication);
+    Application usersApplication = new Application(null,
+                                                   "title2",
+                                                   "url2",
+                                                   "",
+                                                   null,
+                                                   0L,
+                                                   "content2",
+                                                   "name2",
+                                                   "description",
+                                                   false,
+                                                   true,
+                                                   false,
+                                                   false,
+                                                   false,
+                                                   ApplicationCenterService.DEFAULT_USERS_GROUP);
+    usersApplication = applicationCenterService.createApplication(usersApplication);
+
+    ConversationState.setCurrent(simpleState);
+    Map<Long, FileInfo> imageFileInfos =
+                                       applicationCenterService.getApplicationsImageFileInfos(Arrays.asList(50000L,
+                                                                                                            adminApplication.getId(),
+                                                                                                            usersApplication.getId()),
+                                                                                              SIMPLE_USERNAME,
+                                                                                              0);
+    assertEquals(Collections.singleton(usersApplication.getId()), imageFileInfos.keySet());
+    assertEquals(applicationCenterService.getApplicationImageFileInfo(usersApplication.getId(), SIMPLE_USERNAME).getId(),
+                 imageFileInfos.get(usersApplication.getId()).getId());
+
+    ConversationState.setCurrent(adminState);
+    imageFileInfos = applicationCenterService.getApplicationsImageFileInfos(Arrays.asList(usersApplication.getId(),
+                                                                                          adminApplication.getId()),
+                                                                            ADMIN_USERNAME,
+                                                                            40);
+    assertEquals(Arrays.asList(usersApplication.getId(), adminApplication.getId()),
+                 new ArrayList<>(imageFileInfos.keySet()));
+    assertEquals(applicationCenterService.getApplicationImageFileInfo(adminApplication.getId(), ADMIN_USERNAME, 40).getId(),
+                 imageFileInfos.get(adminApplication.getId()).getId());
   }
 
   @Test
@@ -1152,6 +1565,230 @@ public class ApplicationCenterServiceTest {
     assertEquals(0, applicationsList.getApplications().size());
   }
 
+  @Test
+  public void testSynchronizeUnchangedSystemApplication() throws Exception {
+    Application application = new Application(null,
+                                              "title",
+                                              "url",
+                                              "",
+                                              null,
+                                              0L,
+                                              null,
+                                              null,
+                                              "description",
+                                              false,
+                                              true,
+                                              false,
+                                              false,
+                                              false,
+                                              ApplicationCenterService.DEFAULT_USERS_GROUP);
+    InitParams params = new InitParams();
+    ObjectParameter applicationParam = new ObjectParameter();
+    applicationParam.setName("application");
+    applicationParam.setObject(application);
+    params.addParameter(applicationParam);
+    ValueParam imagePathValueParam = new ValueParam();
+    imagePathValueParam.setName("imagePath");
+    imagePathValueParam.setValue("jar:/test.png");
+    params.addParameter(imagePathValueParam);
+
+    String pluginName = "testapp";
+    ApplicationPlugin applicationPlugin = new ApplicationPlugin(params);
+    applicationPlugin.setName(pluginName);
+    try {
+      applicationCenterService.addApplicationPlugin(applicationPlugin);
+      applicationCenterService.start();
+
+      Application storedApplication = appCenterStorage.getApplicationByTitle("title");
+      assertNotNull(storedApplication);
+      assertNotNull(storedApplication.getImageFileId());
+      String fingerprint = appCenterStorage.getSystemApplicationsFingerprints().get(storedApplication.getId());
+      assertNotNull(fingerprint);
+      long catalogVersion = appCenterStorage.getCatalog().getVersion();
+
+      // Same configuration, the application isn't written again
+      applicationCenterService.start();
+      assertEquals(catalogVersion, appCenterStorage.getCatalog().getVersion());
+      assertEquals(fingerprint, appCenterStorage.getSystemApplicationsFingerprints().get(storedApplication.getId()));
+      assertEquals(storedApplication.getImageFileId(), appCenterStorage.getApplicationByTitle("title").getImageFileId());
+
+      // Modified configuration, the application is updated
+      application.setDescription("new description");
+      applicationCenterService.start();
+      assertTrue(appCenterStorage.getCatalog().getVersion() > catalogVersion);
+      assertEquals("new description", appCenterStorage.getApplicationByTitle("title").getDescription());
+      String newFingerprint = appCenterStorage.getSystemApplicationsFingerprints().get(storedApplication.getId());
+      assertNotNull(newFingerprint);
+      assertNotEquals(fingerprint, newFingerprint);
+    } finally {
+      applicationCenterService.removeApplicationPlugin(pluginName);
+    }
+  }
+
+  @Test
+  public void testAsyncSystemApplicationsInjection() throws Exception {
+    InitParams params = new InitParams();
+    ValueParam asyncParam = new ValueParam();
+    asyncParam.setName("system.applications.async");
+    asyncParam.setValue("true");
+    params.addParameter(asyncParam);
+    ApplicationCenterService asyncApplicationCenterService =
+                                                           new ApplicationCenterService(ExoContainerContext.getService(ConfigurationManager.class),
+                                                                                        appCenterStorage,
+                                                                                        ExoContainerContext.getService(FavoritePurgeService.class),
+                                                                                        ExoContainerContext.getService(SettingService.class),
+                                                                                        ExoContainerContext.getService(IdentityRegistry.class),
+                                                                                        ExoContainerContext.getService(Authenticator.class),
+                                                                                        ExoContainerContext.getService(CacheService.class),
+                                                                                        PortalContainer.getInstance(),
+                                                                                        params);
+    Application application = new Application(null,
+                                              "title",
+                                              "url",
+                                              "",
+                                              null,
+                                              0L,
+                                              null,
+                                              null,
+                                              "description",
+                                              false,
+                                              true,
+                                              false,
+                                              false,
+                                              false,
+                                              ApplicationCenterService.DEFAULT_USERS_GROUP);
+    InitParams pluginParams = new InitParams();
+    ObjectParameter applicationParam = new ObjectParameter();
+    applicationParam.setName("application");
+    applicationParam.setObject(application);
+    pluginParams.addParameter(applicationParam);
+    ApplicationPlugin applicationPlugin = new ApplicationPlugin(pluginParams);
+    applicationPlugin.setName("testapp");
+    asyncApplicationCenterService.addApplicationPlugin(applicationPlugin);
+
+    assertFalse(asyncApplicationCenterService.isSystemApplicationsSynchronized());
+    try {
+      asyncApplicationCenterService.start();
+      long timeout = System.currentTimeMillis() + 10000;
+      while (!asyncApplicationCenterService.isSystemApplicationsSynchronized() && System.currentTimeMillis() < timeout) {
+        Thread.sleep(50);
+      }
+      assertTrue(asyncApplicationCenterService.isSystemApplicationsSynchronized());
+      assertNotNull(appCenterStorage.getApplicationByTitle("title"));
+    } finally {
+      asyncApplicationCenterService.stop();
+    }
+  }
+
+  @Test
+  public void testSystemApplicationsSynchronizationLease() throws Exception {
+    InitParams params = new InitParams();
+    ValueParam waitTimeoutParam = new ValueParam();
+    waitTimeoutParam.setName("system.applications.sync.wait.timeout");
+    waitTimeoutParam.setValue("0");
+    params.addParameter(waitTimeoutParam);
+    ValueParam retriesParam = new ValueParam();
+    retriesParam.setName("system.applications.sync.retries");
+    retriesParam.setValue("0");
+    params.addParameter(retriesParam);
+
+    ApplicationCenterService firstNodeService = newApplicationCenterService(params, "description");
+    firstNodeService.start();
+    assertEquals(ApplicationCenterService.SystemApplicationsSyncState.SYNCHRONIZED,
+                 firstNodeService.getSystemApplicationsSyncState());
+    assertNotNull(appCenterStorage.getApplicationByTitle("title"));
+
+    // Another node is holding the lease, the same configuration was already
+    // synchronized successfully
+    assertTrue(appCenterStorage.acquireSyncLease("SYSTEM_APPLICATIONS_SYNC", "otherNode", 60000));
+    ApplicationCenterService secondNodeService = newApplicationCenterService(params, "description");
+    secondNodeService.start();
+    assertEquals(ApplicationCenterService.SystemApplicationsSyncState.SYNCHRONIZED,
+                 secondNodeService.getSystemApplicationsSyncState());
+
+    // A modified configuration isn't synchronized while the lease is held
+    ApplicationCenterService thirdNodeService = newApplicationCenterService(params, "new description");
+    thirdNodeService.start();
+    assertEquals(ApplicationCenterService.SystemApplicationsSyncState.TIMED_OUT,
+                 thirdNodeService.getSystemApplicationsSyncState());
+    assertFalse(thirdNodeService.isSystemApplicationsSynchronized());
+    assertEquals("description", appCenterStorage.getApplicationByTitle("title").getDescription());
+
+    appCenterStorage.releaseSyncLease("SYSTEM_APPLICATIONS_SYNC", "otherNode");
+    thirdNodeService.start();
+    assertEquals(ApplicationCenterService.SystemApplicationsSyncState.SYNCHRONIZED,
+                 thirdNodeService.getSystemApplicationsSyncState());
+    assertEquals("new description", appCenterStorage.getApplicationByTitle("title").getDescription());
+  }
+
+  @Test
+  public void testRetrySystemApplicationsSynchronization() throws Exception {
+    InitParams params = new InitParams();
+    ValueParam waitTimeoutParam = new ValueParam();
+    waitTimeoutParam.setName("system.applications.sync.wait.timeout");
+    waitTimeoutParam.setValue("0");
+    params.addParameter(waitTimeoutParam);
+    ValueParam retryDelayParam = new ValueParam();
+    retryDelayParam.setName("system.applications.sync.retry.delay");
+    retryDelayParam.setValue("1");
+    params.addParameter(retryDelayParam);
+
+    assertTrue(appCenterStorage.acquireSyncLease("SYSTEM_APPLICATIONS_SYNC", "otherNode", 60000));
+    ApplicationCenterService nodeService = newApplicationCenterService(params, "description");
+    try {
+      nodeService.start();
+      // Timed out, a retry is scheduled
+      assertEquals(ApplicationCenterService.SystemApplicationsSyncState.PENDING, nodeService.getSystemApplicationsSyncState());
+      assertNull(appCenterStorage.getApplicationByTitle("title"));
+
+      appCenterStorage.releaseSyncLease("SYSTEM_APPLICATIONS_SYNC", "otherNode");
+      long timeout = System.currentTimeMillis() + 10000;
+      while (!nodeService.isSystemApplicationsSynchronized() && System.currentTimeMillis() < timeout) {
+        Thread.sleep(50);
+      }
+      assertTrue(nodeService.isSystemApplicationsSynchronized());
+      assertNotNull(appCenterStorage.getApplicationByTitle("title"));
+    } finally {
+      nodeService.stop();
+    }
+  }
+
+  private ApplicationCenterService newApplicationCenterService(InitParams params, String description) {
+    ApplicationCenterService service = new ApplicationCenterService(ExoContainerContext.getService(ConfigurationManager.class),
+                                                                    appCenterStorage,
+                                                                    ExoContainerContext.getService(FavoritePurgeService.class),
+                                                                    ExoContainerContext.getService(SettingService.class),
+                                                                    ExoContainerContext.getService(IdentityRegistry.class),
+                                                                    ExoContainerContext.getService(Authenticator.class),
+                                                                    ExoContainerContext.getService(CacheService.class),
+                                                                    PortalContainer.getInstance(),
+                                                                    params);
+    Application application = new Application(null,
+                                              "title",
+                                              "url",
+                                              "",
+                                              null,
+                                              0L,
+                                              null,
+                                              null,
+                                              description,
+                                              false,
+                                              true,
+                                              false,
+                                              false,
+                                              false,
+                                              ApplicationCenterService.DEFAULT_USERS_GROUP);
+    InitParams pluginParams = new InitParams();
+    ObjectParameter applicationParam = new ObjectParameter();
+    applicationParam.setName("application");
+    applicationParam.setObject(application);
+    pluginParams.addParameter(applicationParam);
+    ApplicationPlugin applicationPlugin = new ApplicationPlugin(pluginParams);
+    applicationPlugin.setName("testapp");
+    service.addApplicationPlugin(applicationPlugin);
+    return service;
+  }
+
   @Test
   public void testEnableDisableApplication() {
     InitParams applicationConf = new InitParams();
@@ -1356,4 +1993,9 @@ public class ApplicationCenterServiceTest {
       applicationCenterService.removeApplicationPlugin(pluginName);
     }
   }
+
+  private InputStream toInputStream(String content) {
+    return new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8));
+  }
+
 }
@@ -18,25 +18,53 @@ package org.exoplatform.appcenter.storage;
 
 import static org.junit.Assert.*;
 
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.Date;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.CRC32;
 
+import javax.imageio.ImageIO;
+
+import org.apache.commons.io.IOUtils;
 import org.junit.After;
 import org.junit.Before;
 import org.junit.BeforeClass;
 import org.junit.Test;
 
 import org.exoplatform.appcenter.dao.ApplicationDAO;
+import org.exoplatform.appcenter.dao.ApplicationImageVariantDAO;
 import org.exoplatform.appcenter.dao.FavoriteApplicationDAO;
+import org.exoplatform.appcenter.dao.FavoritePurgeDAO;
 import org.exoplatform.appcenter.dto.Application;
 import org.exoplatform.appcenter.dto.ApplicationImage;
 import org.exoplatform.appcenter.dto.UserApplication;
+import org.exoplatform.appcenter.entity.ApplicationEntity;
+import org.exoplatform.appcenter.service.ApplicationImageTooLargeException;
 import org.exoplatform.appcenter.service.ApplicationNotFoundException;
+import org.exoplatform.commons.file.model.FileInfo;
 import org.exoplatform.commons.file.services.NameSpaceService;
 import org.exoplatform.commons.file.services.impl.NameSpaceServiceImpl;
 import org.exoplatform.container.ExoContainerContext;
 import org.exoplatform.container.PortalContainer;
 import org.exoplatform.container.RootContainer;
 import org.exoplatform.container.component.RequestLifeCycle;
+import org.exoplatform.container.xml.InitParams;
+import org.exoplatform.container.xml.ValueParam;
+import org.exoplatform.services.cache.CacheService;
+import org.exoplatform.services.security.Identity;
+import org.exoplatform.services.security.MembershipEntry;
 import org.exoplatform.services.naming.InitialContextInitializer;
 
 public class ApplicationCenterStorageTest {
@@ -68,9 +96,15 @@ public class ApplicationCenterStorageTest {
   public void teardown() {
     FavoriteApplicationDAO favoriteApplicationDAO = ExoContainerContext.getService(FavoriteApplicationDAO.class);
     favoriteApplicationDAO.deleteAll();
+    ExoContainerContext.getService(FavoritePurgeDAO.class).deleteAll();
+    ExoContainerContext.getService(ApplicationImageVariantDAO.class).deleteAll();
 
     ApplicationDAO applicationDAO = ExoContainerContext.getService(ApplicationDAO.class);
     applicationDAO.deleteAll();
+    ExoContainerContext.getService(CacheService.class)
+                       .getCacheInstance(ApplicationCenterStorage.CATALOG_CACHE_NAME)
+                       .clearCache();
+    ExoContainerContext.getService(ApplicationIllustrationCache.class).clear();
 
     RequestLifeCycle.end();
     container.stop();
@@ -164,6 +198,41 @@ public class ApplicationCenterStorageTest {
     assertEquals(application.getPermissions(), storedApplication.getPermissions());
   }
 
+  @Test
+  public void testUpdateApplicationWithUnchangedImage() throws Exception {
+    ApplicationCenterStorage applicationCenterStorage = ExoContainerContext.getService(ApplicationCenterStorage.class);
+    ApplicationDAO applicationDAO = ExoContainerContext.getService(ApplicationDAO.class);
+
+    Application application = newApplication("title", "permissions1");
+    application.setImageFileName("name.png");
+    application.setImageFileBody("Zmlyc3RDb250ZW50");
+    Application storedApplication = applicationCenterStorage.createApplication(application);
+    Long imageFileId = storedApplication.getImageFileId();
+    assertNotNull(imageFileId);
+    assertNotNull(applicationDAO.find(storedApplication.getId()).getImageHash());
+
+    application.setId(storedApplication.getId());
+    application.setDescription("description2");
+    storedApplication = applicationCenterStorage.updateApplication(application);
+    assertEquals("Unchanged image shouldn't be written again", imageFileId, storedApplication.getImageFileId());
+    assertEquals("description2", storedApplication.getDescription());
+
+    // Image stored before hashes were persisted
+    ApplicationEntity applicationEntity = applicationDAO.find(storedApplication.getId());
+    applicationEntity.setImageHash(null);
+    applicationDAO.update(applicationEntity);
+    storedApplication = applicationCenterStorage.updateApplication(application);
+    assertEquals(imageFileId, storedApplication.getImageFileId());
+    assertNotNull(applicationDAO.find(storedApplication.getId()).getImageHash());
+
+    application.setImageFileBody("c2Vjb25kQ29udGVudA==");
+    storedApplication = applicationCenterStorage.updateApplication(application);
+    assertNotEquals(imageFileId, storedApplication.getImageFileId());
+    assertEquals("secondContent",
+                 new String(IOUtils.toByteArray(applicationCenterStorage.getApplicationImageInputStream(storedApplication.getImageFileId())),
+                            StandardCharsets.UTF_8));
+  }
+
   @Test
   public void testDeleteApplication() throws Exception {
     ApplicationCenterStorage applicationCenterStorage = ExoContainerContext.getService(ApplicationCenterStorage.class);
@@ -331,7 +400,101 @@ public class ApplicationCenterStorageTest {
                                               "permissions2");
 
     Application storedApplication = applicationCenterStorage.createApplication(application);
+    assertTrue(applicationCenterStorage.addApplicationToUserFavorite(storedApplication.getId(), "testuser"));
+    assertFalse(applicationCenterStorage.addApplicationToUserFavorite(storedApplication.getId(), "testuser"));
+    assertTrue(applicationCenterStorage.addApplicationToUserFavorite(storedApplication.getId(), "testuser2"));
+    assertEquals(1, applicationCenterStorage.countFavorites("testuser"));
+  }
+
+  @Test
+  public void testPurgeFavoritesOfDeletedApplication() throws Exception {
+    ApplicationCenterStorage applicationCenterStorage = ExoContainerContext.getService(ApplicationCenterStorage.class);
+    assertNotNull(applicationCenterStorage);
+
+    Application storedApplication = applicationCenterStorage.createApplication(newApplication("title", "permissions1"));
+    Application otherApplication = applicationCenterStorage.createApplication(newApplication("title2", "permissions1"));
+    for (int i = 0; i < 3; i++) {
+      applicationCenterStorage.addApplicationToUserFavorite(storedApplication.getId(), "testuser" + i);
+    }
+    applicationCenterStorage.addApplicationToUserFavorite(otherApplication.getId(), "testuser0");
+    assertEquals(0, applicationCenterStorage.getFavoritePurgeIds().size());
+
+    applicationCenterStorage.deleteApplication(storedApplication.getId());
+    // Favorites of deleted application are ignored before being purged
+    assertEquals(1, applicationCenterStorage.countFavorites("testuser0"));
+    assertEquals(0, applicationCenterStorage.countFavorites("testuser1"));
+
+    List<Long> purgeIds = applicationCenterStorage.getFavoritePurgeIds();
+    assertEquals(1, purgeIds.size());
+    long purgeId = purgeIds.get(0);
+    assertEquals(2, applicationCenterStorage.purgeFavorites(purgeId, 2));
+    assertEquals(1, applicationCenterStorage.getFavoritePurgeIds().size());
+    assertEquals(1, applicationCenterStorage.purgeFavorites(purgeId, 2));
+    assertEquals(0, applicationCenterStorage.purgeFavorites(purgeId, 2));
+    assertEquals(0, applicationCenterStorage.getFavoritePurgeIds().size());
+    assertEquals(0, applicationCenterStorage.purgeFavorites(purgeId, 2));
+
+    assertEquals(1, applicationCenterStorage.countFavorites("testuser0"));
+    assertTrue(applicationCenterStorage.isFavoriteApplication(otherApplication.getId(), "testuser0"));
+  }
+
+  @Test
+  public void testDeleteOrphanFavorites() throws Exception {
+    ApplicationCenterStorage applicationCenterStorage = ExoContainerContext.getService(ApplicationCenterStorage.class);
+    assertNotNull(applicationCenterStorage);
+
+    Application storedApplication = applicationCenterStorage.createApplication(newApplication("title", "permissions1"));
+    Application otherApplication = applicationCenterStorage.createApplication(newApplication("title2", "permissions1"));
+    for (int i = 0; i < 3; i++) {
+      applicationCenterStorage.addApplicationToUserFavorite(storedApplication.getId(), "testuser" + i);
+    }
+    applicationCenterStorage.addApplicationToUserFavorite(otherApplication.getId(), "testuser0");
+    assertEquals(0, applicationCenterStorage.deleteOrphanFavorites(10));
+
+    applicationCenterStorage.deleteApplication(storedApplication.getId());
+    // Simulate a lost purge
+    ExoContainerContext.getService(FavoritePurgeDAO.class).deleteAll();
+
+    assertEquals(2, applicationCenterStorage.deleteOrphanFavorites(2));
+    assertEquals(1, applicationCenterStorage.deleteOrphanFavorites(2));
+    assertEquals(0, applicationCenterStorage.deleteOrphanFavorites(2));
+    assertTrue(applicationCenterStorage.isFavoriteApplication(otherApplication.getId(), "testuser0"));
+  }
+
+  @Test
+  public void testPurgeFavoritesOfMandatoryApplication() throws Exception {
+    ApplicationCenterStorage applicationCenterStorage = ExoContainerContext.getService(ApplicationCenterStorage.class);
+    assertNotNull(applicationCenterStorage);
+
+    Application storedApplication = applicationCenterStorage.createApplication(newApplication("title", "permissions1"));
     applicationCenterStorage.addApplicationToUserFavorite(storedApplication.getId(), "testuser");
+
+    storedApplication.setDescription("description2");
+    storedApplication = applicationCenterStorage.updateApplication(storedApplication);
+    assertEquals(0, applicationCenterStorage.getFavoritePurgeIds().size());
+
+    storedApplication.setMandatory(true);
+    storedApplication = applicationCenterStorage.updateApplication(storedApplication);
+    assertEquals(1, applicationCenterStorage.getFavoritePurgeIds().size());
+
+    // Saving again a mandatory application doesn't trigger a new purge
+    storedApplication = applicationCenterStorage.updateApplication(storedApplication);
+    assertEquals(1, applicationCenterStorage.getFavoritePurgeIds().size());
+
+    // The purge is ignored when the application isn't mandatory anymore
+    storedApplication.setMandatory(false);
+    storedApplication = applicationCenterStorage.updateApplication(storedApplication);
+    long purgeId = applicationCenterStorage.getFavoritePurgeIds().get(0);
+    assertEquals(0, applicationCenterStorage.purgeFavorites(purgeId, 10));
+    assertEquals(0, applicationCenterStorage.getFavoritePurgeIds().size());
+    assertTrue(applicationCenterStorage.isFavoriteApplication(storedApplication.getId(), "testuser"));
+
+    storedApplication.setMandatory(true);
+    applicationCenterStorage.updateApplication(storedApplication);
+    purgeId = applicationCenterStorage.getFavoritePurgeIds().get(0);
+    assertEquals(1, applicationCenterStorage.purgeFavorites(purgeId, 10));
+    assertEquals(0, applicationCenterStorage.purgeFavorites(purgeId, 10));
+    assertFalse(applicationCenterStorage.isFavoriteApplication(storedApplication.getId(), "testuser"));
   }
 
   @Test
@@ -436,6 +599,14 @@ public class ApplicationCenterStorageTest {
     Application storedApplication = applicationCenterStorage.createApplication(application);
     applicationCenterStorage.addApplicationToUserFavorite(storedApplication.getId(), "testuser");
     assertEquals(1, applicationCenterStorage.getFavoriteApplicationsByUser("testuser").size());
+
+    // Inactive favorite applications are only retrieved when requesting all
+    storedApplication.setActive(false);
+    applicationCenterStorage.updateApplication(storedApplication);
+    assertEquals(0, applicationCenterStorage.getFavoriteApplicationsByUser("testuser").size());
+    List<UserApplication> allFavoriteApplications = applicationCenterStorage.getAllFavoriteApplicationsByUser("testuser");
+    assertEquals(1, allFavoriteApplications.size());
+    assertEquals("title", allFavoriteApplications.get(0).getTitle());
   }
 
   @Test
@@ -472,7 +643,7 @@ public class ApplicationCenterStorageTest {
                                                "permissions2");
 
     Application application2 = new Application(null,
-                                               "title",
+                                               "title2",
                                                "url",
                                                "",
                                                0L,
@@ -538,6 +709,52 @@ public class ApplicationCenterStorageTest {
     assertEquals(1, applications.size());
   }
 
+  @Test
+  public void testSearchApplications() throws Exception {
+    ApplicationCenterStorage applicationCenterStorage = ExoContainerContext.getService(ApplicationCenterStorage.class);
+    assertNotNull(applicationCenterStorage);
+
+    Application urlApplication = newApplication("Zeta", "permissions1");
+    urlApplication.setUrl("/portal/calendar");
+    urlApplication = applicationCenterStorage.createApplication(urlApplication);
+    Application descriptionApplication = newApplication("Agenda", "permissions1");
+    descriptionApplication.setDescription("Shared calendar of spaces");
+    descriptionApplication = applicationCenterStorage.createApplication(descriptionApplication);
+    Application infixApplication = applicationCenterStorage.createApplication(newApplication("My Calendar", "permissions1"));
+    Application prefixApplication = applicationCenterStorage.createApplication(newApplication("Calendrier \u00C9quipe",
+                                                                                              "permissions1"));
+    Application otherApplication = applicationCenterStorage.createApplication(newApplication("Tasks", "permissions1"));
+
+    List<Application> applications = applicationCenterStorage.getApplications("calend");
+    assertEquals(4, applications.size());
+    assertEquals(prefixApplication.getId(), applications.get(0).getId());
+    assertEquals(infixApplication.getId(), applications.get(1).getId());
+    assertEquals(descriptionApplication.getId(), applications.get(2).getId());
+    assertEquals(urlApplication.getId(), applications.get(3).getId());
+
+    // Case and accents are ignored
+    applications = applicationCenterStorage.getApplications("EQUIPE");
+    assertEquals(1, applications.size());
+    assertEquals(prefixApplication.getId(), applications.get(0).getId());
+
+    // Wildcard and short keywords
+    assertEquals(1, applicationCenterStorage.getApplications("my*dar").size());
+    assertEquals(1, applicationCenterStorage.getApplications("ze").size());
+    assertEquals(0, applicationCenterStorage.getApplications("unknown").size());
+
+    // The index is updated with applications modifications
+    otherApplication.setTitle("Calendar tasks");
+    applicationCenterStorage.updateApplication(otherApplication);
+    applications = applicationCenterStorage.getApplications("calend");
+    assertEquals(5, applications.size());
+    assertEquals(otherApplication.getId(), applications.get(0).getId());
+
+    applicationCenterStorage.deleteApplication(infixApplication.getId());
+    applications = applicationCenterStorage.getApplications("calend");
+    assertEquals(4, applications.size());
+    assertTrue(applications.stream().noneMatch(application -> application.getId().equals(infixApplication.getId())));
+  }
+
   @Test
   public void testCountApplications() throws Exception {
     ApplicationCenterStorage applicationCenterStorage = ExoContainerContext.getService(ApplicationCenterStorage.class);
@@ -566,6 +783,280 @@ public class ApplicationCenterStorageTest {
     assertEquals(1, applicationCenterStorage.countApplications());
   }
 
+  @Test
+  public void testGetCatalog() throws Exception {
+    ApplicationCenterStorage applicationCenterStorage = ExoContainerContext.getService(ApplicationCenterStorage.class);
+    assertNotNull(applicationCenterStorage);
+
+    ApplicationCatalog catalog = applicationCenterStorage.getCatalog();
+    assertNotNull(catalog);
+    assertEquals(0, catalog.size());
+    long version = catalog.getVersion();
+
+    Application application = new Application(null,
+                                              "Title",
+                                              "url",
+                                              "",
+                                              0L,
+                                              0L,
+                                              null,
+                                              null,
+                                              "description",
+                                              true,
+                                              true,
+                                              true,
+                                              false,
+                                              false,
+                                              "permissions1");
+    Application storedApplication = applicationCenterStorage.createApplication(application);
+
+    catalog = applicationCenterStorage.getCatalog();
+    assertTrue(catalog.getVersion() > version);
+    assertEquals(1, catalog.size());
+    assertEquals(1, catalog.getMandatoryActiveApplications().size());
+    assertEquals(1, catalog.getSystemApplications().size());
+    assertNull(catalog.getApplicationByTitle("title"));
+    assertNotNull(catalog.getApplicationByTitle("Title"));
+
+    // Modifying a retrieved application mustn't modify the snapshot
+    Application retrievedApplication = applicationCenterStorage.getApplicationById(storedApplication.getId());
+    retrievedApplication.setTitle("Modified title");
+    assertEquals("Title", applicationCenterStorage.getApplicationById(storedApplication.getId()).getTitle());
+
+    version = catalog.getVersion();
+    applicationCenterStorage.deleteApplication(storedApplication.getId());
+    catalog = applicationCenterStorage.getCatalog();
+    assertTrue(catalog.getVersion() > version);
+    assertEquals(0, catalog.size());
+    assertNull(applicationCenterStorage.getApplicationById(storedApplication.getId()));
+  }
+
+  @Test
+  public void testCreateApplications() throws Exception {
+    ApplicationCenterStorage applicationCenterStorage = ExoContainerContext.getService(ApplicationCenterStorage.class);
+    assertNotNull(applicationCenterStorage);
+
+    try {
+      applicationCenterStorage.createApplications(null);
+      fail("Shouldn't create null applications");
+    } catch (IllegalArgumentException e) {
+      // Expected
+    }
+
+    List<Application> applicationForms = new ArrayList<>();
+    for (int i = 0; i < 5; i++) {
+      applicationForms.add(newApplication("title" + i, "permissions1"));
+    }
+    applicationForms.get(0).setImageFileName("image.png");
+    applicationForms.get(0).setImageFileBody("aW1hZ2U=");
+
+    List<Application> applications = applicationCenterStorage.createApplications(applicationForms);
+    assertEquals(5, applications.size());
+    assertEquals(5, applicationCenterStorage.getCatalog().size());
+    assertNotNull(applications.get(0).getImageFileId());
+    for (Application application : applications) {
+      assertNotNull(application.getId());
+      assertNotNull(applicationCenterStorage.getApplicationById(application.getId()));
+    }
+  }
+
+  @Test
+  public void testGetApplicationsAfterId() throws Exception {
+    ApplicationCenterStorage applicationCenterStorage = ExoContainerContext.getService(ApplicationCenterStorage.class);
+    assertNotNull(applicationCenterStorage);
+
+    Application applicationWithImage = newApplication("title0", "permissions1");
+    applicationWithImage.setImageFileName("image.png");
+    applicationWithImage.setImageFileBody("aW1hZ2U=");
+    applicationCenterStorage.createApplication(applicationWithImage);
+    for (int i = 1; i < 5; i++) {
+      applicationCenterStorage.createApplication(newApplication("title" + i, "permissions1"));
+    }
+
+    List<Application> applications = applicationCenterStorage.getApplicationsAfterId(0, 3, false);
+    assertEquals(3, applications.size());
+    assertNull(applications.get(0).getImageFileBody());
+    assertTrue(applications.get(0).getId() < applications.get(1).getId());
+    assertTrue(applications.get(1).getId() < applications.get(2).getId());
+
+    List<Application> nextApplications = applicationCenterStorage.getApplicationsAfterId(applications.get(2).getId(), 3, false);
+    assertEquals(2, nextApplications.size());
+    assertTrue(applications.get(2).getId() < nextApplications.get(0).getId());
+
+    applications = applicationCenterStorage.getApplicationsAfterId(0, 1, true);
+    assertEquals(1, applications.size());
+    assertEquals("aW1hZ2U=", applications.get(0).getImageFileBody());
+  }
+
+  @Test
+  public void testGetAuthorizedApplicationIds() throws Exception {
+    ApplicationCenterStorage applicationCenterStorage = ExoContainerContext.getService(ApplicationCenterStorage.class);
+    assertNotNull(applicationCenterStorage);
+
+    Application publicApplication = applicationCenterStorage.createApplication(newApplication("public", (String[]) null));
+    Application groupApplication = applicationCenterStorage.createApplication(newApplication("group", "/platform/users"));
+    Application managerApplication = applicationCenterStorage.createApplication(newApplication("manager",
+                                                                                               "manager:/spaces/space1"));
+    Application userApplication = applicationCenterStorage.createApplication(newApplication("user", "root", "john"));
+
+    BitSet authorized = applicationCenterStorage.getAuthorizedApplicationIds(null, null);
+    assertTrue(ApplicationPermissionIndex.isAuthorized(authorized, publicApplication.getId()));
+    assertFalse(ApplicationPermissionIndex.isAuthorized(authorized, groupApplication.getId()));
+    assertFalse(ApplicationPermissionIndex.isAuthorized(authorized, managerApplication.getId()));
+    assertFalse(ApplicationPermissionIndex.isAuthorized(authorized, userApplication.getId()));
+
+    authorized = applicationCenterStorage.getAuthorizedApplicationIds("john",
+                                                                      Arrays.asList(new MembershipEntry("/platform/users",
+                                                                                                        "member"),
+                                                                                    new MembershipEntry("/spaces/space1",
+                                                                                                        "member")));
+    assertTrue(ApplicationPermissionIndex.isAuthorized(authorized, publicApplication.getId()));
+    assertTrue(ApplicationPermissionIndex.isAuthorized(authorized, groupApplication.getId()));
+    assertFalse(ApplicationPermissionIndex.isAuthorized(authorized, managerApplication.getId()));
+    assertTrue(ApplicationPermissionIndex.isAuthorized(authorized, userApplication.getId()));
+
+    authorized = applicationCenterStorage.getAuthorizedApplicationIds("mary",
+                                                                      Collections.singleton(new MembershipEntry("/spaces/space1",
+                                                                                                                "manager")));
+    assertTrue(ApplicationPermissionIndex.isAuthorized(authorized, publicApplication.getId()));
+    assertFalse(ApplicationPermissionIndex.isAuthorized(authorized, groupApplication.getId()));
+    assertTrue(ApplicationPermissionIndex.isAuthorized(authorized, managerApplication.getId()));
+    assertFalse(ApplicationPermissionIndex.isAuthorized(authorized, userApplication.getId()));
+
+    // The index is maintained with the catalog
+    groupApplication.setPermissions("mary");
+    applicationCenterStorage.updateApplication(groupApplication);
+    authorized = applicationCenterStorage.getAuthorizedApplicationIds("mary", Collections.emptyList());
+    assertTrue(ApplicationPermissionIndex.isAuthorized(authorized, groupApplication.getId()));
+    assertFalse(ApplicationPermissionIndex.isAuthorized(authorized, managerApplication.getId()));
+  }
+
+  @Test
+  public void testApplicationPermissionEvaluator() {
+    assertTrue(ApplicationPermission.compile("").isEveryone());
+    assertEquals("john", ApplicationPermission.compile("john").getUsername());
+    assertEquals(MembershipEntry.ANY_TYPE, ApplicationPermission.compile("/platform/users").getMembershipType());
+    assertEquals("manager", ApplicationPermission.compile("manager:/spaces/space1").getMembershipType());
+    assertEquals("/spaces/space1", ApplicationPermission.compile("manager:/spaces/space1").getGroup());
+
+    AtomicInteger identityRetrievalCount = new AtomicInteger();
+    Identity identity = new Identity("john", Collections.singleton(new MembershipEntry("/platform/users", "member")));
+    ApplicationPermissionEvaluator evaluator = new ApplicationPermissionEvaluator("john", () -> {
+      identityRetrievalCount.incrementAndGet();
+      return identity;
+    });
+    assertTrue(evaluator.hasPermission(ApplicationPermission.compile((List<String>) null)));
+    assertEquals(0, identityRetrievalCount.get());
+    assertTrue(evaluator.hasPermission(ApplicationPermission.compile(Arrays.asList("*:/platform/users"))));
+    assertTrue(evaluator.hasPermission(ApplicationPermission.compile(Arrays.asList("/platform/administrators",
+                                                                                   "/platform/users"))));
+    assertTrue(evaluator.hasPermission(ApplicationPermission.compile(Arrays.asList("john"))));
+    assertFalse(evaluator.hasPermission(ApplicationPermission.compile(Arrays.asList("manager:/platform/users", "mary"))));
+    assertFalse(evaluator.hasPermission(ApplicationPermission.compile(Collections.emptyList())));
+    assertEquals(1, identityRetrievalCount.get());
+
+    evaluator = new ApplicationPermissionEvaluator(null, () -> identity);
+    assertTrue(evaluator.hasPermission(ApplicationPermission.compile(Arrays.asList(""))));
+    assertFalse(evaluator.hasPermission(ApplicationPermission.compile(Arrays.asList("*:/platform/users"))));
+  }
+
+  @Test
+  public void testApplicationPermissionsCompiledWithCatalog() throws Exception {
+    ApplicationCenterStorage applicationCenterStorage = ExoContainerContext.getService(ApplicationCenterStorage.class);
+    Application application1 = applicationCenterStorage.createApplication(new Application(null,
+                                                                                           "title1",
+                                                                                           "url1",
+                                                                                           "",
+                                                                                           0L,
+                                                                                           0L,
+                                                                                           null,
+                                                                                           null,
+                                                                                           "description",
+                                                                                           false,
+                                                                                           true,
+                                                                                           false,
+                                                                                           false,
+                                                                                           false,
+                                                                                           "*:/platform/users"));
+    Application application2 = applicationCenterStorage.createApplication(new Application(null,
+                                                                                           "title2",
+                                                                                           "url2",
+                                                                                           "",
+                                                                                           0L,
+                                                                                           0L,
+                                                                                           null,
+                                                                                           null,
+                                                                                           "description",
+                                                                                           false,
+                                                                                           true,
+                                                                                           false,
+                                                                                           false,
+                                                                                           false,
+                                                                                           "/platform/administrators",
+                                                                                           "*:/platform/users"));
+
+    // Identical expressions share the compiled permission of the catalog
+    List<ApplicationPermission> permissions1 = applicationCenterStorage.getApplicationPermissions(application1);
+    List<ApplicationPermission> permissions2 = applicationCenterStorage.getApplicationPermissions(application2);
+    assertSame(permissions1, applicationCenterStorage.getApplicationPermissions(application1));
+    assertSame(permissions1.get(0), permissions2.get(1));
+
+    // Modified permissions, not stored yet, are compiled on the fly
+    application1.setPermissions("john");
+    assertEquals("john", applicationCenterStorage.getApplicationPermissions(application1).get(0).getUsername());
+  }
+
+  @Test
+  public void testApplicationImageMetadata() throws Exception {
+    ApplicationCenterStorage applicationCenterStorage = ExoContainerContext.getService(ApplicationCenterStorage.class);
+    assertNotNull(applicationCenterStorage);
+
+    Application application = new Application(null,
+                                              "title",
+                                              "url",
+                                              "",
+                                              null,
+                                              null,
+                                              "content",
+                                              "image.png",
+                                              "description",
+                                              false,
+                                              true,
+                                              false,
+                                              false,
+                                              false,
+                                              "permissions1");
+    Application storedApplication = applicationCenterStorage.createApplication(application);
+    assertNotNull(storedApplication.getImageFileId());
+    assertEquals("image.png", storedApplication.getImageFileName());
+    long imageLastModified = storedApplication.getImageLastModified();
+
+    // Force reloading applications from database
+    ExoContainerContext.getService(CacheService.class).getCacheInstance(ApplicationCenterStorage.CATALOG_CACHE_NAME).clearCache();
+    storedApplication = applicationCenterStorage.getApplicationById(storedApplication.getId());
+    assertEquals("image.png", storedApplication.getImageFileName());
+    assertEquals(imageLastModified, storedApplication.getImageLastModified().longValue());
+
+    // Update without modifying image
+    storedApplication.setImageFileName("image.png");
+    storedApplication.setImageFileBody(null);
+    storedApplication.setDescription("description2");
+    applicationCenterStorage.updateApplication(storedApplication);
+    ExoContainerContext.getService(CacheService.class).getCacheInstance(ApplicationCenterStorage.CATALOG_CACHE_NAME).clearCache();
+    storedApplication = applicationCenterStorage.getApplicationById(storedApplication.getId());
+    assertEquals("image.png", storedApplication.getImageFileName());
+    assertEquals(imageLastModified, storedApplication.getImageLastModified().longValue());
+
+    // Remove image
+    storedApplication.setImageFileName(null);
+    storedApplication.setImageFileBody(null);
+    applicationCenterStorage.updateApplication(storedApplication);
+    ExoContainerContext.getService(CacheService.class).getCacheInstance(ApplicationCenterStorage.CATALOG_CACHE_NAME).clearCache();
+    storedApplication = applicationCenterStorage.getApplicationById(storedApplication.getId());
+    assertNull(storedApplication.getImageFileId());
+    assertNull(storedApplication.getImageFileName());
+  }
+
   @Test
   public void testIsFavoriteApplication() throws Exception {
     ApplicationCenterStorage applicationCenterStorage = ExoContainerContext.getService(ApplicationCenterStorage.class);
@@ -689,4 +1180,230 @@ public class ApplicationCenterStorageTest {
     assertNotNull(applicationImage.getFileBody());
   }
 
+  @Test
+  public void testApplicationIllustrationCache() throws Exception {
+    ApplicationCenterStorage applicationCenterStorage = ExoContainerContext.getService(ApplicationCenterStorage.class);
+    ApplicationIllustrationCache illustrationCache = ExoContainerContext.getService(ApplicationIllustrationCache.class);
+    assertNotNull(illustrationCache);
+
+    ApplicationImage applicationImage = applicationCenterStorage.createAppImageFileItem("name", "Zmlyc3RDb250ZW50");
+    long fileId = applicationImage.getId();
+    long hitCount = illustrationCache.getHitCount();
+    long missCount = illustrationCache.getMissCount();
+
+    byte[] content = IOUtils.toByteArray(applicationCenterStorage.getApplicationImageInputStream(fileId));
+    assertEquals("firstContent", new String(content, StandardCharsets.UTF_8));
+    assertEquals(missCount + 1, illustrationCache.getMissCount());
+    assertNotNull(illustrationCache.peek(fileId));
+    assertEquals(content.length, applicationCenterStorage.getApplicationImageFileInfo(fileId).getSize());
+
+    content = IOUtils.toByteArray(applicationCenterStorage.getApplicationImageInputStream(fileId));
+    assertEquals("firstContent", new String(content, StandardCharsets.UTF_8));
+    assertEquals(hitCount + 1, illustrationCache.getHitCount());
+
+    applicationImage.setFileBody("c2Vjb25kQ29udGVudA==");
+    applicationCenterStorage.saveAppImageFileItem(applicationImage);
+    assertNull("Cached illustration should be invalidated when updated", illustrationCache.peek(fileId));
+    content = IOUtils.toByteArray(applicationCenterStorage.getApplicationImageInputStream(fileId));
+    assertEquals("secondContent", new String(content, StandardCharsets.UTF_8));
+
+    // Invalidation of the illustration made by another cluster node
+    assertNotNull(illustrationCache.peek(fileId));
+    ExoContainerContext.getService(CacheService.class)
+                       .getCacheInstance(ApplicationIllustrationCache.VERSION_CACHE_NAME)
+                       .remove(fileId);
+    assertNull("Cached illustration should be invalidated by other nodes", illustrationCache.peek(fileId));
+    assertEquals(content.length, applicationCenterStorage.getApplicationImageFileInfo(fileId).getSize());
+  }
+
+  @Test
+  public void testApplicationIllustrationCacheEviction() throws Exception {
+    InitParams params = new InitParams();
+    ValueParam budgetParam = new ValueParam();
+    budgetParam.setName("budget.size");
+    budgetParam.setValue("10");
+    params.addParameter(budgetParam);
+    ApplicationIllustrationCache illustrationCache = new ApplicationIllustrationCache(ExoContainerContext.getService(CacheService.class),
+                                                                                      params);
+    assertEquals(10, illustrationCache.getMaxEntrySize());
+
+    byte[] content = "12345".getBytes(StandardCharsets.UTF_8);
+    illustrationCache.put(newFileInfo(1L, content.length), new ByteArrayInputStream(content));
+    illustrationCache.put(newFileInfo(2L, content.length), new ByteArrayInputStream(content));
+    assertEquals(10, illustrationCache.getUsedSize());
+    // Make the first illustration the most recently used
+    assertNotNull(illustrationCache.get(1L));
+
+    illustrationCache.put(newFileInfo(3L, content.length), new ByteArrayInputStream(content));
+    assertEquals(2, illustrationCache.getSize());
+    assertEquals(1, illustrationCache.getEvictionCount());
+    assertNull(illustrationCache.peek(2L));
+    assertEquals("12345", new String(IOUtils.toByteArray(illustrationCache.get(1L).getInputStream()), StandardCharsets.UTF_8));
+    assertFalse(illustrationCache.isCacheable(newFileInfo(4L, 11)));
+
+    illustrationCache.remove(1L);
+    assertEquals(5, illustrationCache.getUsedSize());
+  }
+
+  @Test
+  public void testResizeImageExceedingMaxPixels() throws Exception {
+    // PNG header declaring 100000x100000 pixels, without pixels data
+    ByteArrayOutputStream header = new ByteArrayOutputStream();
+    DataOutputStream headerData = new DataOutputStream(header);
+    headerData.write(new byte[] { (byte) 0x89, 'P', 'N', 'G', '\r', '\n', 0x1A, '\n' });
+    byte[] headerChunk = ByteBuffer.allocate(17).put("IHDR".getBytes(StandardCharsets.US_ASCII))
+                                   .putInt(100000)
+                                   .putInt(100000)
+                                   .put(new byte[] { 8, 2, 0, 0, 0 })
+                                   .array();
+    CRC32 crc = new CRC32();
+    crc.update(headerChunk);
+    headerData.writeInt(13);
+    headerData.write(headerChunk);
+    headerData.writeInt((int) crc.getValue());
+
+    try {
+      ApplicationImageResizer.resize(new ByteArrayInputStream(header.toByteArray()), 64);
+      fail("Image exceeding the maximum pixels count shouldn't be decoded");
+    } catch (IOException e) {
+      // Expected
+    }
+    assertNull(ApplicationImageResizer.resize(new ByteArrayInputStream(Base64.getDecoder().decode(newPngBody(50, 20))), 64));
+    byte[] resizedImage = ApplicationImageResizer.resize(new ByteArrayInputStream(Base64.getDecoder()
+                                                                                        .decode(newPngBody(1000, 500))),
+                                                         64);
+    BufferedImage image = ImageIO.read(new ByteArrayInputStream(resizedImage));
+    assertEquals(64, image.getWidth());
+    assertEquals(32, image.getHeight());
+  }
+
+  @Test
+  public void testGetApplicationImageVariant() throws Exception {
+    ApplicationCenterStorage applicationCenterStorage = ExoContainerContext.getService(ApplicationCenterStorage.class);
+    ApplicationImageVariantDAO imageVariantDAO = ExoContainerContext.getService(ApplicationImageVariantDAO.class);
+
+    ApplicationImage applicationImage = applicationCenterStorage.createAppImageFileItem("name", newPngBody(200, 100));
+    FileInfo imageFileInfo = applicationCenterStorage.getApplicationImageFileInfo(applicationImage.getId());
+
+    FileInfo variantFileInfo = applicationCenterStorage.getApplicationImageVariantFileInfo(imageFileInfo, 40);
+    assertNotNull(variantFileInfo);
+    assertNotEquals(imageFileInfo.getId(), variantFileInfo.getId());
+    assertEquals(ApplicationCenterStorage.NAME_SPACE, variantFileInfo.getNameSpace());
+    BufferedImage variantImage = ImageIO.read(applicationCenterStorage.getApplicationImageInputStream(variantFileInfo.getId()));
+    assertEquals(40, variantImage.getWidth());
+    assertEquals(20, variantImage.getHeight());
+
+    assertEquals("Variant should be generated once",
+                 variantFileInfo.getId(),
+                 applicationCenterStorage.getApplicationImageVariantFileInfo(imageFileInfo, 40).getId());
+    assertEquals("Original image should be used when smaller than the variant size",
+                 imageFileInfo.getId(),
+                 applicationCenterStorage.getApplicationImageVariantFileInfo(imageFileInfo, 256).getId());
+    assertEquals(2, imageVariantDAO.getVariantsOfImage(imageFileInfo.getId()).size());
+
+    applicationImage.setFileBody(newPngBody(100, 100));
+    applicationCenterStorage.saveAppImageFileItem(applicationImage);
+    assertTrue("Variants should be deleted when the image is modified",
+               imageVariantDAO.getVariantsOfImage(imageFileInfo.getId()).isEmpty());
+    assertNull(applicationCenterStorage.getApplicationImageFileInfo(variantFileInfo.getId()));
+  }
+
+  @Test
+  public void testReadApplicationImageUpload() throws Exception {
+    byte[] pngContent = Base64.getDecoder().decode(newPngBody(10, 10));
+    try (ApplicationImageUpload imageUpload = ApplicationImageUpload.read(new ByteArrayInputStream(pngContent), 1024 * 1024)) {
+      assertEquals(pngContent.length, imageUpload.getSize());
+      assertEquals("image/png", imageUpload.getMimeType());
+      assertEquals(ApplicationCenterStorage.computeHash(pngContent), imageUpload.getHash());
+      assertArrayEquals(pngContent, IOUtils.toByteArray(imageUpload.getInputStream()));
+    }
+
+    try {
+      ApplicationImageUpload.read(new ByteArrayInputStream(pngContent), pngContent.length - 1L);
+      fail("Image exceeding the maximum size shouldn't be accepted");
+    } catch (ApplicationImageTooLargeException e) {
+      // Expected
+    }
+    try {
+      ApplicationImageUpload.read(new ByteArrayInputStream("<svg></svg>".getBytes(StandardCharsets.UTF_8)), 1024);
+      fail("Content which isn't a supported image shouldn't be accepted");
+    } catch (IllegalArgumentException e) {
+      // Expected
+    }
+    try {
+      ApplicationImageUpload.read(new ByteArrayInputStream(new byte[0]), 1024);
+      fail("Empty content shouldn't be accepted");
+    } catch (IllegalArgumentException e) {
+      // Expected
+    }
+  }
+
+  @Test
+  public void testUpdateApplicationImage() throws Exception {
+    ApplicationCenterStorage applicationCenterStorage = ExoContainerContext.getService(ApplicationCenterStorage.class);
+    byte[] pngContent = Base64.getDecoder().decode(newPngBody(10, 10));
+
+    try (ApplicationImageUpload imageUpload = ApplicationImageUpload.read(new ByteArrayInputStream(pngContent), 1024 * 1024)) {
+      applicationCenterStorage.updateApplicationImage(5000L, "name.png", imageUpload);
+      fail("Application doesn't exist");
+    } catch (ApplicationNotFoundException e) {
+      // Expected
+    }
+
+    Application storedApplication = applicationCenterStorage.createApplication(newApplication("title", "permissions1"));
+
+    try (ApplicationImageUpload imageUpload = ApplicationImageUpload.read(new ByteArrayInputStream(pngContent), 1024 * 1024)) {
+      storedApplication = applicationCenterStorage.updateApplicationImage(storedApplication.getId(), "name.png", imageUpload);
+    }
+    Long imageFileId = storedApplication.getImageFileId();
+    assertNotNull(imageFileId);
+    assertEquals("name.png", storedApplication.getImageFileName());
+    assertTrue(storedApplication.isChangedManually());
+    assertArrayEquals(pngContent, IOUtils.toByteArray(applicationCenterStorage.getApplicationImageInputStream(imageFileId)));
+    assertEquals("image/png", applicationCenterStorage.getApplicationImageFileInfo(imageFileId).getMimetype());
+
+    try (ApplicationImageUpload imageUpload = ApplicationImageUpload.read(new ByteArrayInputStream(pngContent), 1024 * 1024)) {
+      storedApplication = applicationCenterStorage.updateApplicationImage(storedApplication.getId(), "name.png", imageUpload);
+    }
+    assertEquals("Unchanged image shouldn't be written again", imageFileId, storedApplication.getImageFileId());
+
+    byte[] newPngContent = Base64.getDecoder().decode(newPngBody(20, 20));
+    try (ApplicationImageUpload imageUpload = ApplicationImageUpload.read(new ByteArrayInputStream(newPngContent), 1024 * 1024)) {
+      storedApplication = applicationCenterStorage.updateApplicationImage(storedApplication.getId(), "name2.png", imageUpload);
+    }
+    assertNotEquals(imageFileId, storedApplication.getImageFileId());
+    assertNull("Old image should be deleted", applicationCenterStorage.getApplicationImageFileInfo(imageFileId));
+    assertArrayEquals(newPngContent,
+                      IOUtils.toByteArray(applicationCenterStorage.getApplicationImageInputStream(storedApplication.getImageFileId())));
+  }
+
+  private String newPngBody(int width, int height) throws IOException {
+    BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+    ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+    ImageIO.write(image, "png", outputStream);
+    return Base64.getEncoder().encodeToString(outputStream.toByteArray());
+  }
+
+  private FileInfo newFileInfo(long id, long size) {
+    return new FileInfo(id, "name", "image/png", ApplicationCenterStorage.NAME_SPACE, size, new Date(), "root", "", false);
+  }
+
+  private Application newApplication(String title, String... permissions) {
+    return new Application(null,
+                           title,
+                           "url",
+                           "",
+                           0L,
+                           0L,
+                           null,
+                           null,
+                           "description",
+                           false,
+                           true,
+                           false,
+                           false,
+                           false,
+                           permissions);
+  }
+
 }
@@ -5,3 +5,9 @@ workbox.routing.registerRoute(
     cacheName: imageCacheName,
   }),
 );
+workbox.routing.registerRoute(
+  new RegExp('.*/rest/app-center/applications/illustrations\\?.*'),
+  new workbox.strategies.CacheFirst({
+    cacheName: imageCacheName,
+  }),
+);